@@ -0,0 +1,223 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * BenchmarkHarness times registered operations in the current JVM: every benchmark runs a
+ * number of warmup iterations and then a number of measured iterations, each of which
+ * calls the operation back to back for a fixed time (at least once). For the measured
+ * iterations it reports the mean time per operation with the error of a 99.9% confidence
+ * interval, the bytes allocated per operation by the benchmark thread and the number of
+ * garbage collections, which together stand in for the time and gc profiler columns of a
+ * JMH run.
+ * <p>
+ * Results are written as tab separated rows with a fixed header, sorted as registered, so
+ * two result files can be diffed directly or compared with {@link #compare(Path, Path,
+ * PrintStream)}. Every result of an operation is folded into a volatile field, so the JIT
+ * cannot drop the work as dead code.
+ */
+final class BenchmarkHarness {
+
+    // This class does not represent an ADT.
+
+    /**
+     * The header of a result file.
+     */
+    static final String HEADER =
+            "benchmark\titerations\tops\tns_per_op\terror_ns\talloc_bytes_per_op\tgc_count";
+
+    // two sided 99.9% quantiles of Student's t distribution for 1 .. 30 degrees of freedom
+    private static final double[] T_999 = {636.619, 31.599, 12.924, 8.610, 6.869, 5.959,
+        5.408, 5.041, 4.781, 4.587, 4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922,
+        3.883, 3.850, 3.819, 3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646};
+
+    /**
+     * A benchmarked operation. What it returns is consumed, so it is not optimized away.
+     */
+    interface Operation {
+        Object run() throws Exception;
+    }
+
+    private final Map<String, Operation> benchmarks = new LinkedHashMap<>();
+    private final int warmupIterations;
+    private final int measuredIterations;
+    private final long iterationNanos;
+    private volatile int sink;
+
+    /**
+     * @param warmupIterations   the number of unmeasured iterations before the measured ones
+     * @param measuredIterations the number of measured iterations
+     * @param iterationMillis    how long each iteration calls its operation
+     * @throws IllegalArgumentException if warmupIterations is negative, or measuredIterations
+     *                                  or iterationMillis are not positive
+     */
+    BenchmarkHarness(int warmupIterations, int measuredIterations, long iterationMillis) {
+        if (warmupIterations < 0 || measuredIterations < 1 || iterationMillis < 1) {
+            throw new IllegalArgumentException("need warmup >= 0, iterations >= 1 and time >= 1");
+        }
+        this.warmupIterations = warmupIterations;
+        this.measuredIterations = measuredIterations;
+        this.iterationNanos = iterationMillis * 1_000_000;
+    }
+
+    /**
+     * Registers an operation to run under the given name.
+     *
+     * @param name      the name of the benchmark, unique in this harness
+     * @param operation the operation to time
+     * @throws IllegalArgumentException if a benchmark with that name is already registered
+     */
+    void add(String name, Operation operation) {
+        if (benchmarks.putIfAbsent(name, operation) != null) {
+            throw new IllegalArgumentException("Duplicate benchmark " + name);
+        }
+    }
+
+    /**
+     * Runs every benchmark whose name contains a match of filter and prints a row for it
+     * to out as soon as it is done, after the header.
+     *
+     * @param filter a regular expression selecting the benchmarks to run
+     * @param out    the stream to print the results to
+     * @throws Exception if an operation throws
+     */
+    void run(Pattern filter, PrintStream out) throws Exception {
+        out.println(HEADER);
+        for (Map.Entry<String, Operation> benchmark : benchmarks.entrySet()) {
+            if (filter.matcher(benchmark.getKey()).find()) {
+                out.println(measure(benchmark.getKey(), benchmark.getValue()));
+                out.flush();
+            }
+        }
+    }
+
+    // the result row of one benchmark
+    private String measure(String name, Operation operation) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            iteration(operation);
+        }
+        long totalOps = 0;
+        long allocated = 0;
+        double[] nanosPerOp = new double[measuredIterations];
+        long gcBefore = gcCount();
+        for (int i = 0; i < measuredIterations; i++) {
+            long allocatedBefore = allocatedBytes();
+            long[] opsAndNanos = iteration(operation);
+            allocated += allocatedBytes() - allocatedBefore;
+            totalOps += opsAndNanos[0];
+            nanosPerOp[i] = (double) opsAndNanos[1] / opsAndNanos[0];
+        }
+        long gcs = gcCount() - gcBefore;
+        double mean = 0;
+        for (double value : nanosPerOp) {
+            mean += value / nanosPerOp.length;
+        }
+        double error = Double.NaN;
+        if (nanosPerOp.length > 1) {
+            double variance = 0;
+            for (double value : nanosPerOp) {
+                variance += (value - mean) * (value - mean) / (nanosPerOp.length - 1);
+            }
+            int freedom = Math.min(nanosPerOp.length - 1, T_999.length);
+            // beyond 30 degrees of freedom the last quantile is close enough
+            error = T_999[freedom - 1] * Math.sqrt(variance / nanosPerOp.length);
+        }
+        double allocatedPerOp = allocated < 0 ? Double.NaN : (double) allocated / totalOps;
+        return String.format(Locale.ROOT, "%s\t%d\t%d\t%.1f\t%.1f\t%.1f\t%d", name,
+                measuredIterations, totalOps, mean, error, allocatedPerOp, gcs);
+    }
+
+    // calls operation for one iteration, returns the number of calls and the time they took
+    private long[] iteration(Operation operation) throws Exception {
+        int folded = 0;
+        long ops = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            Object result = operation.run();
+            folded += result == null ? 0 : System.identityHashCode(result);
+            ops++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < iterationNanos);
+        sink += folded;
+        return new long[] {ops, elapsed};
+    }
+
+    // bytes allocated by this thread so far, or a negative number if the JVM cannot tell
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * Prints, for every benchmark in both result files, the time and allocation per
+     * operation of each and their ratio, new over old. A time ratio whose difference from
+     * 1 is within the combined errors is marked as noise.
+     *
+     * @param oldResults the result file to compare against
+     * @param newResults the result file to compare
+     * @param out        the stream to print the comparison to
+     * @throws IOException if either file cannot be read
+     * @throws IllegalArgumentException if either file is not a result file
+     */
+    static void compare(Path oldResults, Path newResults, PrintStream out) throws IOException {
+        Map<String, String[]> before = readResults(oldResults);
+        Map<String, String[]> after = readResults(newResults);
+        out.println("benchmark\told_ns\tnew_ns\ttime_ratio\told_alloc\tnew_alloc\tverdict");
+        for (Map.Entry<String, String[]> row : after.entrySet()) {
+            String[] old = before.get(row.getKey());
+            if (old == null) {
+                continue;
+            }
+            String[] now = row.getValue();
+            double oldNs = Double.parseDouble(old[3]);
+            double newNs = Double.parseDouble(now[3]);
+            double errors = Double.parseDouble(old[4]) + Double.parseDouble(now[4]);
+            String verdict = Math.abs(newNs - oldNs) <= errors ? "noise"
+                    : newNs < oldNs ? "faster" : "slower";
+            out.printf(Locale.ROOT, "%s\t%s\t%s\t%.3f\t%s\t%s\t%s%n", row.getKey(), old[3],
+                    now[3], newNs / oldNs, old[5], now[5], verdict);
+        }
+    }
+
+    // the rows of a result file by benchmark name
+    private static Map<String, String[]> readResults(Path file) throws IOException {
+        List<String> lines = new ArrayList<>(Files.readAllLines(file));
+        if (lines.isEmpty() || !lines.get(0).equals(HEADER)) {
+            throw new IllegalArgumentException(file + " is not a benchmark result file");
+        }
+        Map<String, String[]> rows = new LinkedHashMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            String[] fields = line.split("\t");
+            if (fields.length != 7) {
+                throw new IllegalArgumentException("Bad result row in " + file + ": " + line);
+            }
+            rows.put(fields[0], fields);
+        }
+        return rows;
+    }
+}
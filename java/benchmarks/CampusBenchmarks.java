@@ -0,0 +1,185 @@
+package benchmarks;
+
+import com.google.gson.Gson;
+import graph.Edge;
+import graph.Graph;
+import pathfinder.CampusMapModel;
+import pathfinder.ModelConnector;
+import pathfinder.datastructures.Path;
+import pathfinder.datastructures.PersistentPath;
+import pathfinder.datastructures.Point;
+import pathfinder.parser.CampusPathsParser;
+import pathfinder.routing.RoutingAlgorithm;
+
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * CampusBenchmarks times the hot spots of the Pathfinder model with a
+ * {@link BenchmarkHarness}: parsing both data files, building a CampusMapModel, routing
+ * single pairs of buildings with every algorithm and through the building route table,
+ * walking the edges of every node of the campus Graph, growing a Path and a PersistentPath one segment at a time, and serializing a Path with
+ * Gson. Routing benchmarks cycle through the same seeded pairs of buildings in every run,
+ * and the paths are those of the longest of these routes, so results of two commits
+ * measure the same work.
+ * <p>
+ * Usage: {@code CampusBenchmarks [-f REGEX] [-w WARMUP] [-i ITERATIONS] [-t MILLIS]
+ * [-o FILE]} runs the benchmarks whose names match REGEX (all by default) with WARMUP
+ * (5) unmeasured and ITERATIONS (10) measured iterations of MILLIS (1000) each, and
+ * writes the results to FILE, or prints them. {@code CampusBenchmarks compare OLD NEW}
+ * compares two result files.
+ * <p>
+ * Everything runs in this JVM, which is best started with the same heap and collector
+ * for every run that will be compared.
+ */
+public class CampusBenchmarks {
+
+    // This class does not represent an ADT.
+
+    // seed and number of the building pairs routed between
+    private static final long PAIR_SEED = 331;
+    private static final int PAIR_COUNT = 64;
+
+    /**
+     * Runs the benchmarks or compares two result files.
+     *
+     * @param args the options, see the class comment
+     * @throws Exception if a file cannot be read or written, or a benchmark fails
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("compare")) {
+            if (args.length != 3) {
+                throw new IllegalArgumentException("usage: compare OLD NEW");
+            }
+            BenchmarkHarness.compare(Paths.get(args[1]), Paths.get(args[2]), System.out);
+            return;
+        }
+        Pattern filter = Pattern.compile("");
+        int warmup = 5;
+        int iterations = 10;
+        long millis = 1000;
+        String output = null;
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("missing value for " + args[i]);
+            }
+            switch (args[i]) {
+                case "-f": filter = Pattern.compile(args[i + 1]); break;
+                case "-w": warmup = Integer.parseInt(args[i + 1]); break;
+                case "-i": iterations = Integer.parseInt(args[i + 1]); break;
+                case "-t": millis = Long.parseLong(args[i + 1]); break;
+                case "-o": output = args[i + 1]; break;
+                default: throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        BenchmarkHarness harness = new BenchmarkHarness(warmup, iterations, millis);
+        register(harness);
+        if (output == null) {
+            harness.run(filter, System.out);
+        } else {
+            try (PrintStream out = new PrintStream(output, "UTF-8")) {
+                harness.run(filter, out);
+            }
+        }
+    }
+
+    private static void register(BenchmarkHarness harness) {
+        harness.add("parse.buildings", CampusPathsParser::parseCampusBuildings);
+        harness.add("parse.paths", () -> {
+            double[] total = new double[1];
+            CampusPathsParser.parseCampusPaths((x1, y1, x2, y2, distance) -> total[0] += distance);
+            return total;
+        });
+        harness.add("model.build", CampusMapModel::new);
+
+        ModelConnector model = new ModelConnector();
+        String[][] pairs = buildingPairs(model);
+        int[] next = new int[1];
+        harness.add("route.table", () -> {
+            String[] pair = pairs[next[0]++ % pairs.length];
+            return model.findShortestPath(pair[0], pair[1]);
+        });
+        for (RoutingAlgorithm algorithm : RoutingAlgorithm.values()) {
+            harness.add("route." + algorithm.name().toLowerCase(), () -> {
+                String[] pair = pairs[next[0]++ % pairs.length];
+                return model.findRoute(pair[0], pair[1], algorithm);
+            });
+        }
+
+        Graph<Point, Double> campusGraph = new CampusMapModel().getCampusGraph();
+        List<Point> graphNodes = new ArrayList<>(campusGraph.getNodes());
+        harness.add("graph.listChildren", () -> {
+            double[] total = new double[1];
+            for (Point node : graphNodes) {
+                for (Edge<Double, Point> edge : campusGraph.listChildren(node)) {
+                    total[0] += edge.getLabel();
+                }
+            }
+            return total;
+        });
+        harness.add("graph.forEachChild", () -> {
+            double[] total = new double[1];
+            for (Point node : graphNodes) {
+                campusGraph.forEachChild(node, (dest, label) -> total[0] += label);
+            }
+            return total;
+        });
+
+        Path<Point> longest = null;
+        for (String[] pair : pairs) {
+            Path<Point> path = model.findShortestPath(pair[0], pair[1]);
+            if (path != null && (longest == null || size(path) > size(longest))) {
+                longest = path;
+            }
+        }
+        List<Path<Point>.Segment> segments = new ArrayList<>();
+        if (longest != null) {
+            longest.forEach(segments::add);
+        }
+        Point start = longest == null ? new Point(0, 0) : longest.getStart();
+        harness.add("path.extend", () -> {
+            Path<Point> path = new Path<>(start);
+            for (Path<Point>.Segment segment : segments) {
+                path = path.extend(segment.getEnd(), segment.getCost());
+            }
+            return path;
+        });
+        harness.add("path.persistentExtend", () -> {
+            PersistentPath<Point> path = new PersistentPath<>(start);
+            for (Path<Point>.Segment segment : segments) {
+                path = path.extend(segment.getEnd(), segment.getCost());
+            }
+            return path;
+        });
+        Gson gson = new Gson();
+        Path<Point> serialized = longest;
+        harness.add("gson.path", () -> gson.toJson(serialized));
+    }
+
+    // the same PAIR_COUNT pairs of distinct buildings, picked at random, in every run
+    private static String[][] buildingPairs(ModelConnector model) {
+        List<String> names = new ArrayList<>(model.buildingNames().keySet());
+        Collections.sort(names);
+        Random random = new Random(PAIR_SEED);
+        String[][] pairs = new String[PAIR_COUNT][];
+        for (int i = 0; i < pairs.length; i++) {
+            int start = random.nextInt(names.size());
+            int end = random.nextInt(names.size() - 1);
+            pairs[i] = new String[] {names.get(start), names.get(end < start ? end : end + 1)};
+        }
+        return pairs;
+    }
+
+    private static int size(Path<Point> path) {
+        int size = 0;
+        for (Path<Point>.Segment ignored : path) {
+            size++;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,425 @@
+package benchmarks;
+
+import pathfinder.CampusGraphBuilder;
+import pathfinder.CampusSnapshot;
+import pathfinder.datastructures.PointInterner;
+import pathfinder.parser.CampusBuilding;
+import pathfinder.parser.CampusPathsParser;
+import pathfinder.routing.CsrGraph;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * CampusDataGenerator writes synthetic maps in the formats of campus_buildings.tsv and
+ * campus_paths.tsv, so routing, memory and startup can be measured on maps far larger
+ * than the campus. It makes three kinds of maps, each with about the requested number of
+ * path rows:
+ * <ul>
+ *     <li>grid: a lattice of jittered points, each joined to its four neighbours;</li>
+ *     <li>geometric: random points, each joined to every point within a radius that
+ *     gives six neighbours on average, so the map may fall apart into pieces;</li>
+ *     <li>stitched: copies of the campus laid out side by side, each joined to the copies
+ *     to its east and south by a path between their outermost points.</li>
+ * </ul>
+ * Every path is written in both directions, as in campus_paths.tsv. Buildings are put on
+ * random points of the map; for stitched maps they are the campus buildings, named with
+ * the number of their copy after it (copy 0 keeps the campus names). The same arguments
+ * always write the same files.
+ * <p>
+ * Usage: {@code CampusDataGenerator grid|geometric|stitched ROWS DIR [-b BUILDINGS]
+ * [-r SEED] [-s SNAPSHOT]} writes the two files into DIR, to be read with
+ * {@code -Dpathfinder.dataDir=DIR}, with BUILDINGS (64) buildings, and, with -s, the
+ * binary snapshot of the map to SNAPSHOT, to be read with {@code -Dpathfinder.snapshot}.
+ * Stitched maps copy the campus files of the current data directory.
+ */
+public class CampusDataGenerator {
+
+    // This class does not represent an ADT.
+
+    // distance between neighbouring points of grid and geometric maps, about that of the campus
+    private static final double SPACING = 20;
+
+    // average number of neighbours of a point of a geometric map
+    private static final double GEOMETRIC_DEGREE = 6;
+
+    // coordinates are rounded to this many parts of a unit, like those of the campus
+    private static final double COORDINATE_SCALE = 10_000;
+
+    private final Random random;
+    private final PointInterner nodes = new PointInterner();
+    private final List<CampusBuilding> buildings = new ArrayList<>();
+
+    // the edges added so far: edge e goes from sources[e] to targets[e]
+    private int[] sources = new int[1024];
+    private int[] targets = new int[1024];
+    private double[] weights = new double[1024];
+    private int edgeCount;
+
+    private CampusDataGenerator(long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * Writes the files of one synthetic map.
+     *
+     * @param args the kind of map, the number of path rows, the output directory and
+     *             the options, see the class comment
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            throw new IllegalArgumentException(
+                    "usage: grid|geometric|stitched ROWS DIR [-b BUILDINGS] [-r SEED] [-s SNAPSHOT]");
+        }
+        long rows = Long.parseLong(args[1]);
+        Path dir = Paths.get(args[2]);
+        int buildingCount = 64;
+        long seed = 331;
+        Path snapshot = null;
+        for (int i = 3; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("missing value for " + args[i]);
+            }
+            switch (args[i]) {
+                case "-b": buildingCount = Integer.parseInt(args[i + 1]); break;
+                case "-r": seed = Long.parseLong(args[i + 1]); break;
+                case "-s": snapshot = Paths.get(args[i + 1]); break;
+                default: throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        if (rows < 1 || rows > Integer.MAX_VALUE || buildingCount < 0) {
+            throw new IllegalArgumentException("need 1 <= ROWS <= 2^31 - 1 and BUILDINGS >= 0");
+        }
+
+        CampusDataGenerator generator = new CampusDataGenerator(seed);
+        switch (args[0]) {
+            case "grid": generator.grid(rows, buildingCount); break;
+            case "geometric": generator.geometric(rows, buildingCount); break;
+            case "stitched": generator.stitched(rows, buildingCount); break;
+            default: throw new IllegalArgumentException("unknown kind of map " + args[0]);
+        }
+        CsrGraph graph = generator.toCsrGraph();
+        Files.createDirectories(dir);
+        Path buildingsFile = dir.resolve(CampusPathsParser.campusBuildingsFile().getFileName());
+        Path pathsFile = dir.resolve(CampusPathsParser.campusPathsFile().getFileName());
+        writeBuildings(buildingsFile, generator.buildings);
+        writePaths(pathsFile, graph);
+        if (snapshot != null) {
+            new CampusSnapshot(CampusSnapshot.sourceChecksum(buildingsFile, pathsFile),
+                    generator.buildings, graph).save(snapshot);
+        }
+        System.out.println("kind\tnodes\trows\tbuildings\tpaths_bytes");
+        System.out.printf(Locale.ROOT, "%s\t%d\t%d\t%d\t%d%n", args[0], graph.nodeCount(),
+                graph.edgeCount(), generator.buildings.size(), Files.size(pathsFile));
+    }
+
+    // a lattice of about rows / 4 jittered points
+    private void grid(long rows, int buildingCount) {
+        // a side x side lattice has 4 * side * (side - 1) rows
+        int side = (int) Math.max(2, Math.round(0.5 + Math.sqrt(rows / 4.0)));
+        int[] ids = new int[side * side];
+        for (int i = 0; i < side; i++) {
+            for (int j = 0; j < side; j++) {
+                ids[i * side + j] = newNode(i * SPACING + (random.nextDouble() - 0.5) * SPACING / 2,
+                        j * SPACING + (random.nextDouble() - 0.5) * SPACING / 2);
+            }
+        }
+        for (int i = 0; i < side; i++) {
+            for (int j = 0; j < side; j++) {
+                if (i + 1 < side) {
+                    addPath(ids[i * side + j], ids[(i + 1) * side + j]);
+                }
+                if (j + 1 < side) {
+                    addPath(ids[i * side + j], ids[i * side + j + 1]);
+                }
+            }
+        }
+        addBuildingsOnNodes(buildingCount);
+    }
+
+    // about rows / GEOMETRIC_DEGREE random points joined to all points within a radius
+    private void geometric(long rows, int buildingCount) {
+        int n = (int) Math.max(2, rows / GEOMETRIC_DEGREE);
+        double side = Math.sqrt(n) * SPACING;
+        // n * pi * radius^2 / side^2 == GEOMETRIC_DEGREE
+        double radius = SPACING * Math.sqrt(GEOMETRIC_DEGREE / Math.PI);
+        for (int i = 0; i < n; i++) {
+            newNode(random.nextDouble() * side, random.nextDouble() * side);
+        }
+        // bucket the points into cells of radius x radius, counting sort by cell
+        int cells = (int) Math.ceil(side / radius);
+        int[] cellOf = new int[n];
+        int[] cellStart = new int[cells * cells + 1];
+        for (int i = 0; i < n; i++) {
+            cellOf[i] = cell(nodes.x(i), radius, cells) * cells + cell(nodes.y(i), radius, cells);
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < cells * cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] byCell = new int[n];
+        int[] next = Arrays.copyOf(cellStart, cells * cells);
+        for (int i = 0; i < n; i++) {
+            byCell[next[cellOf[i]]++] = i;
+        }
+        for (int i = 0; i < n; i++) {
+            int cx = cellOf[i] / cells;
+            int cy = cellOf[i] % cells;
+            for (int x = Math.max(0, cx - 1); x <= Math.min(cells - 1, cx + 1); x++) {
+                for (int y = Math.max(0, cy - 1); y <= Math.min(cells - 1, cy + 1); y++) {
+                    int c = x * cells + y;
+                    for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                        int j = byCell[k];
+                        if (j > i && Math.hypot(nodes.x(j) - nodes.x(i),
+                                nodes.y(j) - nodes.y(i)) <= radius) {
+                            addPath(i, j);
+                        }
+                    }
+                }
+            }
+        }
+        addBuildingsOnNodes(buildingCount);
+    }
+
+    private static int cell(double coordinate, double size, int cells) {
+        return Math.min(cells - 1, (int) (coordinate / size));
+    }
+
+    // enough copies of the campus for about rows rows, laid out in a square
+    private void stitched(long rows, int buildingCount) {
+        CampusGraphBuilder builder = new CampusGraphBuilder();
+        CampusPathsParser.parseCampusPaths(builder);
+        CsrGraph campus = CsrGraph.fromGraph(builder.getGraph());
+        List<CampusBuilding> campusBuildings = CampusPathsParser.parseCampusBuildings();
+        int copies = (int) Math.max(1, Math.round((double) rows / campus.edgeCount()));
+        int columns = (int) Math.ceil(Math.sqrt(copies));
+
+        // the campus points that the paths between copies start and end at
+        int west = 0;
+        int east = 0;
+        int north = 0;
+        int south = 0;
+        for (int u = 1; u < campus.nodeCount(); u++) {
+            west = campus.x(u) < campus.x(west) ? u : west;
+            east = campus.x(u) > campus.x(east) ? u : east;
+            north = campus.y(u) < campus.y(north) ? u : north;
+            south = campus.y(u) > campus.y(south) ? u : south;
+        }
+        double width = campus.x(east) - campus.x(west) + 10 * SPACING;
+        double height = campus.y(south) - campus.y(north) + 10 * SPACING;
+
+        int[] firstId = new int[copies];
+        for (int copy = 0; copy < copies; copy++) {
+            double dx = copy % columns * width;
+            double dy = copy / columns * height;
+            firstId[copy] = nodes.size();
+            for (int u = 0; u < campus.nodeCount(); u++) {
+                // not rounded, so the buildings stay on their points; copies are far
+                // apart, so no two of their points coincide
+                nodes.intern(campus.x(u) + dx, campus.y(u) + dy);
+            }
+            for (int e = 0; e < campus.edgeCount(); e++) {
+                addEdge(firstId[copy] + campus.source(e), firstId[copy] + campus.target(e),
+                        campus.weight(e));
+            }
+        }
+        for (int copy = 0; copy < copies; copy++) {
+            if (copy % columns + 1 < columns && copy + 1 < copies) {
+                addPath(firstId[copy] + east, firstId[copy + 1] + west);
+            }
+            if (copy + columns < copies) {
+                addPath(firstId[copy] + south, firstId[copy + columns] + north);
+            }
+        }
+
+        // the campus buildings of copy 0 first, then buildings of random copies
+        int count = (int) Math.min(buildingCount, (long) copies * campusBuildings.size());
+        Set<String> names = new HashSet<>();
+        for (int i = 0; buildings.size() < count; i++) {
+            int copy = i < campusBuildings.size() ? 0 : random.nextInt(copies);
+            CampusBuilding building = campusBuildings.get(i < campusBuildings.size()
+                    ? i : random.nextInt(campusBuildings.size()));
+            String suffix = copy == 0 ? "" : " #" + copy;
+            if (names.add(building.getShortName() + suffix)) {
+                buildings.add(new CampusBuilding(building.getShortName() + suffix,
+                        building.getLongName() + suffix,
+                        building.getX() + copy % columns * width,
+                        building.getY() + copy / columns * height));
+            }
+        }
+    }
+
+    // buildingCount buildings on distinct random points of the map that have a path
+    private void addBuildingsOnNodes(int buildingCount) {
+        boolean[] connected = connected();
+        int candidates = 0;
+        for (boolean isConnected : connected) {
+            candidates += isConnected ? 1 : 0;
+        }
+        int count = Math.min(buildingCount, candidates);
+        Set<Integer> used = new HashSet<>();
+        while (buildings.size() < count) {
+            int node = random.nextInt(nodes.size());
+            if (connected[node] && used.add(node)) {
+                int number = buildings.size() + 1;
+                buildings.add(new CampusBuilding(String.format(Locale.ROOT, "B%04d", number),
+                        "Synthetic Building " + number, nodes.x(node), nodes.y(node)));
+            }
+        }
+    }
+
+    // which points have a path; the others are not in the written files
+    private boolean[] connected() {
+        boolean[] connected = new boolean[nodes.size()];
+        for (int e = 0; e < edgeCount; e++) {
+            connected[sources[e]] = true;
+            connected[targets[e]] = true;
+        }
+        return connected;
+    }
+
+    // a new point at (x, y) rounded like the campus coordinates, moved a little if
+    // another point is already there
+    private int newNode(double x, double y) {
+        while (true) {
+            double roundedX = Math.round(x * COORDINATE_SCALE) / COORDINATE_SCALE;
+            double roundedY = Math.round(y * COORDINATE_SCALE) / COORDINATE_SCALE;
+            int known = nodes.size();
+            int id = nodes.intern(roundedX, roundedY);
+            if (id == known) {
+                return id;
+            }
+            x += 1 / COORDINATE_SCALE;
+        }
+    }
+
+    // a path both ways between two points, as long as the straight line between them
+    private void addPath(int u, int v) {
+        double distance = Math.hypot(nodes.x(v) - nodes.x(u), nodes.y(v) - nodes.y(u));
+        addEdge(u, v, distance);
+        addEdge(v, u, distance);
+    }
+
+    private void addEdge(int source, int target, double weight) {
+        if (edgeCount == sources.length) {
+            sources = Arrays.copyOf(sources, 2 * edgeCount);
+            targets = Arrays.copyOf(targets, 2 * edgeCount);
+            weights = Arrays.copyOf(weights, 2 * edgeCount);
+        }
+        sources[edgeCount] = source;
+        targets[edgeCount] = target;
+        weights[edgeCount] = weight;
+        edgeCount++;
+    }
+
+    // the map in the node and edge order that parsing the written files would give it,
+    // which leaves out the points without a path
+    private CsrGraph toCsrGraph() {
+        boolean[] connected = connected();
+        int[] order = IntStream.range(0, nodes.size()).filter(id -> connected[id]).boxed()
+                .sorted(Comparator.<Integer>comparingDouble(nodes::x).thenComparingDouble(nodes::y))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        int n = order.length;
+        int[] rank = new int[nodes.size()];
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            rank[order[i]] = i;
+            xs[i] = nodes.x(order[i]);
+            ys[i] = nodes.y(order[i]);
+        }
+        // counting sort of the edges by source
+        int[] offsets = new int[n + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            offsets[rank[sources[e]] + 1]++;
+        }
+        for (int u = 0; u < n; u++) {
+            offsets[u + 1] += offsets[u];
+        }
+        int[] rowTargets = new int[edgeCount];
+        double[] rowWeights = new double[edgeCount];
+        int[] next = Arrays.copyOf(offsets, n);
+        for (int e = 0; e < edgeCount; e++) {
+            int slot = next[rank[sources[e]]]++;
+            rowTargets[slot] = rank[targets[e]];
+            rowWeights[slot] = weights[e];
+        }
+        // sort every row by target and weight and drop repeated edges, as the graph does
+        int kept = 0;
+        int rowStart = 0;
+        for (int u = 0; u < n; u++) {
+            int rowEnd = offsets[u + 1];
+            sortRow(rowTargets, rowWeights, rowStart, rowEnd);
+            offsets[u] = kept;
+            for (int e = rowStart; e < rowEnd; e++) {
+                if (e == rowStart || rowTargets[e] != rowTargets[e - 1]
+                        || rowWeights[e] != rowWeights[e - 1]) {
+                    rowTargets[kept] = rowTargets[e];
+                    rowWeights[kept] = rowWeights[e];
+                    kept++;
+                }
+            }
+            rowStart = rowEnd;
+        }
+        offsets[n] = kept;
+        return CsrGraph.fromArrays(xs, ys, offsets, Arrays.copyOf(rowTargets, kept),
+                Arrays.copyOf(rowWeights, kept));
+    }
+
+    // insertion sort of one row, rows are short
+    private static void sortRow(int[] targets, double[] weights, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            int target = targets[i];
+            double weight = weights[i];
+            int j = i - 1;
+            while (j >= from && (targets[j] > target
+                    || targets[j] == target && weights[j] > weight)) {
+                targets[j + 1] = targets[j];
+                weights[j + 1] = weights[j];
+                j--;
+            }
+            targets[j + 1] = target;
+            weights[j + 1] = weight;
+        }
+    }
+
+    private static void writeBuildings(Path file, List<CampusBuilding> buildings)
+            throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            out.write("short_name\tlongName\tx\ty\n");
+            for (CampusBuilding building : buildings) {
+                out.write(building.getShortName() + "\t" + building.getLongName() + "\t"
+                        + building.getX() + "\t" + building.getY() + "\n");
+            }
+        }
+    }
+
+    // one row per edge; Double.toString reads back as the same double
+    private static void writePaths(Path file, CsrGraph graph) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            out.write("start-x\tstart-y\tend-x\tend-y\tdistance\n");
+            for (int u = 0; u < graph.nodeCount(); u++) {
+                String start = graph.x(u) + "\t" + graph.y(u) + "\t";
+                for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                    int v = graph.target(e);
+                    out.write(start + graph.x(v) + "\t" + graph.y(v) + "\t" + graph.weight(e)
+                            + "\n");
+                }
+            }
+        }
+    }
+}
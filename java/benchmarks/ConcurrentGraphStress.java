@@ -0,0 +1,243 @@
+package benchmarks;
+
+import graph.ConcurrentGraph;
+import graph.Edge;
+import graph.IntGraph;
+import graph.IntGraphAdapter;
+import pathfinder.CampusGraphBuilder;
+import pathfinder.datastructures.Point;
+import pathfinder.parser.CampusPathsParser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * ConcurrentGraphStress loads the campus paths into a {@link ConcurrentGraph} and runs
+ * shortest route queries on it from several reader threads while an admin thread keeps
+ * changing it: it adds and removes temporary nodes and long detours, and closes and
+ * reopens campus paths. Detours and temporary nodes are too long to shorten any route,
+ * and closures can only lengthen routes, so every query must find a distance no shorter
+ * than the one found before the run, and once the admin thread stops every query must
+ * find that distance exactly. At the end the graph must hold the same edges as at the
+ * start, with every in-degree matching the edges.
+ * <p>
+ * It prints the number of queries and changes made, the slowest query seen with and
+ * without the admin thread running, and any violation, and exits with status 1 if there
+ * was one. Usage: {@code ConcurrentGraphStress [-t READERS] [-s SECONDS] [-r SEED]};
+ * the defaults are 4 readers for 10 seconds.
+ */
+public class ConcurrentGraphStress {
+
+    // This class does not represent an ADT.
+
+    // longer than any route on the campus, so no detour is ever a shortcut
+    private static final double DETOUR_WEIGHT = 1e9;
+    private static final int PAIR_COUNT = 32;
+
+    /**
+     * Runs the stress test.
+     *
+     * @param args the options, see the class comment
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int readers = 4;
+        long seconds = 10;
+        long seed = 331;
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("missing value for " + args[i]);
+            }
+            switch (args[i]) {
+                case "-t": readers = Integer.parseInt(args[i + 1]); break;
+                case "-s": seconds = Long.parseLong(args[i + 1]); break;
+                case "-r": seed = Long.parseLong(args[i + 1]); break;
+                default: throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+
+        ConcurrentGraph<Point, Double> graph = new ConcurrentGraph<>();
+        List<Point[]> paths = new ArrayList<>();
+        List<Double> lengths = new ArrayList<>();
+        CampusGraphBuilder builder = new CampusGraphBuilder();
+        CampusPathsParser.parseCampusPaths(builder);
+        IntGraphAdapter<Point> campus = builder.getGraph();
+        IntGraph edges = campus.getIntGraph();
+        for (int id = 0; id < edges.idBound(); id++) {
+            if (edges.containsNode(id)) {
+                graph.addNode(campus.node(id));
+            }
+        }
+        for (int id = 0; id < edges.idBound(); id++) {
+            for (int i = 0; edges.containsNode(id) && i < edges.outDegree(id); i++) {
+                Point src = campus.node(id);
+                Point dest = campus.node(edges.target(id, i));
+                graph.addEdge(src, dest, edges.weight(id, i));
+                paths.add(new Point[] {src, dest});
+                lengths.add(edges.weight(id, i));
+            }
+        }
+        long edgeCount = paths.size();
+
+        Random random = new Random(seed);
+        long changesSeed = seed + 1;
+        List<Point> nodes = new ArrayList<>(graph.getNodes());
+        nodes.sort((a, b) -> a.getX() != b.getX() ? Double.compare(a.getX(), b.getX())
+                : Double.compare(a.getY(), b.getY()));
+        Point[][] pairs = new Point[PAIR_COUNT][];
+        double[] expected = new double[PAIR_COUNT];
+        for (int i = 0; i < PAIR_COUNT; i++) {
+            pairs[i] = new Point[] {nodes.get(random.nextInt(nodes.size())),
+                nodes.get(random.nextInt(nodes.size()))};
+            expected[i] = distance(graph, pairs[i][0], pairs[i][1]);
+        }
+
+        AtomicReference<String> violation = new AtomicReference<>();
+        AtomicLong queries = new AtomicLong();
+        AtomicLong slowestWhileWriting = new AtomicLong();
+        AtomicLong slowestAfter = new AtomicLong();
+        AtomicLong changes = new AtomicLong();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long settleDeadline = deadline + Math.max(1, seconds / 4) * 1_000_000_000L;
+        // readers compare exactly once the admin thread has stopped and set this
+        AtomicLong writerStopped = new AtomicLong(Long.MAX_VALUE);
+
+        Thread admin = new Thread(() -> {
+            Random changesRandom = new Random(changesSeed);
+            int temporary = 0;
+            while (System.nanoTime() < deadline && violation.get() == null) {
+                Point a = nodes.get(changesRandom.nextInt(nodes.size()));
+                Point b = nodes.get(changesRandom.nextInt(nodes.size()));
+                switch (changesRandom.nextInt(3)) {
+                    case 0:
+                        // a temporary node hanging off two campus points by long detours
+                        Point extra = new Point(-1 - temporary, -1 - temporary++);
+                        graph.addNode(extra);
+                        graph.addEdge(a, extra, DETOUR_WEIGHT);
+                        graph.addEdge(extra, b, DETOUR_WEIGHT);
+                        Thread.yield();
+                        graph.removeEdge(a, extra, DETOUR_WEIGHT);
+                        graph.removeEdge(extra, b, DETOUR_WEIGHT);
+                        if (!graph.removeNode(extra)) {
+                            violation.compareAndSet(null, "could not remove " + extra);
+                        }
+                        break;
+                    case 1:
+                        graph.addEdge(a, b, DETOUR_WEIGHT);
+                        Thread.yield();
+                        graph.removeEdge(a, b, DETOUR_WEIGHT);
+                        break;
+                    default:
+                        int path = changesRandom.nextInt(paths.size());
+                        Point[] ends = paths.get(path);
+                        graph.removeEdge(ends[0], ends[1], lengths.get(path));
+                        Thread.yield();
+                        graph.addEdge(ends[0], ends[1], lengths.get(path));
+                        break;
+                }
+                changes.incrementAndGet();
+            }
+        }, "admin");
+
+        List<Thread> threads = new ArrayList<>();
+        for (int r = 0; r < readers; r++) {
+            int first = r;
+            threads.add(new Thread(() -> {
+                int next = first;
+                while (System.nanoTime() < settleDeadline && violation.get() == null) {
+                    int pair = next++ % PAIR_COUNT;
+                    boolean settled = System.nanoTime() > writerStopped.get();
+                    long start = System.nanoTime();
+                    double found;
+                    try {
+                        found = distance(graph, pairs[pair][0], pairs[pair][1]);
+                    } catch (RuntimeException e) {
+                        violation.compareAndSet(null, "query failed: " + e);
+                        return;
+                    }
+                    long elapsed = System.nanoTime() - start;
+                    (settled ? slowestAfter : slowestWhileWriting).accumulateAndGet(elapsed, Math::max);
+                    queries.incrementAndGet();
+                    // closures reorder edges, so equal routes may be summed differently
+                    double tolerance = 1e-9 * expected[pair];
+                    if (found < expected[pair] - tolerance
+                            || (settled && found > expected[pair] + tolerance)) {
+                        violation.compareAndSet(null, "pair " + pair + " found " + found
+                                + ", expected " + expected[pair]);
+                    }
+                }
+            }, "reader-" + r));
+        }
+        admin.start();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        admin.join();
+        writerStopped.set(System.nanoTime());
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long finalEdges = 0;
+        Map<Point, Integer> inDegrees = new HashMap<>();
+        for (Point node : graph.getNodes()) {
+            for (Edge<Double, Point> edge : graph.listChildren(node)) {
+                finalEdges++;
+                inDegrees.merge(edge.getDest(), 1, Integer::sum);
+            }
+        }
+        for (Point node : graph.getNodes()) {
+            if (graph.inDegree(node) != inDegrees.getOrDefault(node, 0)) {
+                violation.compareAndSet(null, "in-degree of " + node + " is "
+                        + graph.inDegree(node));
+            }
+        }
+        if (finalEdges != edgeCount || graph.size() != nodes.size()) {
+            violation.compareAndSet(null, "graph ended with " + graph.size() + " nodes and "
+                    + finalEdges + " edges, not " + nodes.size() + " and " + edgeCount);
+        }
+
+        System.out.printf(Locale.ROOT, "readers\t%d%nqueries\t%d%nchanges\t%d%n", readers,
+                queries.get(), changes.get());
+        System.out.printf(Locale.ROOT,
+                "slowest_query_ms_while_writing\t%.3f%nslowest_query_ms_after\t%.3f%n",
+                slowestWhileWriting.get() / 1e6, slowestAfter.get() / 1e6);
+        System.out.println("violation\t" + (violation.get() == null ? "none" : violation.get()));
+        if (violation.get() != null) {
+            System.exit(1);
+        }
+    }
+
+    // the length of the shortest route from start to end, positive infinity if none
+    private static double distance(ConcurrentGraph<Point, Double> graph, Point start,
+                                   Point end) {
+        Map<Point, Double> settled = new HashMap<>();
+        PriorityQueue<Object[]> queue = new PriorityQueue<>(
+                (a, b) -> Double.compare((Double) a[1], (Double) b[1]));
+        queue.add(new Object[] {start, 0.0});
+        while (!queue.isEmpty()) {
+            Object[] entry = queue.remove();
+            Point node = (Point) entry[0];
+            double cost = (Double) entry[1];
+            if (settled.putIfAbsent(node, cost) != null) {
+                continue;
+            }
+            if (node.equals(end)) {
+                return cost;
+            }
+            graph.forEachChild(node, (dest, weight) -> {
+                if (!settled.containsKey(dest)) {
+                    queue.add(new Object[] {dest, cost + weight});
+                }
+            });
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+}
@@ -0,0 +1,138 @@
+package benchmarks;
+
+import graph.Graph;
+import pathfinder.CampusMapModel;
+import pathfinder.datastructures.Point;
+import pathfinder.routing.ContractionHierarchy;
+import pathfinder.routing.ContractionHierarchyEngine;
+import pathfinder.routing.CsrGraph;
+import pathfinder.routing.DijkstraEngine;
+import pathfinder.routing.Route;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * ContractionHierarchyCheck builds contraction hierarchies and checks that routing over
+ * them finds the same route costs as Dijkstra on the graph itself, for every pair of
+ * nodes. It checks a two-way chain of six nodes whose edges all weigh 0, random small
+ * graphs in which many edges weigh 0 and many costs tie, and sampled pairs on the campus
+ * graph.
+ * <p>
+ * It prints the number of graphs and pairs checked and the first mismatch, and exits
+ * with status 1 if there was one. Usage: {@code ContractionHierarchyCheck [-g GRAPHS]
+ * [-r SEED]}; the defaults are 500 random graphs and 50000 campus pairs.
+ */
+public class ContractionHierarchyCheck {
+
+    // This class does not represent an ADT.
+
+    private static final int CAMPUS_PAIRS = 50_000;
+
+    private static int graphsChecked;
+    private static long pairs;
+    private static String mismatch;
+
+    /**
+     * Runs the check.
+     *
+     * @param args the options, see the class comment
+     */
+    public static void main(String[] args) {
+        int graphs = 500;
+        long seed = 551;
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("missing value for " + args[i]);
+            }
+            switch (args[i]) {
+                case "-g": graphs = Integer.parseInt(args[i + 1]); break;
+                case "-r": seed = Long.parseLong(args[i + 1]); break;
+                default: throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+
+        Graph<Point, Double> chain = new Graph<>();
+        for (int i = 0; i < 6; i++) {
+            chain.addNode(new Point(i, 0));
+        }
+        for (int i = 0; i + 1 < 6; i++) {
+            chain.addEdge(new Point(i, 0), new Point(i + 1, 0), 0.0);
+            chain.addEdge(new Point(i + 1, 0), new Point(i, 0), 0.0);
+        }
+        checkAllPairs("zero chain", CsrGraph.fromGraph(chain));
+
+        Random random = new Random(seed);
+        for (int g = 0; g < graphs && mismatch == null; g++) {
+            checkAllPairs("random graph " + g, CsrGraph.fromGraph(randomGraph(random)));
+        }
+
+        if (mismatch == null) {
+            CsrGraph campus = new CampusMapModel().getRoutingGraph();
+            graphsChecked++;
+            ContractionHierarchyEngine hierarchy =
+                    new ContractionHierarchyEngine(ContractionHierarchy.build(campus));
+            DijkstraEngine dijkstra = new DijkstraEngine(campus);
+            for (int i = 0; i < CAMPUS_PAIRS && mismatch == null; i++) {
+                compare("campus", hierarchy, dijkstra, random.nextInt(campus.nodeCount()),
+                        random.nextInt(campus.nodeCount()));
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "graphs\t%d%npairs\t%d%n", graphsChecked, pairs);
+        System.out.println("mismatch\t" + (mismatch == null ? "none" : mismatch));
+        if (mismatch != null) {
+            System.exit(1);
+        }
+    }
+
+    // up to 12 nodes on a small grid, so costs tie often, with a third of the edges
+    // weighing 0 and half of the edges in both directions
+    private static Graph<Point, Double> randomGraph(Random random) {
+        Graph<Point, Double> graph = new Graph<>();
+        int n = 2 + random.nextInt(11);
+        Point[] nodes = new Point[n];
+        for (int i = 0; i < n; i++) {
+            nodes[i] = new Point(i, random.nextInt(3));
+            graph.addNode(nodes[i]);
+        }
+        int edges = random.nextInt(3 * n);
+        for (int e = 0; e < edges; e++) {
+            Point src = nodes[random.nextInt(n)];
+            Point dest = nodes[random.nextInt(n)];
+            double weight = random.nextInt(3) == 0 ? 0.0 : random.nextInt(4);
+            graph.addEdge(src, dest, weight);
+            if (random.nextBoolean()) {
+                graph.addEdge(dest, src, weight);
+            }
+        }
+        return graph;
+    }
+
+    private static void checkAllPairs(String name, CsrGraph graph) {
+        ContractionHierarchyEngine hierarchy =
+                new ContractionHierarchyEngine(ContractionHierarchy.build(graph));
+        DijkstraEngine dijkstra = new DijkstraEngine(graph);
+        graphsChecked++;
+        for (int start = 0; start < graph.nodeCount(); start++) {
+            for (int end = 0; end < graph.nodeCount() && mismatch == null; end++) {
+                compare(name, hierarchy, dijkstra, start, end);
+            }
+        }
+    }
+
+    // records a mismatch if the two engines disagree on the cost from start to end
+    private static void compare(String name, ContractionHierarchyEngine hierarchy,
+                                DijkstraEngine dijkstra, int start, int end) {
+        pairs++;
+        Route found = hierarchy.route(start, end);
+        Route expected = dijkstra.route(start, end);
+        double foundCost = found == null ? Double.POSITIVE_INFINITY : found.getCost();
+        double expectedCost = expected == null ? Double.POSITIVE_INFINITY : expected.getCost();
+        if (Math.abs(foundCost - expectedCost) > 1e-9 * Math.max(1.0, expectedCost)
+                && foundCost != expectedCost) {
+            mismatch = name + ": " + start + " -> " + end + " costs " + foundCost
+                    + ", expected " + expectedCost;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package benchmarks;
+
+import graph.Graph;
+import graph.IntGraph;
+import pathfinder.datastructures.Point;
+import pathfinder.datastructures.PointInterner;
+import pathfinder.parser.CampusPathsParser;
+
+import java.lang.ref.Reference;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * GraphFootprintReport measures the heap retained by the campus graph when it is stored
+ * as a {@code Graph<Point, Double>} and as an {@link IntGraph}, as it is built while
+ * parsing and after {@link IntGraph#trimToSize()}. The points and the rows are read
+ * first and kept for the whole run, so each figure counts only the structure of the
+ * graph itself, which is then divided by the number of edges.
+ * <p>
+ * Usage: {@code GraphFootprintReport [FILE]}; defaults to the campus paths file. Run with
+ * {@code -XX:+UseSerialGC} for the steadiest numbers; small files are dominated by noise,
+ * so a generated file of a million rows or more gives the clearest ratio.
+ */
+public class GraphFootprintReport {
+
+    // This class does not represent an ADT.
+
+    /**
+     * Prints the report.
+     *
+     * @param args the path file to load
+     */
+    public static void main(String[] args) {
+        Path file = args.length > 0 ? Paths.get(args[0]) : CampusPathsParser.campusPathsFile();
+        PointInterner points = new PointInterner();
+        int[][] rows = {new int[1024], new int[1024]};
+        double[][] distances = {new double[1024]};
+        int[] count = new int[1];
+        CampusPathsParser.parseCampusPaths(file, (x1, y1, x2, y2, distance) -> {
+            if (count[0] == rows[0].length) {
+                rows[0] = Arrays.copyOf(rows[0], 2 * count[0]);
+                rows[1] = Arrays.copyOf(rows[1], 2 * count[0]);
+                distances[0] = Arrays.copyOf(distances[0], 2 * count[0]);
+            }
+            rows[0][count[0]] = points.intern(x1, y1);
+            rows[1][count[0]] = points.intern(x2, y2);
+            distances[0][count[0]++] = distance;
+        });
+        int[] sources = rows[0];
+        int[] targets = rows[1];
+        double[] weights = distances[0];
+        int edges = count[0];
+
+        System.out.println("graph\tnodes\tedges\tbytes\tbytes_per_edge");
+        // each graph once unmeasured first, so class loading and JIT are not measured
+        Reference.reachabilityFence(buildGeneric(points, sources, targets, weights, edges));
+        Reference.reachabilityFence(buildPrimitive(points, sources, targets, weights, edges));
+
+        long before = usedAfterGc();
+        Graph<Point, Double> generic = buildGeneric(points, sources, targets, weights, edges);
+        report("Graph<Point, Double>", generic.size(), edges, usedAfterGc() - before);
+        Reference.reachabilityFence(generic);
+        generic = null;
+
+        before = usedAfterGc();
+        IntGraph primitive = buildPrimitive(points, sources, targets, weights, edges);
+        report("IntGraph", primitive.size(), primitive.edgeCount(), usedAfterGc() - before);
+        Reference.reachabilityFence(primitive);
+        primitive = null;
+
+        before = usedAfterGc();
+        IntGraph trimmed = buildPrimitive(points, sources, targets, weights, edges);
+        trimmed.trimToSize();
+        report("IntGraph trimmed", trimmed.size(), trimmed.edgeCount(), usedAfterGc() - before);
+        Reference.reachabilityFence(trimmed);
+        Reference.reachabilityFence(points);
+        Reference.reachabilityFence(rows);
+        Reference.reachabilityFence(distances);
+    }
+
+    private static Graph<Point, Double> buildGeneric(PointInterner points, int[] sources,
+                                                     int[] targets, double[] weights,
+                                                     int edges) {
+        Graph<Point, Double> graph = new Graph<>();
+        for (int id = 0; id < points.size(); id++) {
+            graph.addNode(points.point(id));
+        }
+        for (int e = 0; e < edges; e++) {
+            graph.addEdge(points.point(sources[e]), points.point(targets[e]), weights[e]);
+        }
+        return graph;
+    }
+
+    private static IntGraph buildPrimitive(PointInterner points, int[] sources, int[] targets,
+                                           double[] weights, int edges) {
+        IntGraph graph = new IntGraph();
+        for (int id = 0; id < points.size(); id++) {
+            graph.addNode(id);
+        }
+        for (int e = 0; e < edges; e++) {
+            graph.addEdge(sources[e], targets[e], weights[e]);
+        }
+        return graph;
+    }
+
+    private static void report(String graph, int nodes, int edges, long bytes) {
+        System.out.printf(Locale.ROOT, "%s\t%d\t%d\t%d\t%.1f%n", graph, nodes, edges, bytes,
+                (double) bytes / edges);
+    }
+
+    private static long usedAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
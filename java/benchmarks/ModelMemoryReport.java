@@ -0,0 +1,109 @@
+package benchmarks;
+
+import graph.IntGraphAdapter;
+import pathfinder.CampusGraphBuilder;
+import pathfinder.datastructures.Point;
+import pathfinder.parser.CampusPath;
+import pathfinder.parser.CampusPathsParser;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.ref.Reference;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * ModelMemoryReport compares the heap needed to load a path file into the campus graph in
+ * three ways: by first parsing it into a List of CampusPath that is kept next to the graph,
+ * as the model used to, by streaming the rows straight into a CampusGraphBuilder, and by
+ * streaming them in parsed chunks with the parallel parser, which is how the model loads
+ * them now. For each it prints the peak heap during the load and the heap still retained
+ * by what was loaded afterwards.
+ * <p>
+ * Usage: {@code ModelMemoryReport [FILE]}; defaults to the campus paths file. The peak is
+ * the sum of the peaks of the heap pools, so it is an upper bound; run with
+ * {@code -XX:+UseSerialGC} for the steadiest numbers.
+ */
+public class ModelMemoryReport {
+
+    // This class does not represent an ADT.
+
+    /**
+     * Prints the report.
+     *
+     * @param args the path file to load
+     */
+    public static void main(String[] args) {
+        Path file = args.length > 0 ? Paths.get(args[0]) : CampusPathsParser.campusPathsFile();
+        System.out.println("mode\tnodes\tpeak_mb\tretained_mb");
+        // each mode once untimed first, so class loading and JIT are not measured
+        loadWithLists(file);
+        loadStreaming(file);
+        loadParallel(file);
+        report("lists", () -> loadWithLists(file));
+        report("streaming", () -> loadStreaming(file));
+        report("parallel", () -> loadParallel(file));
+    }
+
+    // the rows are parsed into a list first, and the list is kept with the graph
+    private static Object[] loadWithLists(Path file) {
+        List<CampusPath> paths = new ArrayList<>();
+        CampusPathsParser.parseCampusPaths(file, (x1, y1, x2, y2, distance) ->
+                paths.add(new CampusPath(x1, y1, x2, y2, distance)));
+        CampusGraphBuilder builder = new CampusGraphBuilder();
+        for (CampusPath path : paths) {
+            builder.visit(path.getX1(), path.getY1(), path.getX2(), path.getY2(),
+                    path.getDistance());
+        }
+        return new Object[] {builder.getGraph(), paths};
+    }
+
+    // the rows go straight into the graph
+    private static Object[] loadStreaming(Path file) {
+        CampusGraphBuilder builder = new CampusGraphBuilder();
+        CampusPathsParser.parseCampusPaths(file, builder);
+        return new Object[] {builder.getGraph()};
+    }
+
+    // the rows go into the graph chunk by chunk from the parallel parser, as
+    // CampusMapModel loads them
+    private static Object[] loadParallel(Path file) {
+        CampusGraphBuilder builder = new CampusGraphBuilder();
+        CampusPathsParser.parseCampusPathsParallel(file, builder);
+        return new Object[] {builder.getGraph()};
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void report(String mode, Supplier<Object[]> load) {
+        List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+        long before = usedAfterGc();
+        for (MemoryPoolMXBean pool : pools) {
+            pool.resetPeakUsage();
+        }
+        Object[] loaded = load.get();
+        long peak = 0;
+        for (MemoryPoolMXBean pool : pools) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        long retained = usedAfterGc() - before;
+        int nodes = ((IntGraphAdapter<Point>) loaded[0]).size();
+        System.out.printf(Locale.ROOT, "%s\t%d\t%.2f\t%.2f%n", mode, nodes,
+                (peak - before) / 1e6, retained / 1e6);
+        Reference.reachabilityFence(loaded);
+    }
+
+    private static long usedAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,140 @@
+package benchmarks;
+
+import pathfinder.parser.CampusPathsParser;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * ParallelParseReport writes a synthetic file in the format of campus_paths.tsv and times
+ * parsing it sequentially and in parallel with 1, 2, 4, ... worker threads, up to the
+ * number of processors, so the speedup of parallel parsing can be read off directly.
+ * <p>
+ * Usage: {@code ParallelParseReport [LINES [REPETITIONS]]}; defaults to 10,000,000 lines
+ * and 3 repetitions, of which the best is reported. The synthetic file is deleted at the
+ * end.
+ */
+public class ParallelParseReport {
+
+    // This class does not represent an ADT.
+
+    /**
+     * Prints the report.
+     *
+     * @param args the number of lines to generate and the number of timed repetitions
+     * @throws IOException if the synthetic file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        if (lines < 0 || repetitions < 1) {
+            throw new IllegalArgumentException("need lines >= 0 and repetitions >= 1");
+        }
+        Path file = Files.createTempFile("synthetic_paths", ".tsv");
+        try {
+            writeSyntheticPaths(file, lines);
+            long bytes = Files.size(file);
+            System.out.println("mode\tthreads\tlines\tbytes\tbest_ms\tspeedup");
+            // every run must parse the same data as the first sequential one
+            Totals[] reference = new Totals[1];
+            long sequential = best(repetitions, reference, () -> {
+                Totals totals = new Totals();
+                CampusPathsParser.parseCampusPaths(file, totals::add);
+                return totals;
+            });
+            System.out.printf(Locale.ROOT, "sequential\t1\t%d\t%d\t%.1f\t%.2f%n", lines, bytes,
+                    sequential / 1e6, 1.0);
+            int processors = Runtime.getRuntime().availableProcessors();
+            for (int threads = 1; ; threads = Math.min(2 * threads, processors)) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                try {
+                    long time = best(repetitions, reference, () -> {
+                        Totals totals = new Totals();
+                        CampusPathsParser.parseCampusPathsParallel(file, pool, totals::add);
+                        return totals;
+                    });
+                    System.out.printf(Locale.ROOT, "parallel\t%d\t%d\t%d\t%.1f\t%.2f%n", threads,
+                            lines, bytes, time / 1e6, (double) sequential / time);
+                } finally {
+                    pool.shutdown();
+                }
+                if (threads == processors) {
+                    break;
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // lines of random segments, with numbers written like those in campus_paths.tsv
+    private static void writeSyntheticPaths(Path file, int lines) throws IOException {
+        Random random = new Random(331);
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            out.write("start-x\tstart-y\tend-x\tend-y\tdistance\n");
+            for (int i = 0; i < lines; i++) {
+                double x1 = Math.round(random.nextDouble() * 40_000_000) / 10_000.0;
+                double y1 = Math.round(random.nextDouble() * 40_000_000) / 10_000.0;
+                double x2 = Math.round((x1 + random.nextGaussian() * 30) * 10_000) / 10_000.0;
+                double y2 = Math.round((y1 + random.nextGaussian() * 30) * 10_000) / 10_000.0;
+                out.write(x1 + "\t" + y1 + "\t" + x2 + "\t" + y2 + "\t"
+                        + Math.hypot(x2 - x1, y2 - y1) + "\n");
+            }
+        }
+    }
+
+    private interface Run {
+        Totals run();
+    }
+
+    // best time of repetitions runs, checking that every run parsed the same data as
+    // reference[0], which is set by the first run if it is null
+    private static long best(int repetitions, Totals[] reference, Run run) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < repetitions; i++) {
+            long start = System.nanoTime();
+            Totals totals = run.run();
+            best = Math.min(best, System.nanoTime() - start);
+            if (reference[0] == null) {
+                reference[0] = totals;
+            } else if (!reference[0].equals(totals)) {
+                throw new IllegalStateException("runs parsed different data");
+            }
+        }
+        return best;
+    }
+
+    // a count and an order-sensitive hash of all parsed values
+    private static final class Totals {
+
+        // This class does not represent an ADT.
+
+        private long records;
+        private long hash;
+
+        void add(double x1, double y1, double x2, double y2, double distance) {
+            records++;
+            hash = 31 * hash + Double.hashCode(x1);
+            hash = 31 * hash + Double.hashCode(y1);
+            hash = 31 * hash + Double.hashCode(x2);
+            hash = 31 * hash + Double.hashCode(y2);
+            hash = 31 * hash + Double.hashCode(distance);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Totals && ((Totals) o).records == records
+                    && ((Totals) o).hash == hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package benchmarks;
+
+import pathfinder.parser.CampusPathsParser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * ParserThroughputReport measures how fast a file in the format of campus_paths.tsv
+ * is parsed, in MB/s, by the streaming parser of CampusPathsParser and, for comparison,
+ * by reading lines into Strings, splitting them and calling Double.parseDouble, which is
+ * what a general CSV library does per line.
+ * <p>
+ * Usage: {@code ParserThroughputReport [FILE [REPETITIONS]]}; defaults to the campus
+ * paths file and 50 repetitions. Prints one TSV line per parser with the file size,
+ * record count, best and median time and the throughput of the median run.
+ */
+public class ParserThroughputReport {
+
+    // This class does not represent an ADT.
+
+    // untimed runs before measuring, so the JIT has compiled the parsers
+    private static final int WARMUP_RUNS = 5;
+
+    /**
+     * Prints the report.
+     *
+     * @param args the file to parse and the number of timed repetitions
+     * @throws IOException if the file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = args.length > 0 ? Paths.get(args[0]) : CampusPathsParser.campusPathsFile();
+        int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        if (repetitions < 1) {
+            throw new IllegalArgumentException("need at least one repetition: " + repetitions);
+        }
+        long bytes = Files.size(file);
+        System.out.println("parser\tbytes\trecords\tbest_ms\tmedian_ms\tmb_per_s");
+        report("streaming", file, bytes, repetitions, ParserThroughputReport::parseStreaming);
+        report("split", file, bytes, repetitions, ParserThroughputReport::parseSplit);
+    }
+
+    private interface Parser {
+        long parse(Path file) throws IOException;
+    }
+
+    private static void report(String name, Path file, long bytes, int repetitions,
+                               Parser parser) throws IOException {
+        long records = 0;
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            records = parser.parse(file);
+        }
+        long[] times = new long[repetitions];
+        for (int i = 0; i < repetitions; i++) {
+            long start = System.nanoTime();
+            parser.parse(file);
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        long median = times[repetitions / 2];
+        System.out.printf(Locale.ROOT, "%s\t%d\t%d\t%.3f\t%.3f\t%.1f%n", name, bytes, records,
+                times[0] / 1e6, median / 1e6, bytes / 1e6 / (median / 1e9));
+    }
+
+    // the streaming parser, handing each line's numbers to a visitor
+    private static long parseStreaming(Path file) {
+        Totals totals = new Totals();
+        CampusPathsParser.parseCampusPaths(file, (x1, y1, x2, y2, distance) -> {
+            totals.records++;
+            totals.sum += x1 + y1 + x2 + y2 + distance;
+        });
+        return totals.check();
+    }
+
+    // a String per line and per field, like a general CSV reader
+    private static long parseSplit(Path file) throws IOException {
+        Totals totals = new Totals();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            reader.readLine();
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                String[] fields = line.split("\t");
+                totals.records++;
+                for (String field : fields) {
+                    totals.sum += Double.parseDouble(field);
+                }
+            }
+        }
+        return totals.check();
+    }
+
+    // record count and a sum of all values, so no parsed value is dead code
+    private static final class Totals {
+
+        // This class does not represent an ADT.
+
+        private long records;
+        private double sum;
+
+        long check() {
+            if (Double.isNaN(sum)) {
+                throw new IllegalStateException("parsed a NaN");
+            }
+            return records;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package benchmarks;
+
+import pathfinder.ModelConnector;
+import pathfinder.routing.Route;
+import pathfinder.routing.RoutingAlgorithm;
+
+import java.util.Locale;
+
+/**
+ * SettledNodesReport prints, for pairs of buildings, how many nodes each routing
+ * algorithm settles and the cost of the route it finds, so algorithms can be compared
+ * on the same queries.
+ * <p>
+ * Usage: {@code SettledNodesReport [START END]...}; defaults to MGH to CSE.
+ */
+public class SettledNodesReport {
+
+    // This class does not represent an ADT.
+
+    /**
+     * Prints the report.
+     *
+     * @param args pairs of building short names to route between
+     */
+    public static void main(String[] args) {
+        if (args.length % 2 != 0) {
+            throw new IllegalArgumentException("expected pairs of building short names");
+        }
+        String[] pairs = args.length == 0 ? new String[] {"MGH", "CSE"} : args;
+        ModelConnector model = new ModelConnector();
+        System.out.println("start\tend\talgorithm\tsettled\tcost");
+        for (int i = 0; i < pairs.length; i += 2) {
+            for (RoutingAlgorithm algorithm : RoutingAlgorithm.values()) {
+                Route route = model.findRoute(pairs[i], pairs[i + 1], algorithm);
+                System.out.printf(Locale.ROOT, "%s\t%s\t%s\t%d\t%.3f%n", pairs[i], pairs[i + 1],
+                        algorithm, route == null ? 0 : route.getSettledCount(),
+                        route == null ? Double.NaN : route.getCost());
+            }
+        }
+    }
+}
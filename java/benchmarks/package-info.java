@@ -0,0 +1,2 @@
+/** Command-line benchmarks and reports for the Pathfinder model */
+package benchmarks;
@@ -1,7 +1,10 @@
 package campuspaths;
 
 import campuspaths.utils.CORSFilter;
+import campuspaths.utils.RouteCache;
 import com.google.gson.Gson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import pathfinder.ModelConnector;
 import pathfinder.datastructures.Path;
 import pathfinder.datastructures.Point;
@@ -10,8 +13,21 @@ import spark.Response;
 import spark.Route;
 import spark.Spark;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
 public class SparkServer {
 
+  // bounds of the /findPath response cache; far more than the building pairs of the campus
+  private static final int ROUTE_CACHE_ENTRIES = 4096;
+  private static final long ROUTE_CACHE_BYTES = 32L * 1024 * 1024;
+
   public static void main(String[] args) {
     CORSFilter corsFilter = new CORSFilter();
     corsFilter.apply();
@@ -26,6 +42,18 @@ public class SparkServer {
     
     ModelConnector model = new ModelConnector();
     Gson gson = new Gson();
+    Logger logger = LoggerFactory.getLogger("CampusPaths Server");
+    logger.info("Building route table: " + model.buildingRouteTableBytes() + " bytes");
+    // replaced by an empty cache whenever a reload or a path edit publishes a new model
+    AtomicReference<RouteCache> routeCache = new AtomicReference<>(
+            new RouteCache(ROUTE_CACHE_ENTRIES, ROUTE_CACHE_BYTES));
+    // reloads run one at a time on their own thread, requests never wait for them
+    ExecutorService reloader = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "campus-data-reload");
+      thread.setDaemon(true);
+      return thread;
+    });
+    AtomicBoolean reloadQueued = new AtomicBoolean();
 
     // to tests this method works try entering this url in the browser
     // http://localhost:4567/findPath?start=MGH&end=CSE
@@ -37,8 +65,172 @@ public class SparkServer {
         if (start == null || end == null) {
           Spark.halt(400, "must have start and end");
         }
-        Path<Point> path = model.findShortestPath(start, end);
-        return gson.toJson(path);
+        // hits skip both the search and the JSON serialization
+        try {
+          return routeCache.get().get(start, end, () -> {
+            Path<Point> path = model.findShortestPath(start, end);
+            return gson.toJson(path).getBytes(StandardCharsets.UTF_8);
+          });
+        } catch (IllegalArgumentException e) {
+          throw Spark.halt(400, e.getMessage());
+        }
+      }
+    });
+
+
+    // to tests this method works try entering this url in the browser
+    // http://localhost:4567/findPathByCoordinates?x1=1900&y1=1300&x2=2300&y2=1700
+    // both ends snap to the closest points on the paths; clicked spots are rarely
+    // repeated, so these routes are not cached
+    Spark.get("/findPathByCoordinates", new Route() {
+      @Override
+      public Object handle(Request request, Response response) throws Exception {
+        double[] coordinates = new double[4];
+        String[] names = {"x1", "y1", "x2", "y2"};
+        for (int i = 0; i < names.length; i++) {
+          String value = request.queryParams(names[i]);
+          if (value == null) {
+            Spark.halt(400, "must have x1, y1, x2 and y2");
+          }
+          try {
+            coordinates[i] = Double.parseDouble(value);
+          } catch (NumberFormatException e) {
+            throw Spark.halt(400, names[i] + " is not a number");
+          }
+          if (!Double.isFinite(coordinates[i])) {
+            Spark.halt(400, names[i] + " is not finite");
+          }
+        }
+        return gson.toJson(model.findShortestPath(coordinates[0], coordinates[1],
+            coordinates[2], coordinates[3]));
+      }
+    });
+
+
+    // to tests this method works try entering this url in the browser
+    // http://localhost:4567/cacheStats
+    Spark.get("/cacheStats", new Route() {
+      @Override
+      public Object handle(Request request, Response response) throws Exception {
+        RouteCache cache = routeCache.get();
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hits", cache.hitCount());
+        stats.put("misses", cache.missCount());
+        stats.put("evictions", cache.evictionCount());
+        stats.put("rejections", cache.rejectionCount());
+        stats.put("entries", (long) cache.size());
+        stats.put("bytes", cache.estimatedBytes());
+        return gson.toJson(stats);
+      }
+    });
+
+
+    // to tests this method works run this from the server's machine
+    // curl -X POST http://localhost:4567/reload
+    // rebuilds the model from the data files in the background and answers at once;
+    // requests keep using the old model and cache until the new ones are published
+    Spark.post("/reload", new Route() {
+      @Override
+      public Object handle(Request request, Response response) throws Exception {
+        if (!isLoopback(request.ip())) {
+          Spark.halt(403, "reload is only accepted from the server's machine");
+        }
+        // a reload that has not started yet will read the files as they are now anyway
+        if (reloadQueued.compareAndSet(false, true)) {
+          reloader.execute(() -> {
+            reloadQueued.set(false);
+            try {
+              long start = System.nanoTime();
+              model.reload();
+              // after the model, so a cache that can be seen is never older than it
+              routeCache.set(new RouteCache(ROUTE_CACHE_ENTRIES, ROUTE_CACHE_BYTES));
+              logger.info("Reloaded campus data in " + (System.nanoTime() - start) / 1_000_000
+                      + " ms");
+            } catch (RuntimeException e) {
+              logger.error("Reload failed, still serving the previous campus data", e);
+            }
+          });
+        }
+        response.status(202);
+        return "reload started";
+      }
+    });
+
+
+    // to tests this method works run this from the server's machine
+    // curl -X POST "http://localhost:4567/paths/close?x1=1536.287&y1=1786.613&x2=1561.0528&y2=1786.6467"
+    // the actions are close, reopen, addDetour (which also takes distance) and removeDetour,
+    // each applies to both directions between (x1, y1) and (x2, y2); the edit is made
+    // in milliseconds and answered with the new version of the edits
+    Spark.post("/paths/:action", new Route() {
+      @Override
+      public Object handle(Request request, Response response) throws Exception {
+        if (!isLoopback(request.ip())) {
+          Spark.halt(403, "path edits are only accepted from the server's machine");
+        }
+        Point a = new Point(numberParam(request, "x1"), numberParam(request, "y1"));
+        Point b = new Point(numberParam(request, "x2"), numberParam(request, "y2"));
+        long version;
+        try {
+          switch (request.params(":action")) {
+            case "close":
+              version = model.closePath(a, b);
+              break;
+            case "reopen":
+              version = model.reopenPath(a, b);
+              break;
+            case "addDetour":
+              version = model.addDetour(a, b, numberParam(request, "distance"));
+              break;
+            case "removeDetour":
+              version = model.removeDetour(a, b);
+              break;
+            default:
+              throw Spark.halt(404, "unknown path edit " + request.params(":action"));
+          }
+        } catch (IllegalArgumentException e) {
+          // an edit the map does not allow
+          throw Spark.halt(400, e.getMessage());
+        }
+        // cached routes may run over a closed path or miss a detour
+        routeCache.set(new RouteCache(ROUTE_CACHE_ENTRIES, ROUTE_CACHE_BYTES));
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("version", version);
+        return gson.toJson(result);
+      }
+    });
+
+
+    // to tests this method works try entering this url in the browser
+    // http://localhost:4567/distanceMatrix?sources=MGH&sources=KNE&targets=CSE&targets=BAG
+    // building short names may contain commas, so each name is its own parameter
+    Spark.get("/distanceMatrix", new Route() {
+      @Override
+      public Object handle(Request request, Response response) throws Exception {
+        String[] sources = request.queryParamsValues("sources");
+        String[] targets = request.queryParamsValues("targets");
+        if (sources == null || targets == null) {
+          Spark.halt(400, "must have sources and targets");
+        }
+        double[][] distances;
+        try {
+          distances = model.distanceMatrix(Arrays.asList(sources), Arrays.asList(targets));
+        } catch (IllegalArgumentException e) {
+          throw Spark.halt(400, e.getMessage());
+        }
+        // JSON has no infinity, unreachable pairs are sent as null
+        Double[][] json = new Double[distances.length][];
+        for (int i = 0; i < distances.length; i++) {
+          json[i] = new Double[distances[i].length];
+          for (int j = 0; j < distances[i].length; j++) {
+            json[i][j] = Double.isFinite(distances[i][j]) ? distances[i][j] : null;
+          }
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("sources", sources);
+        result.put("targets", targets);
+        result.put("distances", json);
+        return gson.toJson(result);
       }
     });
 
@@ -57,4 +249,28 @@ public class SparkServer {
 
   }
 
+  // the finite number in query parameter name of request; halts with 400 if it is
+  // missing or is not one
+  private static double numberParam(Request request, String name) {
+    String value = request.queryParams(name);
+    if (value == null) {
+      throw Spark.halt(400, "must have " + name);
+    }
+    double number;
+    try {
+      number = Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      throw Spark.halt(400, name + " is not a number");
+    }
+    if (!Double.isFinite(number)) {
+      throw Spark.halt(400, name + " is not finite");
+    }
+    return number;
+  }
+
+  // whether a request from ip comes from this machine
+  private static boolean isLoopback(String ip) {
+    return "127.0.0.1".equals(ip) || "0:0:0:0:0:0:0:1".equals(ip) || "::1".equals(ip);
+  }
+
 }
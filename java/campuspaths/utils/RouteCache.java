@@ -0,0 +1,289 @@
+package campuspaths.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * The RouteCache keeps serialized route responses, keyed by (start, end), so a
+ * popular route is answered without searching the graph or running Gson again.
+ * <p>
+ * The cache is bounded both by number of entries and by estimated bytes. Which
+ * entries stay is decided by a TinyLFU-style policy: a small count-min sketch
+ * estimates how often every key (cached or not) has been asked for recently, a new
+ * entry is only admitted if it is asked for more often than the entry it would evict,
+ * and the victim is the least frequently asked of a few randomly sampled entries.
+ * One-off queries therefore can't push the popular class-change routes out.
+ * <p>
+ * Lookups are lock-free; only inserting a new entry takes a lock.
+ */
+public class RouteCache {
+
+    // entries sampled when looking for an eviction victim
+    private static final int EVICTION_SAMPLES = 8;
+
+    // rough per-entry overhead on top of the value bytes: map node, key, entry, array header
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    private final int maxEntries;
+    private final long maxBytes;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final FrequencySketch sketch;
+
+    // the cached entries, for sampling victims; only touched while holding this
+    private final List<Entry> evictionPool = new ArrayList<>();
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxEntries the most entries the cache holds
+     * @param maxBytes the most estimated bytes the cache holds
+     * @throws IllegalArgumentException if either bound is not positive
+     */
+    public RouteCache(int maxEntries, long maxBytes) {
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("cache bounds must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.sketch = new FrequencySketch(maxEntries);
+    }
+
+    /**
+     * Returns the cached bytes of the route from start to end, computing and offering
+     * them to the cache with loader on a miss.
+     *
+     * @param start the start of the route
+     * @param end the end of the route
+     * @param loader computes the bytes of the route on a miss; must not return null
+     * @return the bytes of the route from start to end
+     */
+    public byte[] get(String start, String end, Supplier<byte[]> loader) {
+        Key key = new Key(start, end);
+        sketch.increment(key.hashCode());
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hits.increment();
+            return entry.value;
+        }
+        misses.increment();
+        byte[] value = loader.get();
+        offer(key, value);
+        return value;
+    }
+
+    // admits key if there is room, or if it is asked for more than the victims
+    private synchronized void offer(Key key, byte[] value) {
+        if (entries.containsKey(key)) {
+            // another thread loaded it first
+            return;
+        }
+        long size = value.length + ENTRY_OVERHEAD_BYTES;
+        if (size > maxBytes) {
+            rejections.increment();
+            return;
+        }
+        int frequency = sketch.frequency(key.hashCode());
+        while (entries.size() >= maxEntries || bytes + size > maxBytes) {
+            Entry victim = sampleVictim();
+            if (sketch.frequency(victim.key.hashCode()) >= frequency) {
+                rejections.increment();
+                return;
+            }
+            remove(victim);
+            evictions.increment();
+        }
+        Entry entry = new Entry(key, value, evictionPool.size());
+        evictionPool.add(entry);
+        entries.put(key, entry);
+        bytes += size;
+    }
+
+    // the least frequently asked of a few random entries
+    private Entry sampleVictim() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Entry victim = null;
+        int victimFrequency = Integer.MAX_VALUE;
+        for (int i = 0; i < EVICTION_SAMPLES; i++) {
+            Entry candidate = evictionPool.get(random.nextInt(evictionPool.size()));
+            int frequency = sketch.frequency(candidate.key.hashCode());
+            if (frequency < victimFrequency) {
+                victim = candidate;
+                victimFrequency = frequency;
+            }
+        }
+        return victim;
+    }
+
+    // drops entry from the map and the eviction pool
+    private void remove(Entry entry) {
+        entries.remove(entry.key);
+        Entry last = evictionPool.remove(evictionPool.size() - 1);
+        if (last != entry) {
+            evictionPool.set(entry.poolIndex, last);
+            last.poolIndex = entry.poolIndex;
+        }
+        bytes -= entry.value.length + ENTRY_OVERHEAD_BYTES;
+    }
+
+    /**
+     * @return number of lookups answered from the cache
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of lookups that had to compute the route
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of entries evicted to make room for more frequent ones
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return number of computed routes the admission policy did not cache
+     */
+    public long rejectionCount() {
+        return rejections.sum();
+    }
+
+    /**
+     * @return number of entries in the cache
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return estimated bytes held by the cache
+     */
+    public synchronized long estimatedBytes() {
+        return bytes;
+    }
+
+    /**
+     * A (start, end) pair.
+     */
+    private static final class Key {
+
+        private final String start;
+        private final String end;
+        private final int hash;
+
+        Key(String start, String end) {
+            this.start = start;
+            this.end = end;
+            this.hash = 31 * Objects.hashCode(start) + Objects.hashCode(end);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return Objects.equals(start, other.start) && Objects.equals(end, other.end);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * A cached value and its place in the eviction pool.
+     */
+    private static final class Entry {
+
+        private final Key key;
+        private final byte[] value;
+        private int poolIndex;
+
+        Entry(Key key, byte[] value, int poolIndex) {
+            this.key = key;
+            this.value = value;
+            this.poolIndex = poolIndex;
+        }
+    }
+
+    /**
+     * A count-min sketch of small saturating counters that estimates how often
+     * each hash was seen recently. Every time the number of increments reaches ten
+     * times the width, all counters are halved, so old popularity fades.
+     * <p>
+     * Lookups increment the sketch on many threads at once without a lock, so the
+     * counters and the increment count are atomic: an increment can't be lost, push a
+     * counter past its cap, or undo the halving another thread is doing.
+     */
+    private static final class FrequencySketch {
+
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+        private final AtomicIntegerArray counters;
+        private final int mask;
+        private final int sampleSize;
+        private final AtomicInteger additions = new AtomicInteger();
+
+        FrequencySketch(int expectedEntries) {
+            int width = Integer.highestOneBit(Math.max(64, expectedEntries * 4 - 1)) << 1;
+            this.counters = new AtomicIntegerArray(DEPTH * width);
+            this.mask = width - 1;
+            this.sampleSize = 10 * width;
+        }
+
+        void increment(int hash) {
+            for (int row = 0; row < DEPTH; row++) {
+                int index = row * (mask + 1) + slot(hash, row);
+                counters.getAndUpdate(index, count -> count < MAX_COUNT ? count + 1 : count);
+            }
+            // only the thread that reaches the sample size ages the counters
+            if (additions.incrementAndGet() == sampleSize) {
+                age();
+            }
+        }
+
+        int frequency(int hash) {
+            int min = MAX_COUNT;
+            for (int row = 0; row < DEPTH; row++) {
+                min = Math.min(min, counters.get(row * (mask + 1) + slot(hash, row)));
+            }
+            return min;
+        }
+
+        private int slot(int hash, int row) {
+            int h = hash * SEEDS[row];
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private void age() {
+            for (int i = 0; i < counters.length(); i++) {
+                counters.getAndUpdate(i, count -> count >>> 1);
+            }
+            additions.set(0);
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * ConcurrentGraph represents a mutable directed graph with labeled edges that any number
+ * of threads may read while others change it. It holds the same nodes and edges a
+ * {@link Graph} built with the same calls would.
+ * <p>
+ * Reads never lock or wait. The outgoing edges of each node are kept in an immutable
+ * array that writers replace as a whole (copy-on-write), so a reader takes the current
+ * array with one volatile read and walks it undisturbed, while the nodes live in a
+ * ConcurrentHashMap. Writers lock one or two of a fixed set of stripes, chosen by the
+ * hash of the nodes they change, so writers to different parts of the graph do not
+ * wait for each other and a change is never seen half made. Copying a node's edges
+ * makes every edge change O(degree), which suits graphs that are read far more often
+ * than they are changed.
+ * <p>
+ * What a reader sees of each node is always a state the node was in, but a walk over
+ * several nodes may see some changes made during the walk and not others: an edge may
+ * lead to a node that has been removed since, so readers must be ready for
+ * {@link #containsNode(Object)} to turn false. A reader that needs one consistent
+ * version of the whole graph should work on a copy instead.
+ *
+ * @spec.specfield nodes : N
+ * // the nodes of the graph
+ * @spec.specfield outgoing_edges : Edge
+ * // the edges with label and destination of each node
+ */
+public class ConcurrentGraph<N, L> {
+
+    /*
+     Rep invariant:
+         nodes, stripes != null
+         All nodes, edges, labels and destinations in graph are not null.
+         every edge is an ImmutableEdge
+         every edge array of an Adjacency has no two equal edges, and the
+             destination of each of its edges is a node
+         inDegree of each node is the number of edges, of all nodes, with that
+             destination
+         these hold whenever no writer holds the stripes of the nodes involved
+
+     Abstract function:
+         AF(this) = directed graph g such that
+             g.nodes = nodes.keySet()
+             the outgoing edges of node n are nodes.get(n).edges
+     */
+
+    private static final int STRIPE_COUNT = 64;
+
+    private final ConcurrentHashMap<N, Adjacency<N, L>> nodes;
+    private final Object[] stripes;
+
+    // to enable or disable checkRep()
+    private final boolean CHECK_REP_ENABLE = false;
+
+    /**
+     * Creates an empty directed graph.
+     *
+     * @spec.effects constructs an empty directed graph
+     */
+    public ConcurrentGraph() {
+        this.nodes = new ConcurrentHashMap<>();
+        this.stripes = new Object[STRIPE_COUNT];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Object();
+        }
+        checkRep();
+    }
+
+    /**
+     * Adds node to the graph if it is not already present.
+     *
+     * @param node a node to be added
+     * @spec.modifies this
+     * @spec.effects adds node with no edges if it is not already present
+     * @return true if this graph did not already contain node
+     */
+    public boolean addNode(N node) {
+        if (node == null) {
+            return false;
+        }
+        // a node is only ever removed under its stripe, and only while it is in the map,
+        // so an atomic insert needs no lock
+        boolean added = nodes.putIfAbsent(node, new Adjacency<N, L>()) == null;
+        checkRep();
+        return added;
+    }
+
+    /**
+     * Adds an edge from src to dest with label if both nodes exist in the graph and the
+     * same edge is not already present. Readers see the edge from the moment this
+     * returns, and never a partial change.
+     *
+     * @param src   start of the edge
+     * @param dest  end of the edge
+     * @param label label of the edge
+     * @spec.requires src, dest, label != null
+     * @spec.modifies this
+     * @spec.effects adds the edge to the graph if it is not already present
+     * @return true if src and dest are in the graph, false otherwise
+     */
+    public boolean addEdge(N src, N dest, L label) {
+        int first = stripe(src);
+        int second = stripe(dest);
+        synchronized (stripes[Math.min(first, second)]) {
+            synchronized (stripes[Math.max(first, second)]) {
+                Adjacency<N, L> from = nodes.get(src);
+                Adjacency<N, L> to = nodes.get(dest);
+                if (from == null || to == null) {
+                    return false;
+                }
+                Edge<L, N> edge = new ImmutableEdge<>(label, dest);
+                Edge<L, N>[] edges = from.edges;
+                if (indexOf(edges, edge) < 0) {
+                    Edge<L, N>[] newEdges = Arrays.copyOf(edges, edges.length + 1);
+                    newEdges[edges.length] = edge;
+                    from.edges = newEdges;
+                    to.inDegree++;
+                }
+            }
+        }
+        checkRep();
+        return true;
+    }
+
+    /**
+     * Removes the edge from src to dest with label.
+     *
+     * @param src   origin of the edge
+     * @param dest  destination of the edge
+     * @param label label of the edge
+     * @spec.requires src, dest, label != null
+     * @spec.modifies this
+     * @spec.effects removes the specified edge if it is present
+     * @return true if the edge was removed, false if it is not in the graph
+     */
+    public boolean removeEdge(N src, N dest, L label) {
+        int first = stripe(src);
+        int second = stripe(dest);
+        synchronized (stripes[Math.min(first, second)]) {
+            synchronized (stripes[Math.max(first, second)]) {
+                Adjacency<N, L> from = nodes.get(src);
+                if (from == null) {
+                    return false;
+                }
+                Edge<L, N>[] edges = from.edges;
+                int index = indexOf(edges, new Edge<>(label, dest));
+                if (index < 0) {
+                    return false;
+                }
+                Edge<L, N>[] newEdges = Arrays.copyOf(edges, edges.length - 1);
+                System.arraycopy(edges, index + 1, newEdges, index, newEdges.length - index);
+                from.edges = newEdges;
+                // the edge existed, so dest is still a node
+                nodes.get(dest).inDegree--;
+            }
+        }
+        checkRep();
+        return true;
+    }
+
+    /**
+     * Removes a node without edges from the graph.
+     *
+     * @param node node to remove
+     * @spec.requires node != null
+     * @spec.modifies this
+     * @spec.effects removes node if it is in the graph and has no outgoing or
+     * incoming edges
+     * @return true if node was removed, false if it is not in the graph or still
+     * has edges
+     */
+    public boolean removeNode(N node) {
+        synchronized (stripes[stripe(node)]) {
+            Adjacency<N, L> adjacency = nodes.get(node);
+            if (adjacency == null || adjacency.edges.length > 0 || adjacency.inDegree > 0) {
+                return false;
+            }
+            nodes.remove(node, adjacency);
+        }
+        checkRep();
+        return true;
+    }
+
+    // the index of the lock of node; a writer that needs two takes the lower index first,
+    // so writers never wait for each other in a cycle, and one twice if both are the same
+    private static int stripe(Object node) {
+        int hash = node.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPE_COUNT - 1);
+    }
+
+    private static <N, L> int indexOf(Edge<L, N>[] edges, Edge<L, N> edge) {
+        for (int i = 0; i < edges.length; i++) {
+            if (edges[i].equals(edge)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return true if node is in the graph.
+     *
+     * @param node a node
+     * @spec.requires node != null
+     * @return true if node exists in graph
+     */
+    public boolean containsNode(N node) {
+        return nodes.containsKey(node);
+    }
+
+    /**
+     * Return the nodes of the graph, as a read-only view. Iterating it never fails
+     * because of concurrent changes; it sees every node that is in the graph for the
+     * whole iteration, and may or may not see nodes added or removed during it.
+     *
+     * @return an unmodifiable, live set of the nodes of the graph
+     */
+    public Set<N> getNodes() {
+        return Collections.unmodifiableSet(nodes.keySet());
+    }
+
+    /**
+     * Returns the outgoing edges of node as they are at the time of the call. Later
+     * changes do not show in the returned list. Its edges are shared with the graph and
+     * every other reader, so they cannot be changed: setLabel and setDestination throw
+     * UnsupportedOperationException.
+     *
+     * @param node a node
+     * @spec.requires node != null
+     * @return an unmodifiable snapshot of the outgoing edges of node, empty if node is
+     * not in the graph
+     */
+    public List<Edge<L, N>> listChildren(N node) {
+        Adjacency<N, L> adjacency = nodes.get(node);
+        return adjacency == null ? Collections.emptyList()
+                : Collections.unmodifiableList(Arrays.asList(adjacency.edges));
+    }
+
+    /**
+     * Calls action with the destination and label of every outgoing edge of node, as
+     * the edges are at the time of the call, without building any collection.
+     *
+     * @param node   a node
+     * @param action called once per outgoing edge with its destination and label
+     * @spec.requires node, action != null
+     */
+    public void forEachChild(N node, BiConsumer<? super N, ? super L> action) {
+        Adjacency<N, L> adjacency = nodes.get(node);
+        if (adjacency != null) {
+            for (Edge<L, N> edge : adjacency.edges) {
+                action.accept(edge.getDest(), edge.getLabel());
+            }
+        }
+    }
+
+    /**
+     * Returns the number of edges into node.
+     *
+     * @param node a node
+     * @spec.requires node != null
+     * @return the number of edges with destination node, 0 if node is not in the graph
+     */
+    public int inDegree(N node) {
+        Adjacency<N, L> adjacency = nodes.get(node);
+        return adjacency == null ? 0 : adjacency.inDegree;
+    }
+
+    /**
+     * Returns number of edges from one node to another node.
+     *
+     * @param src  origin of the edges
+     * @param dest destination of the edges
+     * @spec.requires src, dest != null
+     * @return number of edges from src to dest, 0 if src is not in the graph
+     */
+    public int numberOfEdges(N src, N dest) {
+        int count = 0;
+        for (Edge<L, N> edge : listChildren(src)) {
+            if (edge.getDest().equals(dest)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Return true if an edge from src to dest with label exists.
+     *
+     * @param src   a source node
+     * @param dest  a destination node
+     * @param label label of edge
+     * @spec.requires src, dest, label != null
+     * @return true if the graph has an edge from src to dest with label
+     */
+    public boolean containsEdge(N src, N dest, L label) {
+        Adjacency<N, L> adjacency = nodes.get(src);
+        return adjacency != null && indexOf(adjacency.edges, new Edge<>(label, dest)) >= 0;
+    }
+
+    /**
+     * Returns number of nodes in the graph.
+     *
+     * @return number of nodes in the graph
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Returns string representation of the graph
+     * @return string representation of the graph
+     */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("{");
+        nodes.forEach((node, adjacency) -> result.append(result.length() > 1 ? ", " : "")
+                .append(node).append('=').append(Arrays.toString(adjacency.edges)));
+        return result.append('}').toString();
+    }
+
+    /**
+     * Checks if rep inv holds. Only meaningful while no writer is running.
+     */
+    private void checkRep() throws RuntimeException {
+        if (CHECK_REP_ENABLE) {
+            Map<N, Integer> inDegrees = new HashMap<>();
+            for (Map.Entry<N, Adjacency<N, L>> entry : nodes.entrySet()) {
+                Edge<L, N>[] edges = entry.getValue().edges;
+                for (int i = 0; i < edges.length; i++) {
+                    if (edges[i] == null || edges[i].getLabel() == null
+                            || !nodes.containsKey(edges[i].getDest())) {
+                        throw new RuntimeException("bad edge of " + entry.getKey());
+                    }
+                    if (indexOf(Arrays.copyOf(edges, i), edges[i]) >= 0) {
+                        throw new RuntimeException("duplicate edge of " + entry.getKey());
+                    }
+                    inDegrees.merge(edges[i].getDest(), 1, Integer::sum);
+                }
+            }
+            for (Map.Entry<N, Adjacency<N, L>> entry : nodes.entrySet()) {
+                if (entry.getValue().inDegree != inDegrees.getOrDefault(entry.getKey(), 0)) {
+                    throw new RuntimeException("in-degree out of date for " + entry.getKey());
+                }
+            }
+        }
+    }
+
+    // the edges of one node, replaced as a whole on every change
+    private static final class Adjacency<N, L> {
+
+        // This class does not represent an ADT.
+
+        private static final Edge<?, ?>[] NO_EDGES = new Edge<?, ?>[0];
+
+        // changed only under the stripe of the node; never changed in place once published
+        @SuppressWarnings("unchecked")
+        volatile Edge<L, N>[] edges = (Edge<L, N>[]) NO_EDGES;
+        // changed only under the stripe of the node
+        volatile int inDegree;
+    }
+}
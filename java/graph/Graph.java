@@ -1,6 +1,7 @@
 package graph;
 
 import java.util.*;
+import java.util.function.BiConsumer;
 
 /**
  * Graph represents a mutable directed graph with nodes and edges, each node has a
@@ -10,6 +11,8 @@ import java.util.*;
  * // a list of nodes in graph
  * @spec.specfield outgoing_edges : Edge
  * // The edges with label and destination of the graph.
+ * @spec.specfield parents : set of N
+ * // for each node, the nodes with an edge to it
  *
  * @author Omar Akaales
  * @version 04/27/2019
@@ -29,8 +32,13 @@ public class Graph<N, L> {
      Rep invariant:
          graph != null
          All nodes and edges in graph are not null.
+         every edge in graph is an ImmutableEdge
          graph must have node n before any edge with dest
          n created
+         incoming.keySet() == graph.keySet()
+         for every node n, incoming.get(n).parents maps each node p to the number
+             of edges in graph.get(p) with dest n, and has no other keys, and
+             incoming.get(n).edges is the sum of those numbers
 
      Abstract function:
          AF(this) = directed graph g such that
@@ -43,7 +51,10 @@ public class Graph<N, L> {
      */
 
     // directed graph map, maps each node in graph with corresponding list of edges.
-    private final Map<N, HashSet<Edge<L, N>>> graph;
+    private final Map<N, EdgeList<L, N>> graph;
+
+    // reverse index of graph: the incoming edges of each node, by source node
+    private final Map<N, Incoming<N>> incoming;
 
     // to enable or disable checkRep()
     private final boolean CHECK_REP_ENABLE = false;
@@ -58,7 +69,8 @@ public class Graph<N, L> {
      */
 
     public Graph() {
-        this.graph = new HashMap<N, HashSet<Edge<L, N>>>();
+        this.graph = new HashMap<N, EdgeList<L, N>>();
+        this.incoming = new HashMap<N, Incoming<N>>();
         checkRep();
     }
 
@@ -77,7 +89,8 @@ public class Graph<N, L> {
         if (graph.containsKey(node) || node == null) {
             return false;
         } else {
-            graph.put(node, new HashSet<Edge<L, N>>());
+            graph.put(node, new EdgeList<L, N>());
+            incoming.put(node, new Incoming<N>());
             checkRep();
             return true;
         }
@@ -101,7 +114,9 @@ public class Graph<N, L> {
         if (!graph.containsKey(src) || !graph.containsKey(dest)) {
             return false;
         } else {
-            graph.get(src).add(new Edge<L, N> (label, dest));
+            if (graph.get(src).insert(new ImmutableEdge<L, N>(label, dest))) {
+                incoming.get(dest).add(src);
+            }
             checkRep();
             return true;
         }
@@ -117,15 +132,20 @@ public class Graph<N, L> {
      * @spec.modifies graph
      * @spec.effects Adds edge from src to dest with label
      * to the graph if the same edge is not already
-     * present in the graph
-     * @return true if edge added successfully
+     * present in the graph. The graph keeps its own
+     * immutable copy, so changing edge afterwards does
+     * not change the graph.
+     * @return true if edge added successfully, false if src or the
+     * destination of edge is not in the graph
      */
     public boolean addEdge(N src, Edge<L,N> edge) {
         checkRep();
-        if (!graph.containsKey(src)) {
+        if (!graph.containsKey(src) || !graph.containsKey(edge.getDest())) {
             return false;
         } else {
-            graph.get(src).add(edge);
+            if (graph.get(src).insert(ImmutableEdge.of(edge))) {
+                incoming.get(edge.getDest()).add(src);
+            }
             checkRep();
             return true;
         }
@@ -135,30 +155,76 @@ public class Graph<N, L> {
 
 
     /**
-     * Return a set of nodes.
+     * Return a set of nodes. The set is a read-only view, not a copy:
+     * it costs O(1) and follows later changes to the graph, so callers
+     * that change the graph while holding it should copy it first.
      *
-     * @return a set of nodes
+     * @return an unmodifiable set of the nodes of the graph
      */
     public Set<N> getNodes() {
         checkRep();
-        Set<N> nodes = new HashSet<>(graph.keySet());
-        return nodes;
+        return Collections.unmodifiableSet(graph.keySet());
     }
 
 
 
     /**
-     * Returns a set of outgoing edges of node <var>n</var>.
+     * Returns a set of outgoing edges of node <var>n</var>. The set is a
+     * read-only view, not a copy, that follows later changes to the graph,
+     * and iterates the edges in the order they were added. Its edges are
+     * those of the graph, and cannot be changed: setLabel and
+     * setDestination throw UnsupportedOperationException.
      *
      * @param node a node
      * @spec.requires node != null, node in graph
-     * @return a set of children nodes
+     * @return an unmodifiable set of the outgoing edges of node
      */
     public Set<Edge<L,N>> listChildren(N node) {
         checkRep();
-        Set<Edge<L,N>> edges = new HashSet<Edge<L, N>>();
-        edges = graph.get(node);
-        return edges;
+        return graph.get(node);
+    }
+
+    /**
+     * Calls action with the destination and label of every outgoing edge
+     * of node <var>n</var>, in the order they were added, without building
+     * any collection or iterator.
+     *
+     * @param node a node
+     * @param action called once per outgoing edge with its destination and label
+     * @spec.requires node, action != null, node in graph, action does not
+     * change the graph
+     */
+    public void forEachChild(N node, BiConsumer<? super N, ? super L> action) {
+        checkRep();
+        EdgeList<L, N> edges = graph.get(node);
+        for (int i = 0; i < edges.size(); i++) {
+            action.accept(edges.get(i).getDest(), edges.get(i).getLabel());
+        }
+    }
+
+    /**
+     * Returns the nodes with at least one edge to node <var>n</var>, in O(1).
+     * The set is a read-only view that follows later changes to the graph.
+     *
+     * @param node a node
+     * @spec.requires node != null, node in graph
+     * @return an unmodifiable set of the parent nodes of node
+     */
+    public Set<N> listParents(N node) {
+        checkRep();
+        return Collections.unmodifiableSet(incoming.get(node).parents.keySet());
+    }
+
+    /**
+     * Returns the number of edges into node <var>n</var>, in O(1).
+     *
+     * @param node a node
+     * @spec.requires node != null, node in graph
+     * @return the number of edges with destination node
+     */
+    public int inDegree(N node) {
+        checkRep();
+        return incoming.get(node).edges;
     }
 
     /**
@@ -173,8 +239,9 @@ public class Graph<N, L> {
     public int numberOfEdges(N src, N dest) {
         checkRep();
         int edgesCount = 0;
-        for (Edge<L, N> e : graph.get(src)){
-            if (e.getDest().equals(dest)) {
+        EdgeList<L, N> edges = graph.get(src);
+        for (int i = 0; i < edges.size(); i++) {
+            if (edges.get(i).getDest().equals(dest)) {
                 edgesCount++;
             }
         }
@@ -207,7 +274,10 @@ public class Graph<N, L> {
      */
     public boolean removeEdge(N src, N dest, L label) {
         checkRep();
-        boolean removeResult = graph.get(src).remove(new Edge<L, N>(label, dest));
+        boolean removeResult = graph.get(src).delete(new Edge<L, N>(label, dest));
+        if (removeResult) {
+            incoming.get(dest).remove(src);
+        }
         checkRep();
         return removeResult;
     }
@@ -226,35 +296,34 @@ public class Graph<N, L> {
      */
     public boolean removeEdge(N src, Edge<L, N> edge) {
         checkRep();
-        boolean removeResult = graph.get(src).remove(edge);
+        boolean removeResult = graph.get(src).delete(edge);
+        if (removeResult) {
+            incoming.get(edge.getDest()).remove(src);
+        }
         checkRep();
         return removeResult;
     }
 
     /**
-     * Removes an edge from src to dest with label
-     * from the graph and returns the edge.
-     * Returns null if the specified edge doesn't exist.
+     * Removes a node without edges from the graph, in O(1): the
+     * reverse index tells whether any edge still enters it.
      *
      * @param node node to remove
-     * @spec.requires node!= null, node in graph, node.edges == empty, node.parent == empty
+     * @spec.requires node!= null
      * @spec.modifies graph
-     * @spec.effects removes specified node from graph
-     * @return the node removed from graph, null if node doesn't exist
+     * @spec.effects removes specified node from graph if it is in the
+     * graph and has no outgoing or incoming edges
+     * @return true if node was removed, false if it is not in the graph
+     * or still has edges
      */
     public boolean removeNode(N node) {
         checkRep();
-        if (!graph.get(node).isEmpty()) {
+        Set<Edge<L, N>> edges = graph.get(node);
+        if (edges == null || !edges.isEmpty() || incoming.get(node).edges > 0) {
             return false;
         } else {
-            for (N n : graph.keySet()){
-                for (Edge edge : graph.get(n)){
-                    if (edge.getDest().equals(node)){
-                        return false;
-                    }
-                }
-            }
          graph.remove(node);
+         incoming.remove(node);
          checkRep();
          return true;
         }
@@ -286,12 +355,7 @@ public class Graph<N, L> {
 
     public boolean containsEdge(N src, N dest, L label) {
         checkRep();
-        for (Edge<L, N> e : graph.get(src)) {
-            if (e.getDest().equals(dest) && e.getLabel().equals(label)) {
-                return true;
-            }
-        }
-        return false;
+        return graph.get(src).contains(new Edge<L, N>(label, dest));
     }
 
     /**
@@ -327,13 +391,159 @@ public class Graph<N, L> {
                             throw new RuntimeException("edge or it's label" +
                                     "or destination cannot be null");
                         }
+                        if (!(edge instanceof ImmutableEdge)) {
+                            throw new RuntimeException("edge " + edge + " can be changed");
+                        }
                         if (!graph.containsKey(edge.getDest())) {
                             throw new RuntimeException("graph must have node n before any edge with dest" +
                                     "         n created");
                         }
                     }
                 }
+                // check the reverse index counts exactly the edges of graph
+                Map<N, Incoming<N>> expected = new HashMap<>();
+                for (N node : graph.keySet()) {
+                    expected.put(node, new Incoming<N>());
+                }
+                for (N node : graph.keySet()) {
+                    for (Edge<L, N> edge : graph.get(node)) {
+                        expected.get(edge.getDest()).add(node);
+                    }
+                }
+                for (N node : graph.keySet()) {
+                    Incoming<N> actual = incoming.get(node);
+                    if (actual == null || actual.edges != expected.get(node).edges
+                            || !actual.parents.equals(expected.get(node).parents)) {
+                        throw new RuntimeException("reverse index out of date for " + node);
+                    }
+                }
+                if (incoming.size() != graph.size()) {
+                    throw new RuntimeException("reverse index has removed nodes");
+                }
+            }
+        }
+    }
+
+    // the outgoing edges of a node, in the order they were added, without duplicates. Most
+    // nodes have a handful of edges, which are kept in an array and found by comparing them
+    // in turn; a node with more than HASH_THRESHOLD edges also gets a hash set of them, so
+    // looking one up stays O(1). As a Set it is read-only, so it is handed out as is.
+    private static final class EdgeList<L, N> extends AbstractSet<Edge<L, N>> {
+
+        // This class does not represent an ADT.
+
+        private static final int HASH_THRESHOLD = 8;
+        private static final Edge<?, ?>[] NO_EDGES = new Edge<?, ?>[0];
+
+        @SuppressWarnings("unchecked")
+        private Edge<L, N>[] edges = (Edge<L, N>[]) NO_EDGES;
+        private int size;
+        // the edges again, once there are more than HASH_THRESHOLD of them; null otherwise
+        private HashSet<Edge<L, N>> index;
+        // changes made, so iterators notice changes under them
+        private int modCount;
+
+        // adds edge unless an equal one is present; true if it was added
+        boolean insert(Edge<L, N> edge) {
+            if (contains(edge)) {
+                return false;
+            }
+            if (size == edges.length) {
+                edges = Arrays.copyOf(edges, Math.max(2, size + (size >> 1)));
+            }
+            edges[size++] = edge;
+            if (index != null) {
+                index.add(edge);
+            } else if (size > HASH_THRESHOLD) {
+                index = new HashSet<>(Arrays.asList(edges).subList(0, size));
+            }
+            modCount++;
+            return true;
+        }
+
+        // removes the edge equal to edge, keeping the order of the rest; true if there was one
+        boolean delete(Edge<L, N> edge) {
+            if (index != null && !index.remove(edge)) {
+                return false;
             }
+            int i = indexOf(edge);
+            if (i < 0) {
+                return false;
+            }
+            System.arraycopy(edges, i + 1, edges, i, size - i - 1);
+            edges[--size] = null;
+            if (index != null && size <= HASH_THRESHOLD / 2) {
+                index = null;
+            }
+            modCount++;
+            return true;
+        }
+
+        private int indexOf(Object edge) {
+            for (int i = 0; i < size; i++) {
+                if (edges[i].equals(edge)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        Edge<L, N> get(int i) {
+            return edges[i];
+        }
+
+        @Override
+        public boolean contains(Object edge) {
+            return index != null ? index.contains(edge) : indexOf(edge) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<Edge<L, N>> iterator() {
+            return new Iterator<Edge<L, N>>() {
+                private final int expectedModCount = modCount;
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < size;
+                }
+
+                @Override
+                public Edge<L, N> next() {
+                    if (modCount != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    if (next >= size) {
+                        throw new NoSuchElementException();
+                    }
+                    return edges[next++];
+                }
+            };
+        }
+    }
+
+    // the incoming edges of a node: how many come from each parent, and in total
+    private static final class Incoming<N> {
+
+        // This class does not represent an ADT.
+
+        private final Map<N, Integer> parents = new HashMap<>(4);
+        private int edges;
+
+        void add(N parent) {
+            parents.merge(parent, 1, Integer::sum);
+            edges++;
+        }
+
+        void remove(N parent) {
+            // a count that drops to zero removes the parent
+            parents.computeIfPresent(parent, (p, count) -> count == 1 ? null : count - 1);
+            edges--;
         }
     }
 }
@@ -0,0 +1,68 @@
+package graph;
+
+/**
+ * ImmutableEdge represents an Edge whose label and destination cannot change. Graphs
+ * store their edges as ImmutableEdges and hand them out as they are, so a caller that
+ * holds an edge of a graph cannot change the edge under the graph and its indexes.
+ *
+ * @spec.specfield label : L
+ * // label of the edge
+ * @spec.specfield destination : N
+ * // destination node of the edge
+ */
+final class ImmutableEdge<L, N> extends Edge<L, N> {
+
+    /*
+     Rep invariant and abstract function: those of Edge; the label and destination
+     are never changed after construction.
+     */
+
+    /**
+     * Creates a labeled edge that cannot be changed.
+     *
+     * @param label label of the edge
+     * @param dest destination of the edge
+     * @spec.requires label != null, dest != null
+     * @spec.effects constructs a labeled edge with label label and destination dest
+     */
+    ImmutableEdge(L label, N dest) {
+        super(label, dest);
+    }
+
+    /**
+     * Returns an immutable edge equal to edge: edge itself if it is one already,
+     * otherwise a copy of it.
+     *
+     * @param edge an edge
+     * @spec.requires edge != null
+     * @return an ImmutableEdge with the label and destination of edge
+     */
+    static <L, N> ImmutableEdge<L, N> of(Edge<L, N> edge) {
+        if (edge instanceof ImmutableEdge) {
+            return (ImmutableEdge<L, N>) edge;
+        }
+        return new ImmutableEdge<>(edge.getLabel(), edge.getDest());
+    }
+
+    /**
+     * Always throws: the label of this edge cannot change.
+     *
+     * @param newLabel ignored
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void setLabel(L newLabel) {
+        throw new UnsupportedOperationException("edges of a graph cannot be changed");
+    }
+
+    /**
+     * Always throws: the destination of this edge cannot change.
+     *
+     * @param dest ignored
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void setDestination(N dest) {
+        throw new UnsupportedOperationException("edges of a graph cannot be changed");
+    }
+}
@@ -0,0 +1,485 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * IntGraph represents a mutable directed graph whose nodes are non-negative int ids and
+ * whose edges carry primitive double weights. It is the primitive counterpart of
+ * {@code Graph<Integer, Double>}: all edges are kept in two flat arrays of targets and
+ * weights shared by every node, and each node owns a region of consecutive slots of
+ * them, found by its start and degree. That takes 12 bytes per edge and 9 per node, plus
+ * the spare room of the regions, instead of an Edge, a Double and a hash entry per edge
+ * and a HashSet per node. Like Graph, it holds at most one edge with the same source,
+ * destination and weight; weights are compared the way Double.equals compares them.
+ * <p>
+ * A region holds a power of two of slots; a node whose region is full moves its edges
+ * to one twice as large, and its old region is kept on a free list for the next node
+ * that needs one of that size. {@link #trimToSize()} packs every region to exactly its
+ * edges, so a graph that is done growing takes 12 bytes per edge and 9 per node.
+ * <p>
+ * Ids index arrays directly, so they should be dense: a graph with largest id k takes
+ * O(k) memory however few nodes it has. The edges of a node are kept in the order they
+ * were added, so iterating them is deterministic, and can be walked without allocating
+ * with {@link #outDegree(int)}, {@link #target(int, int)} and {@link #weight(int, int)}.
+ *
+ * @spec.specfield nodes : set of int
+ * // the nodes of the graph
+ * @spec.specfield edges : sequence of (source, destination, weight) for each node
+ * // the weighted outgoing edges of each node, in the order they were added
+ */
+public class IntGraph {
+
+    /*
+     Rep invariant:
+         targets, weights, starts, degrees, sizeClasses, freeLists != null
+         targets.length == weights.length >= used
+         starts.length == degrees.length == sizeClasses.length
+         degrees[n] == -1 for every id n that is not a node
+         for every node n: degrees[n] >= 0, and its region is the slots from
+             starts[n] to starts[n] + capacity(n), within [0, used), where
+             capacity(n) == 1 << sizeClasses[n], or degrees[n] if sizeClasses[n] == EXACT
+         degrees[n] <= capacity(n), and every targets[i] of the first degrees[n] slots
+             of the region of a node is a node
+         freeLists[k] chains, through targets, regions of 1 << k slots within [0, used)
+         no two regions of nodes or of the free lists overlap
+         no node has two edges with the same target and Double.compare-equal weights
+         nodeCount is the number of nodes, edgeCount the sum of their degrees
+
+     Abstract function:
+         AF(this) = directed graph g such that
+             g.nodes = {n | degrees[n] >= 0}
+             the edges of node n are (n, targets[starts[n] + i], weights[starts[n] + i])
+             for 0 <= i < degrees[n], in that order
+     */
+
+    // size class of a region that holds exactly the edges of its node, as trimToSize
+    // leaves them, and of the empty region of a node without edges
+    private static final byte EXACT = -1;
+    // the size class of the first region of a node, two slots
+    private static final int FIRST_CLASS = 1;
+    // the end of a free list
+    private static final int NONE = -1;
+
+    // the slots of all regions; slots at and beyond used are spare
+    private int[] targets;
+    private double[] weights;
+    private int used;
+    // region of node n: starts[n], degrees[n] edges and a size class
+    private int[] starts;
+    private int[] degrees;
+    private byte[] sizeClasses;
+    // freeLists[k] is the first free region of 1 << k slots, or NONE
+    private final int[] freeLists = new int[Integer.SIZE];
+    private int nodeCount;
+    private int edgeCount;
+
+    // to enable or disable checkRep()
+    private final boolean CHECK_REP_ENABLE = false;
+
+    /**
+     * Creates an empty graph.
+     *
+     * @spec.effects constructs an empty directed graph
+     */
+    public IntGraph() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty graph with room for node ids up to expectedNodes - 1.
+     *
+     * @param expectedNodes the number of node ids to make room for
+     * @spec.effects constructs an empty directed graph
+     * @throws IllegalArgumentException if expectedNodes is negative
+     */
+    public IntGraph(int expectedNodes) {
+        if (expectedNodes < 0) {
+            throw new IllegalArgumentException("negative node capacity " + expectedNodes);
+        }
+        targets = new int[2 * expectedNodes];
+        weights = new double[2 * expectedNodes];
+        starts = new int[expectedNodes];
+        degrees = new int[expectedNodes];
+        sizeClasses = new byte[expectedNodes];
+        Arrays.fill(degrees, -1);
+        Arrays.fill(freeLists, NONE);
+        checkRep();
+    }
+
+    /**
+     * Adds node to the graph if it is not already present.
+     *
+     * @param node the id of the node to add
+     * @spec.modifies this
+     * @spec.effects adds node with no edges if it is not already present
+     * @return true if this graph did not already contain node
+     * @throws IllegalArgumentException if node is negative
+     */
+    public boolean addNode(int node) {
+        if (node < 0) {
+            throw new IllegalArgumentException("negative node id " + node);
+        }
+        if (node >= degrees.length) {
+            growNodes(node + 1);
+        } else if (degrees[node] >= 0) {
+            return false;
+        }
+        starts[node] = 0;
+        degrees[node] = 0;
+        sizeClasses[node] = EXACT;
+        nodeCount++;
+        checkRep();
+        return true;
+    }
+
+    // makes room for node ids below minCapacity, growing by half at least
+    private void growNodes(int minCapacity) {
+        int old = degrees.length;
+        int capacity = Math.max(minCapacity, old + (old >> 1));
+        starts = Arrays.copyOf(starts, capacity);
+        degrees = Arrays.copyOf(degrees, capacity);
+        sizeClasses = Arrays.copyOf(sizeClasses, capacity);
+        Arrays.fill(degrees, old, capacity, -1);
+    }
+
+    /**
+     * Return true if node is in the graph.
+     *
+     * @param node a node id
+     * @return true if node is a node of this graph
+     */
+    public boolean containsNode(int node) {
+        return node >= 0 && node < degrees.length && degrees[node] >= 0;
+    }
+
+    /**
+     * Adds an edge from src to dest with weight if both nodes exist in the graph and
+     * the same edge is not already present.
+     *
+     * @param src    start of the edge
+     * @param dest   end of the edge
+     * @param weight weight of the edge
+     * @spec.modifies this
+     * @spec.effects appends the edge to the edges of src if it is not already present
+     * @return true if src and dest are in the graph, false otherwise
+     */
+    public boolean addEdge(int src, int dest, double weight) {
+        if (!containsNode(src) || !containsNode(dest)) {
+            return false;
+        }
+        if (indexOf(src, dest, weight) < 0) {
+            int degree = degrees[src];
+            if (degree == capacity(src)) {
+                moveRegion(src);
+            }
+            targets[starts[src] + degree] = dest;
+            weights[starts[src] + degree] = weight;
+            degrees[src] = degree + 1;
+            edgeCount++;
+        }
+        checkRep();
+        return true;
+    }
+
+    // number of slots in the region of node
+    private int capacity(int node) {
+        return sizeClasses[node] == EXACT ? degrees[node] : 1 << sizeClasses[node];
+    }
+
+    // moves the edges of node to a region of the next size class, and frees its old
+    // region; a region left by trimToSize has no size class and stays unused until the
+    // next trimToSize
+    private void moveRegion(int node) {
+        int degree = degrees[node];
+        int sizeClass = sizeClasses[node] == EXACT
+                ? Math.max(FIRST_CLASS, Integer.SIZE - Integer.numberOfLeadingZeros(degree))
+                : sizeClasses[node] + 1;
+        int start = allocate(sizeClass);
+        System.arraycopy(targets, starts[node], targets, start, degree);
+        System.arraycopy(weights, starts[node], weights, start, degree);
+        if (sizeClasses[node] != EXACT) {
+            targets[starts[node]] = freeLists[sizeClasses[node]];
+            freeLists[sizeClasses[node]] = starts[node];
+        }
+        starts[node] = start;
+        sizeClasses[node] = (byte) sizeClass;
+    }
+
+    // the start of a free region of 1 << sizeClass slots, taken off its free list or
+    // from the spare slots, which grow by half at least
+    private int allocate(int sizeClass) {
+        int start = freeLists[sizeClass];
+        if (start != NONE) {
+            freeLists[sizeClass] = targets[start];
+            return start;
+        }
+        int size = 1 << sizeClass;
+        if (used + size > targets.length) {
+            int capacity = Math.max(used + size, targets.length + (targets.length >> 1));
+            targets = Arrays.copyOf(targets, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+        }
+        start = used;
+        used += size;
+        return start;
+    }
+
+    /**
+     * Removes the edge from src to dest with weight. The other edges of src keep
+     * their order.
+     *
+     * @param src    origin of the edge
+     * @param dest   destination of the edge
+     * @param weight weight of the edge
+     * @spec.modifies this
+     * @spec.effects removes the specified edge if it is present
+     * @return true if the edge was removed, false if it is not in the graph
+     */
+    public boolean removeEdge(int src, int dest, double weight) {
+        int index = containsNode(src) ? indexOf(src, dest, weight) : -1;
+        if (index < 0) {
+            return false;
+        }
+        int slot = starts[src] + index;
+        int tail = degrees[src] - index - 1;
+        System.arraycopy(targets, slot + 1, targets, slot, tail);
+        System.arraycopy(weights, slot + 1, weights, slot, tail);
+        // an exact region shrinks with its edges, and its last slot is left unused
+        // until the next trimToSize
+        degrees[src]--;
+        edgeCount--;
+        checkRep();
+        return true;
+    }
+
+    /**
+     * Return true if an edge from src to dest with weight exists.
+     *
+     * @param src    a source node
+     * @param dest   a destination node
+     * @param weight weight of the edge
+     * @return true if the graph has an edge from src to dest with weight
+     */
+    public boolean containsEdge(int src, int dest, double weight) {
+        return containsNode(src) && indexOf(src, dest, weight) >= 0;
+    }
+
+    // position of the edge among the edges of node src, or -1 if it has none such
+    private int indexOf(int src, int dest, double weight) {
+        int start = starts[src];
+        for (int i = 0; i < degrees[src]; i++) {
+            if (targets[start + i] == dest && Double.compare(weights[start + i], weight) == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns number of edges from one node to another node.
+     *
+     * @param src  origin of the edges
+     * @param dest destination of the edges
+     * @spec.requires src in graph
+     * @return number of edges from src to dest
+     */
+    public int numberOfEdges(int src, int dest) {
+        int count = 0;
+        for (int i = starts[src]; i < starts[src] + degrees[src]; i++) {
+            if (targets[i] == dest) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param node a node
+     * @spec.requires node in graph
+     * @return the number of outgoing edges of node
+     */
+    public int outDegree(int node) {
+        return degrees[node];
+    }
+
+    /**
+     * @param node  a node
+     * @param index the position of an edge among the outgoing edges of node
+     * @spec.requires node in graph, 0 <= index < outDegree(node)
+     * @return the destination of that edge
+     */
+    public int target(int node, int index) {
+        return targets[starts[node] + index];
+    }
+
+    /**
+     * @param node  a node
+     * @param index the position of an edge among the outgoing edges of node
+     * @spec.requires node in graph, 0 <= index < outDegree(node)
+     * @return the weight of that edge
+     */
+    public double weight(int node, int index) {
+        return weights[starts[node] + index];
+    }
+
+    /**
+     * Receives the outgoing edges of a node.
+     */
+    public interface ChildVisitor {
+        void visit(int dest, double weight);
+    }
+
+    /**
+     * Calls visitor with the destination and weight of every outgoing edge of node, in
+     * order.
+     *
+     * @param node    a node
+     * @param visitor called once per outgoing edge
+     * @spec.requires node in graph, visitor != null and does not change the graph
+     */
+    public void forEachChild(int node, ChildVisitor visitor) {
+        for (int i = starts[node]; i < starts[node] + degrees[node]; i++) {
+            visitor.visit(targets[i], weights[i]);
+        }
+    }
+    /**
+     * Returns number of nodes in the graph.
+     *
+     * @return number of nodes in the graph
+     */
+    public int size() {
+        return nodeCount;
+    }
+
+    /**
+     * @return the number of edges in the graph
+     */
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * @return a bound on the node ids: every node is less than it
+     */
+    public int idBound() {
+        return degrees.length;
+    }
+
+    /**
+     * Releases the spare room of the edge arrays and the node arrays, for a graph that
+     * is done growing: the regions are packed in node order, each to exactly its edges.
+     *
+     * @spec.modifies this
+     * @spec.effects none on the nodes and edges of the graph
+     */
+    public void trimToSize() {
+        int bound = degrees.length;
+        while (bound > 0 && degrees[bound - 1] < 0) {
+            bound--;
+        }
+        starts = Arrays.copyOf(starts, bound);
+        degrees = Arrays.copyOf(degrees, bound);
+        sizeClasses = Arrays.copyOf(sizeClasses, bound);
+        int[] packedTargets = new int[edgeCount];
+        double[] packedWeights = new double[edgeCount];
+        int next = 0;
+        for (int node = 0; node < bound; node++) {
+            if (degrees[node] >= 0) {
+                System.arraycopy(targets, starts[node], packedTargets, next, degrees[node]);
+                System.arraycopy(weights, starts[node], packedWeights, next, degrees[node]);
+                starts[node] = next;
+                sizeClasses[node] = EXACT;
+                next += degrees[node];
+            }
+        }
+        targets = packedTargets;
+        weights = packedWeights;
+        used = next;
+        Arrays.fill(freeLists, NONE);
+        checkRep();
+    }
+
+    /**
+     * Returns string representation of the graph
+     * @return string representation of the graph, with each node and its edges as
+     * dest(weight)
+     */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("{");
+        for (int node = 0; node < degrees.length; node++) {
+            if (degrees[node] >= 0) {
+                result.append(result.length() > 1 ? ", " : "").append(node).append("=[");
+                for (int i = 0; i < degrees[node]; i++) {
+                    result.append(i > 0 ? ", " : "").append(target(node, i))
+                            .append('(').append(weight(node, i)).append(')');
+                }
+                result.append(']');
+            }
+        }
+        return result.append('}').toString();
+    }
+
+    /**
+     * Checks if rep inv holds.
+     */
+    private void checkRep() throws RuntimeException {
+        if (CHECK_REP_ENABLE) {
+            if (targets.length != weights.length || targets.length < used
+                    || starts.length != degrees.length || starts.length != sizeClasses.length) {
+                throw new RuntimeException("arrays of different lengths");
+            }
+            // owner[i] is 1 + the node whose region has slot i, or -1 for a free region
+            int[] owner = new int[used];
+            int nodes = 0;
+            int edges = 0;
+            for (int node = 0; node < degrees.length; node++) {
+                if (degrees[node] < 0) {
+                    if (degrees[node] != -1) {
+                        throw new RuntimeException("absent node " + node + " is marked wrong");
+                    }
+                    continue;
+                }
+                nodes++;
+                edges += degrees[node];
+                if (degrees[node] > capacity(node) || starts[node] < 0
+                        || starts[node] + capacity(node) > used) {
+                    throw new RuntimeException("bad region of node " + node);
+                }
+                claim(owner, starts[node], capacity(node), node + 1);
+                for (int i = 0; i < degrees[node]; i++) {
+                    if (!containsNode(target(node, i))) {
+                        throw new RuntimeException("edge of " + node + " to a missing node");
+                    }
+                    for (int j = 0; j < i; j++) {
+                        if (target(node, i) == target(node, j)
+                                && Double.compare(weight(node, i), weight(node, j)) == 0) {
+                            throw new RuntimeException("duplicate edge of node " + node);
+                        }
+                    }
+                }
+            }
+            for (int sizeClass = 0; sizeClass < freeLists.length; sizeClass++) {
+                for (int start = freeLists[sizeClass]; start != NONE; start = targets[start]) {
+                    claim(owner, start, 1 << sizeClass, -1);
+                }
+            }
+            if (nodes != nodeCount || edges != edgeCount) {
+                throw new RuntimeException("node or edge count out of date");
+            }
+        }
+    }
+
+    // marks the slots of a region as owned by owner, and throws if one already is
+    private static void claim(int[] owners, int start, int size, int owner) {
+        if (start < 0 || start + size > owners.length) {
+            throw new RuntimeException("region out of the used slots");
+        }
+        for (int i = start; i < start + size; i++) {
+            if (owners[i] != 0) {
+                throw new RuntimeException("regions overlap at slot " + i);
+            }
+            owners[i] = owner;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * IntGraphAdapter represents a mutable directed graph with nodes of any type and double
+ * edge weights, stored in an {@link IntGraph}. Every node is given an int id by a
+ * {@link NodeIds} table, and the edges are kept by id with primitive weights, so code
+ * written against nodes keeps the memory footprint of the primitive graph. By default
+ * the adapter numbers nodes in a HashMap of its own; a caller that already has dense ids
+ * for its nodes, like an interner, can supply them instead and then work on
+ * {@link #getIntGraph()} by id directly.
+ * <p>
+ * The graph holds the same nodes and edges a {@code Graph<N, Double>} built with the same
+ * calls would, and {@link #toGraph()} builds that Graph for code that needs one.
+ *
+ * @spec.specfield nodes : N
+ * // the nodes of the graph
+ * @spec.specfield edges : (N, N, double)
+ * // the weighted directed edges of the graph
+ */
+public class IntGraphAdapter<N> {
+
+    /*
+     Rep invariant:
+         graph, ids != null
+         for every node n of graph, ids.node(n) != null and ids.idOf(ids.node(n)) == n
+
+     Abstract function:
+         AF(this) = directed graph g such that
+             g.nodes = {ids.node(n) | n is a node of graph}
+             g has an edge from ids.node(s) to ids.node(t) with weight w for every
+             edge (s, t, w) of graph
+     */
+
+    /**
+     * Numbers the nodes of an IntGraphAdapter with dense, non-negative ids.
+     */
+    public interface NodeIds<N> {
+
+        /**
+         * @param node a node
+         * @return the id of node, which is given the next free id if it has none
+         */
+        int intern(N node);
+
+        /**
+         * @param node a node
+         * @return the id of node, or -1 if it has none
+         */
+        int idOf(N node);
+
+        /**
+         * @param id an id given out by intern
+         * @return the node with that id
+         */
+        N node(int id);
+    }
+
+    private final IntGraph graph;
+    private final NodeIds<N> ids;
+
+    /**
+     * Creates an empty graph that numbers its nodes itself.
+     *
+     * @spec.effects constructs an empty directed graph
+     */
+    public IntGraphAdapter() {
+        this(new HashNodeIds<N>());
+    }
+
+    /**
+     * Creates an empty graph whose nodes are numbered by ids. Nodes that already have
+     * ids are not added to the graph until addNode is called with them.
+     *
+     * @param ids the table that numbers the nodes
+     * @spec.requires ids != null
+     * @spec.effects constructs an empty directed graph
+     */
+    public IntGraphAdapter(NodeIds<N> ids) {
+        this.graph = new IntGraph();
+        this.ids = ids;
+    }
+
+    /**
+     * Adds node to the graph if it is not already present.
+     *
+     * @param node a node to be added
+     * @spec.modifies this
+     * @spec.effects adds node with no edges if it is not already present
+     * @return true if this graph did not already contain node
+     */
+    public boolean addNode(N node) {
+        return node != null && graph.addNode(ids.intern(node));
+    }
+
+    /**
+     * Return true if node is in the graph.
+     *
+     * @param node a node
+     * @return true if node exists in graph
+     */
+    public boolean containsNode(N node) {
+        return node != null && graph.containsNode(ids.idOf(node));
+    }
+
+    /**
+     * Adds an edge from src to dest with weight if both nodes exist in the graph and
+     * the same edge is not already present.
+     *
+     * @param src    start of the edge
+     * @param dest   end of the edge
+     * @param weight weight of the edge
+     * @spec.requires src, dest != null
+     * @spec.modifies this
+     * @spec.effects adds the edge if it is not already present
+     * @return true if src and dest are in the graph, false otherwise
+     */
+    public boolean addEdge(N src, N dest, double weight) {
+        return graph.addEdge(ids.idOf(src), ids.idOf(dest), weight);
+    }
+
+    /**
+     * Removes the edge from src to dest with weight.
+     *
+     * @param src    origin of the edge
+     * @param dest   destination of the edge
+     * @param weight weight of the edge
+     * @spec.requires src, dest != null
+     * @spec.modifies this
+     * @spec.effects removes the specified edge if it is present
+     * @return true if the edge was removed, false if it is not in the graph
+     */
+    public boolean removeEdge(N src, N dest, double weight) {
+        return graph.removeEdge(ids.idOf(src), ids.idOf(dest), weight);
+    }
+
+    /**
+     * Return true if an edge from src to dest with weight exists.
+     *
+     * @param src    a source node
+     * @param dest   a destination node
+     * @param weight weight of the edge
+     * @spec.requires src, dest != null
+     * @return true if the graph has an edge from src to dest with weight
+     */
+    public boolean containsEdge(N src, N dest, double weight) {
+        int destId = ids.idOf(dest);
+        return destId >= 0 && graph.containsEdge(ids.idOf(src), destId, weight);
+    }
+
+    /**
+     * Returns number of edges from one node to another node.
+     *
+     * @param src  origin of the edges
+     * @param dest destination of the edges
+     * @spec.requires src, dest != null, src in graph
+     * @return number of edges from src to dest
+     */
+    public int numberOfEdges(N src, N dest) {
+        int destId = ids.idOf(dest);
+        return destId < 0 ? 0 : graph.numberOfEdges(ids.idOf(src), destId);
+    }
+
+    /**
+     * Receives the outgoing edges of a node.
+     */
+    public interface ChildVisitor<N> {
+        void visit(N dest, double weight);
+    }
+
+    /**
+     * Calls visitor with the destination and weight of every outgoing edge of node,
+     * without boxing the weights.
+     *
+     * @param node    a node
+     * @param visitor called once per outgoing edge
+     * @spec.requires node in graph, visitor != null and does not change the graph
+     */
+    public void forEachChild(N node, ChildVisitor<? super N> visitor) {
+        graph.forEachChild(ids.idOf(node), (dest, weight) -> visitor.visit(ids.node(dest), weight));
+    }
+
+    /**
+     * Returns number of nodes in the graph.
+     *
+     * @return number of nodes in the graph
+     */
+    public int size() {
+        return graph.size();
+    }
+
+    /**
+     * @param node a node
+     * @spec.requires node != null
+     * @return the id of node in getIntGraph(), or -1 if it has none
+     */
+    public int idOf(N node) {
+        return ids.idOf(node);
+    }
+
+    /**
+     * @param id a node of getIntGraph()
+     * @spec.requires id is a node of getIntGraph()
+     * @return the node with id
+     */
+    public N node(int id) {
+        return ids.node(id);
+    }
+
+    /**
+     * @return the primitive graph behind this one; changes to either show in both
+     */
+    public IntGraph getIntGraph() {
+        return graph;
+    }
+
+    /**
+     * Builds a generic graph with the same nodes and edges, the weights boxed as labels.
+     *
+     * @return a new Graph equal to this graph
+     */
+    public Graph<N, Double> toGraph() {
+        Graph<N, Double> result = new Graph<>();
+        for (int id = 0; id < graph.idBound(); id++) {
+            if (graph.containsNode(id)) {
+                result.addNode(ids.node(id));
+            }
+        }
+        for (int id = 0; id < graph.idBound(); id++) {
+            if (graph.containsNode(id)) {
+                N src = ids.node(id);
+                graph.forEachChild(id, (dest, weight) -> result.addEdge(src, ids.node(dest), weight));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return toGraph().toString();
+    }
+
+    // numbers nodes in the order they are first seen
+    private static final class HashNodeIds<N> implements NodeIds<N> {
+
+        // This class does not represent an ADT.
+
+        private final Map<N, Integer> ids = new HashMap<>();
+        private final List<N> nodes = new ArrayList<>();
+
+        @Override
+        public int intern(N node) {
+            Integer id = ids.get(node);
+            if (id == null) {
+                id = nodes.size();
+                ids.put(node, id);
+                nodes.add(node);
+            }
+            return id;
+        }
+
+        @Override
+        public int idOf(N node) {
+            Integer id = ids.get(node);
+            return id == null ? -1 : id;
+        }
+
+        @Override
+        public N node(int id) {
+            return nodes.get(id);
+        }
+    }
+}
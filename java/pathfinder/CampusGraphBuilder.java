@@ -0,0 +1,71 @@
+package pathfinder;
+
+import graph.IntGraph;
+import graph.IntGraphAdapter;
+import pathfinder.datastructures.Point;
+import pathfinder.datastructures.PointInterner;
+import pathfinder.parser.CampusPathsParser.CampusPathVisitor;
+
+/**
+ * CampusGraphBuilder builds the campus graph from path rows as the parser streams them,
+ * so no row is kept after it has been added. Every distinct coordinate becomes one
+ * canonical Point, interned into a dense id table, and is added to the graph the first
+ * time it is seen; every row becomes one edge. The graph is an {@link IntGraphAdapter}
+ * numbered by that table, so edges are stored by id with primitive weights.
+ * <p>
+ * Pass a builder to {@link pathfinder.parser.CampusPathsParser#parseCampusPaths(CampusPathVisitor)}
+ * and take the graph with {@link #getGraph()} afterwards.
+ */
+public class CampusGraphBuilder implements CampusPathVisitor {
+
+    // This class does not represent an ADT.
+
+    private final PointInterner nodes = new PointInterner();
+    private final IntGraphAdapter<Point> graph = new IntGraphAdapter<>(
+            new IntGraphAdapter.NodeIds<Point>() {
+                @Override
+                public int intern(Point node) {
+                    return nodes.intern(node);
+                }
+
+                @Override
+                public int idOf(Point node) {
+                    return nodes.idOf(node);
+                }
+
+                @Override
+                public Point node(int id) {
+                    return nodes.point(id);
+                }
+            });
+
+    @Override
+    public void visit(double x1, double y1, double x2, double y2, double distance) {
+        IntGraph edges = graph.getIntGraph();
+        edges.addEdge(internNode(edges, x1, y1), internNode(edges, x2, y2), distance);
+    }
+
+    // the id of the point at (x, y), added to the graph the first time it is seen
+    private int internNode(IntGraph edges, double x, double y) {
+        int known = nodes.size();
+        int id = nodes.intern(x, y);
+        if (id == known) {
+            edges.addNode(id);
+        }
+        return id;
+    }
+
+    /**
+     * @return the graph of the rows visited so far; it is the builder's own graph, not a copy
+     */
+    public IntGraphAdapter<Point> getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the table of distinct points visited so far, with their ids
+     */
+    public PointInterner getNodes() {
+        return nodes;
+    }
+}
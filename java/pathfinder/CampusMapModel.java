@@ -6,10 +6,32 @@ import pathfinder.datastructures.Point;
 import pathfinder.parser.CampusBuilding;
 import pathfinder.parser.CampusPath;
 import pathfinder.parser.CampusPathsParser;
-
+import pathfinder.routing.AStarEngine;
+import pathfinder.routing.AltEngine;
+import pathfinder.routing.BidirectionalDijkstraEngine;
+import pathfinder.routing.BuildingRouteTable;
+import pathfinder.routing.ContractionHierarchy;
+import pathfinder.routing.ContractionHierarchyEngine;
+import pathfinder.routing.CsrGraph;
+import pathfinder.routing.DijkstraEngine;
+import pathfinder.routing.GraphEdits;
+import pathfinder.routing.Landmarks;
+import pathfinder.routing.ManyToManyEngine;
+import pathfinder.routing.RoutingAlgorithm;
+import pathfinder.routing.RoutingEngine;
+import pathfinder.routing.SpatialIndex;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 
 
 /**
@@ -19,6 +41,14 @@ import java.util.Map;
  * @spec.specfield campusGraph : Graph
  * @spec.specfield buildings : List of campus building
  * @spec.specfield paths : List of campus paths
+ * @spec.specfield routingGraph : CsrGraph
+ * // read-only snapshot of campusGraph that the search engines run on
+ * @spec.specfield buildingRouteTable : BuildingRouteTable
+ * // precomputed shortest routes between every pair of buildings
+ * @spec.specfield spatialIndex : SpatialIndex
+ * // k-d tree over the nodes of routingGraph, to snap locations to the paths
+ * @spec.specfield edits : GraphEdits
+ * // closed paths and detours applied on top of the paths read from the data
  *
  *
  * @author Omar Akaales
@@ -33,8 +63,16 @@ public class CampusMapModel {
 
     /*
      Rep invariant:
-         CampusGraph, buildings, paths != null
+         buildings, routingGraph, routingEngines != null
+         paths is null unless set by withPaths; getPaths() then views routingGraph
          All paths and buildings in graph are not null.
+         routingGraph is a snapshot of campusGraph; campusGraph is null until
+             getCampusGraph builds it from routingGraph, and is never replaced after
+         baseGraph, edits != null, and routingGraph == baseGraph.withEdits(edits)
+         routingEngines has an engine over routingGraph for every RoutingAlgorithm
+         spatialIndex indexes the nodes of baseGraph, which routingGraph shares
+         buildingRouteTable covers the node of every building of
+             buildingsShortNameToCoord, see buildingNode
 
      Abstract function:
          AF(this) = is a model that contains campus graph
@@ -45,69 +83,349 @@ public class CampusMapModel {
 
 
 
-    private Graph<Point, Double> campusGraph;
+    private CsrGraph routingGraph;
+    // built from routingGraph by the first call of getCampusGraph, under campusGraphLock
+    private volatile Graph<Point, Double> campusGraph;
+    private final Object campusGraphLock = new Object();
+    // the routing graph of the data as it was read, and the edits made to it since
+    private CsrGraph baseGraph;
+    private GraphEdits edits;
+    private SpatialIndex spatialIndex;
+    // indexes of baseGraph that edits make invalid, kept to derive those of new versions
+    private ContractionHierarchyEngine baseHierarchyEngine;
+    private Landmarks baseLandmarks;
+    private Map<RoutingAlgorithm, RoutingEngine> routingEngines;
+    private BuildingRouteTable buildingRouteTable;
+    private ManyToManyEngine manyToManyEngine;
     private List<CampusBuilding> buildings;
     private List<CampusPath> paths;
     private Map<String, String> buildingsShortNameToLong;
     private Map<String, Point> buildingsShortNameToCoord;
     private final boolean CHECK_REP_ENABLE = false;
 
+    // system property naming a file the contraction hierarchy is cached in between runs
+    private static final String CH_ARTIFACT_PROPERTY = "pathfinder.chArtifact";
+
+    // system property setting how many landmarks the ALT engine selects
+    private static final String LANDMARKS_PROPERTY = "pathfinder.landmarks";
+
+    // system property naming a file the parsed campus data is cached in between runs
+    private static final String SNAPSHOT_PROPERTY = "pathfinder.snapshot";
+
 
     /**
-     * Creates a model with parsed data from data files.
+     * Creates a model with parsed data from data files. If the system property
+     * pathfinder.snapshot names a file, the data is mapped from that binary snapshot
+     * when it is up to date with the data files, and the snapshot is (re)written
+     * from the data files otherwise.
      *
      * @spec.effects constructs a model with data about campus map
      */
 
     public CampusMapModel(){
-        buildings = CampusPathsParser.parseCampusBuildings();
-        paths = CampusPathsParser.parseCampusPaths();
-        campusGraph = new Graph<>();
         buildingsShortNameToLong = new HashMap<>();
         buildingsShortNameToCoord = new HashMap<>();
+        String snapshotFile = System.getProperty(SNAPSHOT_PROPERTY);
+        if (snapshotFile == null) {
+            parseDataFiles();
+        } else {
+            loadSnapshot(Paths.get(snapshotFile));
+        }
         buildLists();
-        addCoordToCampusGraph();
+        buildRoutingIndexes();
         checkRep();
     }
 
-    // initialize building lists
+    // parse both data files and build the routing snapshot of the campus graph;
+    // path rows stream straight into the graph and are not kept
+    private void parseDataFiles() {
+        buildings = CampusPathsParser.parseCampusBuildings();
+        CampusGraphBuilder builder = new CampusGraphBuilder();
+        CampusPathsParser.parseCampusPathsParallel(CampusPathsParser.campusPathsFile(), builder);
+        routingGraph = CsrGraph.fromGraph(builder.getGraph());
+        // the boxed Graph is only built if asked for, the primitive one is dropped here
+        paths = null;
+    }
+
+    // take buildings and routing graph from the snapshot in file if it is current,
+    // otherwise parse the data files and save a fresh snapshot to file
+    private void loadSnapshot(java.nio.file.Path file) {
+        long checksum;
+        try {
+            checksum = CampusSnapshot.sourceChecksum();
+        } catch (IOException e) {
+            // let the parser report the unreadable data files
+            parseDataFiles();
+            return;
+        }
+        if (Files.isRegularFile(file)) {
+            try {
+                CampusSnapshot snapshot = CampusSnapshot.load(file, checksum);
+                buildings = snapshot.getBuildings();
+                routingGraph = snapshot.getGraph();
+                // campusGraph and paths are derived from routingGraph when asked for
+                return;
+            } catch (IOException e) {
+                // stale or damaged snapshot, parse the data files below
+            }
+        }
+        parseDataFiles();
+        try {
+            new CampusSnapshot(checksum, buildings, routingGraph).save(file);
+        } catch (IOException e) {
+            // the snapshot is only a cache, the model works without it
+        }
+    }
+
+    // initialize building lists; a building on the campus graph shares its node's Point
     private void buildLists() {
         for (CampusBuilding building : buildings) {
             this.buildingsShortNameToLong.put(building.getShortName(),building.getLongName());
-            this.buildingsShortNameToCoord.put(building.getShortName(),
-                    new Point(building.getX(),building.getY()));
+            int id = routingGraph.idOf(building.getX(), building.getY());
+            this.buildingsShortNameToCoord.put(building.getShortName(), id >= 0
+                    ? routingGraph.point(id) : new Point(building.getX(), building.getY()));
         }
     }
 
-    // add coordinates to campus graph map
-    private void addCoordToCampusGraph() {
-        for (CampusPath path : paths) {
-            Point start = new Point(path.getX1(), path.getY1());
-            Point end = new Point(path.getX2(), path.getY2());
-            if (!campusGraph.containsNode(start)) {
-                campusGraph.addNode(start);
-            }
-            if (!campusGraph.containsNode(end)) {
-                campusGraph.addNode(end);
-            }
-            campusGraph.addEdge(start, end, path.getDistance());
+    // build the engines that routes are searched on over routingGraph, which becomes
+    // the unedited base graph; the contraction hierarchy is loaded or built here, on the
+    // thread that loads the model, so no query ever waits for it
+    private void buildRoutingIndexes() {
+        baseGraph = routingGraph;
+        edits = GraphEdits.NONE;
+        spatialIndex = new SpatialIndex(routingGraph);
+        String artifact = System.getProperty(CH_ARTIFACT_PROPERTY);
+        baseHierarchyEngine = new ContractionHierarchyEngine(ContractionHierarchy.loadOrBuild(
+                routingGraph, artifact == null ? null : Paths.get(artifact)));
+        baseLandmarks = new AltEngine(routingGraph, Integer.getInteger(LANDMARKS_PROPERTY,
+                AltEngine.DEFAULT_LANDMARK_COUNT)).getLandmarks();
+        buildEngines();
+        buildRouteTable();
+    }
+
+    // the engines over routingGraph; those that need preprocessing reuse that of baseGraph
+    private void buildEngines() {
+        routingEngines = new EnumMap<>(RoutingAlgorithm.class);
+        routingEngines.put(RoutingAlgorithm.DIJKSTRA, new DijkstraEngine(routingGraph));
+        routingEngines.put(RoutingAlgorithm.ASTAR, new AStarEngine(routingGraph));
+        routingEngines.put(RoutingAlgorithm.BIDIRECTIONAL,
+                new BidirectionalDijkstraEngine(routingGraph));
+        // the shortcuts of the hierarchy may run over closed paths and miss detours,
+        // so while there are edits its queries are answered without them
+        routingEngines.put(RoutingAlgorithm.CONTRACTION_HIERARCHY, edits.isEmpty()
+                ? baseHierarchyEngine : new BidirectionalDijkstraEngine(routingGraph));
+        routingEngines.put(RoutingAlgorithm.ALT,
+                new AltEngine(baseLandmarks.update(routingGraph)));
+        manyToManyEngine = new ManyToManyEngine(routingGraph);
+    }
+
+    // a model sharing the data and base indexes of other, with the same edits
+    private CampusMapModel(CampusMapModel other) {
+        buildings = other.buildings;
+        buildingsShortNameToLong = other.buildingsShortNameToLong;
+        buildingsShortNameToCoord = other.buildingsShortNameToCoord;
+        baseGraph = other.baseGraph;
+        edits = other.edits;
+        spatialIndex = other.spatialIndex;
+        baseHierarchyEngine = other.baseHierarchyEngine;
+        baseLandmarks = other.baseLandmarks;
+    }
+
+    // a model with the same data, indexes and edits as this one, for the with methods
+    // to replace one part of
+    private CampusMapModel copy() {
+        CampusMapModel copy = new CampusMapModel(this);
+        copy.routingGraph = routingGraph;
+        copy.campusGraph = campusGraph;
+        copy.paths = paths;
+        copy.routingEngines = routingEngines;
+        copy.buildingRouteTable = buildingRouteTable;
+        copy.manyToManyEngine = manyToManyEngine;
+        return copy;
+    }
+
+    /**
+     * Returns a model of the same campus with edits applied on top of the paths read
+     * from the data, in place of any edits this model has. This model is not changed,
+     * so a query that holds it keeps seeing one consistent version of the map. Nothing
+     * is rebuilt from scratch: the routing graph is the base graph with the edits
+     * merged in, the landmark tables of the base graph are lowered only where detours
+     * shorten distances, and the building route table regrows only the trees the
+     * changes since this model affect. The contraction hierarchy cannot be repaired
+     * that way and is bypassed while there are edits.
+     *
+     * @param edits the edits to apply; edits naming points that are not on the map
+     *              are ignored
+     * @spec.requires edits != null
+     * @return a model of this campus with edits applied
+     */
+    public CampusMapModel withEdits(GraphEdits edits) {
+        checkRep();
+        CampusMapModel edited = new CampusMapModel(this);
+        edited.edits = edits;
+        edited.routingGraph = baseGraph.withEdits(edits);
+        // the campus graph and paths are derived from the routing graph when asked for
+        edited.paths = null;
+        edited.buildEngines();
+        edited.buildingRouteTable = buildingRouteTable.update(edited.routingGraph);
+        edited.checkRep();
+        return edited;
+    }
+
+    /**
+     * Return the edits applied on top of the paths read from the data.
+     * @return the edits of this model, GraphEdits.NONE if there are none
+     */
+    public GraphEdits getEdits() {
+        checkRep();
+        return edits;
+    }
+
+    /**
+     * Return the routing graph of the paths as they were read from the data,
+     * without edits.
+     * @return the unedited CsrGraph of the campus
+     */
+    public CsrGraph getBaseGraph() {
+        checkRep();
+        return baseGraph;
+    }
+
+    // precompute the routes between every pair of buildings on the routing graph
+    private void buildRouteTable() {
+        int[] nodes = buildingsShortNameToCoord.keySet().stream()
+                .mapToInt(this::buildingNode)
+                .filter(id -> id >= 0)
+                .distinct()
+                .toArray();
+        buildingRouteTable = BuildingRouteTable.build(routingGraph, nodes);
+    }
+
+    /**
+     * Return the k-d tree over the nodes of the routing graph. Edits do not add or
+     * remove nodes, so every version of the map shares the one built at load.
+     * @return a SpatialIndex over the nodes of getRoutingGraph()
+     */
+    public SpatialIndex getSpatialIndex() {
+        checkRep();
+        return spatialIndex;
+    }
+
+    /**
+     * Return the node of the routing graph a building is routed from and to: the node
+     * at its coordinates, or the node nearest to them if the building is not on a path.
+     * @param shortName the short name of a building
+     * @return the node id of the building, or -1 if there is no building shortName
+     *         or the map has no nodes
+     */
+    public int buildingNode(String shortName) {
+        Point coord = buildingsShortNameToCoord.get(shortName);
+        if (coord == null) {
+            return -1;
         }
+        int id = routingGraph.idOf(coord);
+        return id >= 0 ? id : spatialIndex.nearest(coord.getX(), coord.getY());
     }
 
     /**
      * Return a graph of nodes are points and
-     * weighted edge with double.
-     * @return a Graph
+     * weighted edge with double. The graph is built from the routing graph
+     * on the first call, in time linear in its size, and the same graph is
+     * returned to every later caller, on any thread. Changing it changes
+     * neither this model nor the routes it finds, see withCampusGraph for that.
+     * @return the Graph of the campus
      */
     public Graph<Point, Double> getCampusGraph() {
         checkRep();
-        return campusGraph;
+        Graph<Point, Double> graph = campusGraph;
+        if (graph == null) {
+            synchronized (campusGraphLock) {
+                graph = campusGraph;
+                if (graph == null) {
+                    graph = new Graph<>();
+                    for (int u = 0; u < routingGraph.nodeCount(); u++) {
+                        graph.addNode(routingGraph.point(u));
+                    }
+                    for (int e = 0; e < routingGraph.edgeCount(); e++) {
+                        graph.addEdge(routingGraph.point(routingGraph.source(e)),
+                                routingGraph.point(routingGraph.target(e)),
+                                routingGraph.weight(e));
+                    }
+                    // published only once it is complete
+                    campusGraph = graph;
+                }
+            }
+        }
+        return graph;
+    }
+
+
+    /**
+     * Return a model of the same buildings on another campus graph, with the routing
+     * snapshot of it rebuilt; the graph becomes the unedited base graph, and any edits
+     * are dropped. This model is not changed, and neither model follows later changes
+     * to campusGraph.
+     * @param campusGraph graph of points with weighted edges
+     * @return a model routing over a snapshot of campusGraph
+     */
+    public CampusMapModel withCampusGraph(Graph<Point, Double> campusGraph) {
+        checkRep();
+        CampusMapModel changed = copy();
+        changed.routingGraph = CsrGraph.fromGraph(campusGraph);
+        changed.campusGraph = null;
+        changed.paths = null;
+        changed.buildRoutingIndexes();
+        changed.checkRep();
+        return changed;
+    }
+
+    /**
+     * Return the read-only CSR snapshot of the campus graph that shortest
+     * path searches run on.
+     * @return a CsrGraph of the campus graph
+     */
+    public CsrGraph getRoutingGraph() {
+        checkRep();
+        return routingGraph;
+    }
+
+    /**
+     * Return the default engine that finds shortest routes over the routing graph.
+     * @return a RoutingEngine over getRoutingGraph()
+     */
+    public RoutingEngine getRoutingEngine() {
+        return getRoutingEngine(RoutingAlgorithm.DIJKSTRA);
+    }
+
+    /**
+     * Return the engine that finds shortest routes over the routing graph
+     * with the given algorithm.
+     * @param algorithm the algorithm to route with
+     * @spec.requires algorithm != null
+     * @return a RoutingEngine over getRoutingGraph()
+     */
+    public RoutingEngine getRoutingEngine(RoutingAlgorithm algorithm) {
+        checkRep();
+        return routingEngines.get(algorithm);
     }
 
+    /**
+     * Return the table of precomputed shortest routes between buildings.
+     * It is rebuilt whenever the campus graph or building coordinates change.
+     * @return a BuildingRouteTable over getRoutingGraph()
+     */
+    public BuildingRouteTable getBuildingRouteTable() {
+        checkRep();
+        return buildingRouteTable;
+    }
 
-    public void setCampusGraph(Graph<Point, Double> campusGraph) {
+    /**
+     * Return the engine that computes distance matrices over the routing graph.
+     * @return a ManyToManyEngine over getRoutingGraph()
+     */
+    public ManyToManyEngine getManyToManyEngine() {
         checkRep();
-        this.campusGraph = campusGraph;
+        return manyToManyEngine;
     }
 
     /**
@@ -119,36 +437,49 @@ public class CampusMapModel {
 
     public List<CampusBuilding> getBuildings() {
         checkRep();
-        return buildings;
+        return Collections.unmodifiableList(buildings);
     }
     /**
-     * set a List of campusBuilding objects which is list of buildings  in campus map
-     * @param buildings map of string to points
+     * Return a model with another List of campusBuilding objects as its list of
+     * buildings in campus map; this model is not changed
+     * @param buildings list of campus buildings
+     * @return a model with a copy of buildings
      */
-    public void setBuildings(List<CampusBuilding> buildings) {
-        checkRep();
-        this.buildings = buildings;
+    public CampusMapModel withBuildings(List<CampusBuilding> buildings) {
         checkRep();
+        CampusMapModel changed = copy();
+        changed.buildings = new ArrayList<>(buildings);
+        changed.checkRep();
+        return changed;
     }
     /**
-     * Return a list of CampusPath objects
+     * Return a list of CampusPath objects. Unless a list was set with withPaths,
+     * this is a read-only view with one path per distinct edge of the campus
+     * graph at the time of the call; each CampusPath is created when it is read.
      *
-     * @return a list of campus paths
+     * @return a read-only list of campus paths
      */
     public List<CampusPath> getPaths() {
         checkRep();
-        return paths;
+        if (paths == null) {
+            return new EdgePaths(routingGraph);
+        }
+        return Collections.unmodifiableList(paths);
     }
 
     /**
-     * set a List of Paths in campus map
-     * @param paths map of string to points
+     * Return a model with another List of Paths in campus map; this model is not
+     * changed, and routes are still found on the campus graph
+     * @param paths list of campus paths
+     * @return a model with a copy of paths
      */
 
-    public void setPaths(List<CampusPath> paths) {
-        checkRep();
-        this.paths = paths;
+    public CampusMapModel withPaths(List<CampusPath> paths) {
         checkRep();
+        CampusMapModel changed = copy();
+        changed.paths = new ArrayList<>(paths);
+        changed.checkRep();
+        return changed;
     }
     /**
      * Return a map of strings from buildings short name
@@ -158,19 +489,23 @@ public class CampusMapModel {
      */
     public Map<String, String> getBuildingsShortNameToLong() {
         checkRep();
-        return buildingsShortNameToLong;
+        return Collections.unmodifiableMap(buildingsShortNameToLong);
     }
 
     /**
-     * set a map of string to string to get buildings short name
-     * to their long abbreviated name
-     * @param buildingsShortNameToLong map of string to points
+     * Return a model with another map of string to string to get buildings
+     * short name to their long abbreviated name; this model is not changed
+     * @param buildingsShortNameToLong map of short names to long names
+     * @return a model with a copy of buildingsShortNameToLong
      */
 
-    public void setBuildingsShortNameToLong(Map<String, String> buildingsShortNameToLong) {
-        checkRep();
-        this.buildingsShortNameToLong = buildingsShortNameToLong;
+    public CampusMapModel withBuildingsShortNameToLong(
+            Map<String, String> buildingsShortNameToLong) {
         checkRep();
+        CampusMapModel changed = copy();
+        changed.buildingsShortNameToLong = new HashMap<>(buildingsShortNameToLong);
+        changed.checkRep();
+        return changed;
     }
     /**
      * Return a map of string to points to  get buildings short name
@@ -181,21 +516,57 @@ public class CampusMapModel {
 
     public Map<String, Point> getBuildingsShortNameToCoord() {
         checkRep();
-        return buildingsShortNameToCoord;
+        return Collections.unmodifiableMap(buildingsShortNameToCoord);
     }
     /**
-     * set a map of string to points to  get buildings short name
-     * to their related coordinate
-     * @param buildingsShortNameToCoord map of string to points
+     * Return a model with another map of string to points to get buildings
+     * short name to their related coordinate, and the building route table
+     * rebuilt for them; this model is not changed
+     * @param buildingsShortNameToCoord map of short names to points
+     * @return a model with a copy of buildingsShortNameToCoord
      */
-    public void setBuildingsShortNameToCoord(Map<String, Point> buildingsShortNameToCoord) {
-        checkRep();
-        this.buildingsShortNameToCoord = buildingsShortNameToCoord;
+    public CampusMapModel withBuildingsShortNameToCoord(
+            Map<String, Point> buildingsShortNameToCoord) {
         checkRep();
+        CampusMapModel changed = copy();
+        changed.buildingsShortNameToCoord = new HashMap<>(buildingsShortNameToCoord);
+        changed.buildRouteTable();
+        changed.checkRep();
+        return changed;
     }
 
 
 
+    /**
+     * EdgePaths is a read-only list view of the edges of a routing graph as CampusPaths.
+     */
+    private static final class EdgePaths extends AbstractList<CampusPath> implements RandomAccess {
+
+        // This class does not represent an ADT.
+
+        private final CsrGraph graph;
+
+        EdgePaths(CsrGraph graph) {
+            this.graph = graph;
+        }
+
+        @Override
+        public CampusPath get(int index) {
+            if (index < 0 || index >= graph.edgeCount()) {
+                throw new IndexOutOfBoundsException("no path " + index);
+            }
+            int source = graph.source(index);
+            int target = graph.target(index);
+            return new CampusPath(graph.x(source), graph.y(source), graph.x(target),
+                    graph.y(target), graph.weight(index));
+        }
+
+        @Override
+        public int size() {
+            return graph.edgeCount();
+        }
+    }
+
     /**
      * Checks if rep inv holds.
      */
@@ -207,10 +578,13 @@ public class CampusMapModel {
                 throw new RuntimeException("building coordinates cannot be null");
             } else if (this.buildingsShortNameToLong == null) {
                 throw new RuntimeException("short name to long cannot be null");
-            } else if (this.paths == null) {
-                throw new RuntimeException("Graph cannot be null");
-            } else if (this.campusGraph == null) {
-                throw new RuntimeException("Graph cannot be null");
+            } else if (this.routingGraph == null || this.routingEngines == null
+                    || this.manyToManyEngine == null) {
+                throw new RuntimeException("routing graph and engine cannot be null");
+            } else if (this.buildingRouteTable == null) {
+                throw new RuntimeException("building route table cannot be null");
+            } else if (this.baseGraph == null || this.edits == null) {
+                throw new RuntimeException("base graph and edits cannot be null");
             }
         }
     }
@@ -0,0 +1,286 @@
+package pathfinder;
+
+import pathfinder.parser.CampusBuilding;
+import pathfinder.parser.CampusPathsParser;
+import pathfinder.routing.CsrGraph;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * CampusSnapshot represents the parsed campus data, the buildings and the CSR routing
+ * graph, in a form that can be saved to a binary file and mapped back into memory on
+ * the next start. Loading a snapshot is a handful of bulk array copies out of a
+ * memory-mapped file: no line is parsed and no graph is rebuilt node by node.
+ * <p>
+ * The file starts with a fixed header: magic number, format version, a checksum of the
+ * source TSV files the snapshot was made from, a CRC of the rest of the file, and the
+ * building, node and edge counts, which the CRC covers too. A snapshot whose source
+ * checksum does not match the current TSV files is stale and is rejected on load, and
+ * no array is allocated before its length is known to fit in the file.
+ *
+ * @spec.specfield sourceChecksum : long
+ * // checksum of the TSV files the snapshot was made from
+ * @spec.specfield buildings : List of campus building
+ * @spec.specfield graph : CsrGraph
+ * // the routing graph of the campus paths
+ */
+public final class CampusSnapshot {
+
+    /*
+     Rep invariant:
+         buildings, graph != null
+         buildings does not contain null
+
+     Abstract function:
+         AF(this) = the campus data buildings and graph, parsed from TSV files whose
+             checksum is sourceChecksum
+     */
+
+    // identifies a snapshot file and its layout
+    private static final int MAGIC = 0x43534e31;
+    private static final int VERSION = 2;
+
+    // magic, version, source checksum and body CRC; the CRC covers the rest of the file
+    private static final int CRC_START = 4 + 4 + 8 + 4;
+    // then the building, node and edge counts
+    private static final int HEADER_BYTES = CRC_START + 4 + 4 + 4;
+
+    private final long sourceChecksum;
+    private final List<CampusBuilding> buildings;
+    private final CsrGraph graph;
+
+    /**
+     * Creates a snapshot of parsed campus data.
+     *
+     * @param sourceChecksum checksum of the TSV files the data was parsed from
+     * @param buildings the parsed buildings
+     * @param graph the routing graph of the parsed paths
+     * @spec.requires buildings, graph != null
+     */
+    public CampusSnapshot(long sourceChecksum, List<CampusBuilding> buildings, CsrGraph graph) {
+        this.sourceChecksum = sourceChecksum;
+        this.buildings = Collections.unmodifiableList(new ArrayList<>(buildings));
+        this.graph = graph;
+    }
+
+    /**
+     * Computes the checksum of the campus TSV files read by {@link CampusPathsParser}.
+     * It changes whenever either file changes.
+     *
+     * @return checksum of the campus TSV files
+     * @throws IOException if either file cannot be read
+     */
+    public static long sourceChecksum() throws IOException {
+        return sourceChecksum(CampusPathsParser.campusBuildingsFile(),
+                CampusPathsParser.campusPathsFile());
+    }
+
+    /**
+     * Computes the checksum of the given campus TSV files, as {@link #sourceChecksum()}
+     * does for those read by {@link CampusPathsParser}.
+     *
+     * @param buildingsFile a file in the format of campus_buildings.tsv
+     * @param pathsFile a file in the format of campus_paths.tsv
+     * @spec.requires buildingsFile, pathsFile != null
+     * @return checksum of the two files
+     * @throws IOException if either file cannot be read
+     */
+    public static long sourceChecksum(Path buildingsFile, Path pathsFile) throws IOException {
+        return (crc(buildingsFile) << 32) | crc(pathsFile);
+    }
+
+    // CRC32 of the contents of file
+    private static long crc(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            CRC32 crc = new CRC32();
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            return crc.getValue();
+        }
+    }
+
+    /**
+     * Maps a snapshot written by {@link #save(Path)} into memory and reads it.
+     *
+     * @param file the file to read
+     * @param sourceChecksum checksum of the current TSV files
+     * @spec.requires file != null
+     * @return the snapshot saved in file
+     * @throws IOException if file cannot be read, is not a snapshot, is damaged, or was
+     *                     made from TSV files with a different checksum
+     */
+    public static CampusSnapshot load(Path file, long sourceChecksum) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException(file + " is not a campus snapshot");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException(file + " is not a campus snapshot");
+            }
+            if (buffer.getLong() != sourceChecksum) {
+                throw new IOException(file + " was made from different data files");
+            }
+            int bodyCrc = buffer.getInt();
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if ((int) crc.getValue() != bodyCrc) {
+                throw new IOException(file + " is damaged");
+            }
+            int buildingCount = buffer.getInt();
+            int n = buffer.getInt();
+            int m = buffer.getInt();
+            // every building takes at least two lengths and two coordinates
+            if (buildingCount < 0 || n < 0 || m < 0
+                    || 24L * buildingCount + 16L * n + 4L * (n + 1) + 12L * m > buffer.remaining()) {
+                throw new IOException(file + " is damaged");
+            }
+            try {
+                List<CampusBuilding> buildings = new ArrayList<>(buildingCount);
+                for (int i = 0; i < buildingCount; i++) {
+                    String shortName = getString(buffer);
+                    String longName = getString(buffer);
+                    buildings.add(new CampusBuilding(shortName, longName,
+                            buffer.getDouble(), buffer.getDouble()));
+                }
+                double[] xs = getDoubles(buffer, n);
+                double[] ys = getDoubles(buffer, n);
+                int[] offsets = getInts(buffer, n + 1);
+                int[] targets = getInts(buffer, m);
+                double[] weights = getDoubles(buffer, m);
+                return new CampusSnapshot(sourceChecksum, buildings,
+                        CsrGraph.fromArrays(xs, ys, offsets, targets, weights));
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException(file + " is damaged", e);
+            }
+        }
+    }
+
+    // throws IllegalArgumentException if the length read does not fit in buffer
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("string length " + length + " out of range");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static double[] getDoubles(ByteBuffer buffer, int length) {
+        double[] values = new double[length];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + 8 * length);
+        return values;
+    }
+
+    private static int[] getInts(ByteBuffer buffer, int length) {
+        int[] values = new int[length];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4 * length);
+        return values;
+    }
+
+    /**
+     * Writes this snapshot to file. The snapshot is written to a temporary file next to
+     * file first and then moved over it, so a concurrent reader never sees half a file.
+     *
+     * @param file the file to write
+     * @spec.requires file != null
+     * @throws IOException if file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        int n = graph.nodeCount();
+        int m = graph.edgeCount();
+        List<byte[]> names = new ArrayList<>(2 * buildings.size());
+        long size = HEADER_BYTES + 16L * n + 4L * (n + 1) + 12L * m;
+        for (CampusBuilding building : buildings) {
+            byte[] shortName = building.getShortName().getBytes(StandardCharsets.UTF_8);
+            byte[] longName = building.getLongName().getBytes(StandardCharsets.UTF_8);
+            names.add(shortName);
+            names.add(longName);
+            size += 4 + shortName.length + 4 + longName.length + 16;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("campus data too large for a snapshot");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.position(HEADER_BYTES);
+        for (int i = 0; i < buildings.size(); i++) {
+            CampusBuilding building = buildings.get(i);
+            buffer.putInt(names.get(2 * i).length).put(names.get(2 * i));
+            buffer.putInt(names.get(2 * i + 1).length).put(names.get(2 * i + 1));
+            buffer.putDouble(building.getX()).putDouble(building.getY());
+        }
+        for (int v = 0; v < n; v++) {
+            buffer.putDouble(graph.x(v));
+        }
+        for (int v = 0; v < n; v++) {
+            buffer.putDouble(graph.y(v));
+        }
+        for (int v = 0; v < n; v++) {
+            buffer.putInt(graph.edgeStart(v));
+        }
+        buffer.putInt(m);
+        for (int e = 0; e < m; e++) {
+            buffer.putInt(graph.target(e));
+        }
+        for (int e = 0; e < m; e++) {
+            buffer.putDouble(graph.weight(e));
+        }
+        buffer.position(CRC_START);
+        buffer.putInt(buildings.size()).putInt(n).putInt(m);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), CRC_START, buffer.capacity() - CRC_START);
+        buffer.position(0);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(sourceChecksum).putInt((int) crc.getValue());
+        buffer.position(0);
+
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @return checksum of the TSV files this snapshot was made from
+     */
+    public long getSourceChecksum() {
+        return sourceChecksum;
+    }
+
+    /**
+     * @return the buildings of this snapshot, unmodifiable
+     */
+    public List<CampusBuilding> getBuildings() {
+        return buildings;
+    }
+
+    /**
+     * @return the routing graph of this snapshot
+     */
+    public CsrGraph getGraph() {
+        return graph;
+    }
+}
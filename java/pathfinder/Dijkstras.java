@@ -3,6 +3,7 @@ package pathfinder;
 import graph.Edge;
 import graph.Graph;
 import pathfinder.datastructures.Path;
+import pathfinder.datastructures.PersistentPath;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.PriorityQueue;
@@ -16,7 +17,6 @@ import java.util.Set;
  * @author Omar Akaales
  * @version 05/24/2019
  */
- */
 
 
 public class Dijkstras {
@@ -24,10 +24,11 @@ public class Dijkstras {
 
 
     public static <N> Path<Edge<Double, N>> findShortestPath(N start, N dest, Graph<N, Double> graph) {
-            PriorityQueue<Path<Edge<Double, N>>> active;
+            // frontier paths share their prefixes, so extending one is O(1)
+            PriorityQueue<PersistentPath<Edge<Double, N>>> active;
             Set<N> known = new HashSet<>();
             active = new PriorityQueue<>(
-                    (Path<Edge<Double, N>> path1, Path<Edge<Double,N>> path2) -> {
+                    (PersistentPath<Edge<Double, N>> path1, PersistentPath<Edge<Double,N>> path2) -> {
                         if (path1.getCost() > path2.getCost()) {
                             return 1;
                         } else if (path1.getCost() < path2.getCost()) {
@@ -37,22 +38,22 @@ public class Dijkstras {
                         }
                     });
 
-            Path<Edge<Double, N>> newPath = new Path<>(new Edge<>(0.0, start));
+            PersistentPath<Edge<Double, N>> newPath = new PersistentPath<>(new Edge<>(0.0, start));
             active.add(newPath);
-        Path<Edge<Double, N>> minPath;
+        PersistentPath<Edge<Double, N>> minPath;
         // keep looping until the heap is empty
             while (!active.isEmpty()) {
                 minPath = active.remove();
                 Edge<Double, N> minDest = minPath.getEnd();
                 if (minDest.getDest().equals(dest)) {
-                    return minPath;
-                } else if (!known.contains(minDest)) {
+                    return minPath.toPath();
+                } else if (!known.contains(minDest.getDest())) {
                     for (Edge<Double, N> edge : graph.listChildren(minDest.getDest())) {
                             // if edge already known/visited, don't add to the heap
                             if (!known.contains(edge.getDest())) {
                                 // keep adding path from start point to get the total path and add it
                                 // to the heap
-                                Path<Edge<Double, N>> newPath2 = minPath.extend(edge, edge.getLabel());
+                                PersistentPath<Edge<Double, N>> newPath2 = minPath.extend(edge, edge.getLabel());
                                 active.add(newPath2);
                             }
                     }
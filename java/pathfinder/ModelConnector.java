@@ -11,15 +11,20 @@
 
 package pathfinder;
 
-import graph.Edge;
-import graph.Graph;
 import pathfinder.datastructures.Path;
 import pathfinder.datastructures.Point;
 import pathfinder.parser.CampusBuilding;
 import pathfinder.parser.CampusPath;
 import pathfinder.parser.CampusPathsParser;
+import pathfinder.routing.BuildingRouteTable;
+import pathfinder.routing.CsrGraph;
+import pathfinder.routing.GraphEdits;
+import pathfinder.routing.Route;
+import pathfinder.routing.RoutingAlgorithm;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 import static java.util.Collections.binarySearch;
 
@@ -40,7 +45,17 @@ different ways, without requiring a lot of work to change things over.
  */
 public class ModelConnector {
 
-  CampusMapModel model;
+  // the published model; every query reads it once and answers from that model alone,
+  // so a reload swapping in a new one never changes the data under a running query
+  private final AtomicReference<CampusMapModel> model;
+
+  // held while a reload reads the data files and builds a new base model, so reloads
+  // run one at a time and publish in the order they started; edits do not take it
+  private final Object reloadLock = new Object();
+
+  // held while a new version of the published model is derived and set, so no change
+  // made by a concurrent edit or reload is lost
+  private final Object publishLock = new Object();
 
   /**
    * Creates a new {@link ModelConnector} and initializes it to contain data about
@@ -59,7 +74,128 @@ public class ModelConnector {
     // Pathfinder application calls these methods in order to talk to your model.
     // Change and add anything else as you'd like.
 
-    model = new CampusMapModel();
+    model = new AtomicReference<>(new CampusMapModel());
+  }
+
+  /**
+   * Builds a new model from the current data files, with all its precomputed indexes,
+   * and then publishes it in place of the current one. Queries are never blocked: those
+   * that start before the new model is published are answered from the old one, those
+   * that start after from the new one. If the data cannot be loaded, the current model
+   * stays in place. Calls are serialized, each builds its own model from the files as
+   * they are when it starts. Edits are not held up while the files are read; the new
+   * model keeps the closed paths and detours current when it is published, except those
+   * at points that are no longer on the map.
+   *
+   * @throws pathfinder.parser.CampusPathsParser.ParserException if the data files cannot
+   *                                                             be found or parsed
+   */
+  public void reload() {
+    synchronized (reloadLock) {
+      CampusMapModel base = new CampusMapModel();
+      synchronized (publishLock) {
+        model.set(base.withEdits(model.get().getEdits()));
+      }
+    }
+  }
+
+  /**
+   * Closes the campus path between two points, in both directions, for example for
+   * construction. Routes found after this call returns do not use it. Like all edits, it
+   * takes effect without reloading the data and without blocking any query.
+   *
+   * @param a A point at one end of the path.
+   * @param b A point at the other end of the path.
+   * @return The version of the edits with the path closed.
+   * @throws IllegalArgumentException if there is no campus path between a and b.
+   */
+  public long closePath(Point a, Point b) {
+    return edit(current -> {
+      CsrGraph base = current.getBaseGraph();
+      if (!hasEdge(base, a, b) && !hasEdge(base, b, a)) {
+        throw new IllegalArgumentException("No campus path between " + a + " and " + b);
+      }
+      return current.getEdits().close(a, b).close(b, a);
+    });
+  }
+
+  /**
+   * Reopens the campus path between two points, in both directions. Nothing changes if
+   * it is not closed.
+   *
+   * @param a A point at one end of the path.
+   * @param b A point at the other end of the path.
+   * @return The version of the edits with the path open.
+   */
+  public long reopenPath(Point a, Point b) {
+    return edit(current -> current.getEdits().reopen(a, b).reopen(b, a));
+  }
+
+  /**
+   * Adds a temporary detour between two points of the map, usable in both directions,
+   * or changes the distance of the detour there is. Detours stay until they are removed,
+   * even if a path between the same points is closed.
+   *
+   * @param a        A point of the map at one end of the detour.
+   * @param b        A point of the map at the other end of the detour.
+   * @param distance The length of the detour.
+   * @return The version of the edits with the detour.
+   * @throws IllegalArgumentException if a or b is not a point of the map, or distance
+   *                                  is negative, infinite or NaN.
+   */
+  public long addDetour(Point a, Point b, double distance) {
+    return edit(current -> {
+      if (current.getBaseGraph().idOf(a) < 0 || current.getBaseGraph().idOf(b) < 0) {
+        throw new IllegalArgumentException("Not a point of the map: "
+                + (current.getBaseGraph().idOf(a) < 0 ? a : b));
+      }
+      return current.getEdits().addDetour(a, b, distance).addDetour(b, a, distance);
+    });
+  }
+
+  /**
+   * Removes the detour between two points. Nothing changes if there is none.
+   *
+   * @param a A point at one end of the detour.
+   * @param b A point at the other end of the detour.
+   * @return The version of the edits without the detour.
+   */
+  public long removeDetour(Point a, Point b) {
+    return edit(current -> current.getEdits().removeDetour(a, b).removeDetour(b, a));
+  }
+
+  /**
+   * @return The version of the edits the current model has, 0 if there are none.
+   */
+  public long editVersion() {
+    return model.get().getEdits().version();
+  }
+
+  // publishes the current model with the edits change gives for it, if they differ
+  private long edit(Function<CampusMapModel, GraphEdits> change) {
+    synchronized (publishLock) {
+      CampusMapModel current = model.get();
+      GraphEdits edits = change.apply(current);
+      if (edits != current.getEdits()) {
+        model.set(current.withEdits(edits));
+      }
+      return edits.version();
+    }
+  }
+
+  // whether graph has an edge from a to b
+  private static boolean hasEdge(CsrGraph graph, Point a, Point b) {
+    int source = graph.idOf(a);
+    int target = graph.idOf(b);
+    if (source < 0 || target < 0) {
+      return false;
+    }
+    for (int e = graph.edgeStart(source); e < graph.edgeEnd(source); e++) {
+      if (graph.target(e) == target) {
+        return true;
+      }
+    }
+    return false;
   }
 
   /**
@@ -67,7 +203,7 @@ public class ModelConnector {
    * @return {@literal true} iff the short name provided exists in this campus map.
    */
   public boolean shortNameExists(String shortName) {
-    return model.getBuildingsShortNameToLong().containsKey(shortName);
+    return model.get().getBuildingsShortNameToLong().containsKey(shortName);
   }
 
   /**
@@ -76,10 +212,11 @@ public class ModelConnector {
    * @throws IllegalArgumentException if the short name provided does not exist.
    */
   public String longNameForShort(String shortName) {
-    if (!model.getBuildingsShortNameToLong().containsKey(shortName)) {
+    String longName = model.get().getBuildingsShortNameToLong().get(shortName);
+    if (longName == null) {
       throw new IllegalArgumentException();
     } else {
-     return model.getBuildingsShortNameToLong().get(shortName);
+     return longName;
     }
   }
 
@@ -87,7 +224,7 @@ public class ModelConnector {
    * @return The mapping from all the buildings' short names to their long names in this campus map.
    */
   public Map<String, String> buildingNames() {
-    return new HashMap<>(model.getBuildingsShortNameToLong());
+    return new HashMap<>(model.get().getBuildingsShortNameToLong());
   }
 
   /**
@@ -102,18 +239,167 @@ public class ModelConnector {
    *                                  this campus map.
    */
   public Path<Point> findShortestPath(String startShortName, String endShortName) {
-    Point start = model.getBuildingsShortNameToCoord().get(startShortName);
-    Point end = model.getBuildingsShortNameToCoord().get(endShortName);
-    if (start == null || end == null) {
-      return new Path<Point>(null);
+    CampusMapModel model = this.model.get();
+    int start = nodeOf(model, startShortName);
+    int end = nodeOf(model, endShortName);
+    BuildingRouteTable table = model.getBuildingRouteTable();
+    if (table.contains(start) && table.contains(end)) {
+      // building to building routes are precomputed, no search needed
+      Route route = table.route(start, end);
+      return route == null ? null : route.toPath();
     }
-    Path<Edge<Double, Point>> shortestPathOfEdges =
-            Dijkstras.findShortestPath(start, end, model.getCampusGraph());
+    return findShortestPath(model, start, end, RoutingAlgorithm.DIJKSTRA);
+  }
+
+  /**
+   * Finds the shortest path, by distance, between the two provided buildings using
+   * the given routing algorithm. All algorithms return paths of the same cost.
+   *
+   * @param startShortName The short name of the building at the beginning of this path.
+   * @param endShortName   The short name of the building at the end of this path.
+   * @param algorithm      The algorithm to search with.
+   * @return A path between {@code startBuilding} and {@code endBuilding}, or {@literal null}
+   * if none exists.
+   * @throws IllegalArgumentException if either short name is not a building in this
+   *                                  campus map.
+   */
+  public Path<Point> findShortestPath(String startShortName, String endShortName,
+                                      RoutingAlgorithm algorithm) {
+    CampusMapModel model = this.model.get();
+    return findShortestPath(model, nodeOf(model, startShortName), nodeOf(model, endShortName),
+            algorithm);
+  }
+
+  /**
+   * Finds the shortest path, by distance, between two arbitrary locations on the map,
+   * such as spots clicked by the user. Each location is snapped to the closest point of
+   * the map that a campus path leaves, for the start, or enters, for the end; the path
+   * runs between those two points. Snapping looks only at the points near each location.
+   *
+   * @param x1 The x coordinate of the location to start at.
+   * @param y1 The y coordinate of the location to start at.
+   * @param x2 The x coordinate of the location to end at.
+   * @param y2 The y coordinate of the location to end at.
+   * @return A path between the points nearest the two locations, or {@literal null} if
+   * none exists.
+   */
+  public Path<Point> findShortestPath(double x1, double y1, double x2, double y2) {
+    return findShortestPath(x1, y1, x2, y2, RoutingAlgorithm.CONTRACTION_HIERARCHY);
+  }
+
+  /**
+   * Finds the shortest path, by distance, between two arbitrary locations on the map
+   * using the given routing algorithm. Locations are snapped as by
+   * {@link #findShortestPath(double, double, double, double)}.
+   *
+   * @param x1        The x coordinate of the location to start at.
+   * @param y1        The y coordinate of the location to start at.
+   * @param x2        The x coordinate of the location to end at.
+   * @param y2        The y coordinate of the location to end at.
+   * @param algorithm The algorithm to search with.
+   * @return A path between the points nearest the two locations, or {@literal null} if
+   * none exists.
+   */
+  public Path<Point> findShortestPath(double x1, double y1, double x2, double y2,
+                                      RoutingAlgorithm algorithm) {
+    CampusMapModel model = this.model.get();
+    CsrGraph graph = model.getRoutingGraph();
+    // closed paths can leave points with nothing to route over, those are skipped
+    int start = model.getSpatialIndex().nearest(x1, y1,
+            node -> graph.edgeEnd(node) > graph.edgeStart(node));
+    int end = model.getSpatialIndex().nearest(x2, y2,
+            node -> graph.inEdgeEnd(node) > graph.inEdgeStart(node));
+    if (start < 0 || end < 0) {
+      return null;
+    }
+    return findShortestPath(model, start, end, algorithm);
+  }
+
+  // the shortest path between two nodes of the routing graph of model
+  private static Path<Point> findShortestPath(CampusMapModel model, int start, int end,
+                                              RoutingAlgorithm algorithm) {
+    Route route = model.getRoutingEngine(algorithm).route(start, end);
+    return route == null ? null : route.toPath();
+  }
+
+  /**
+   * Finds the shortest route between the two provided buildings using the given routing
+   * algorithm. Besides the path, the returned route reports how many nodes the search
+   * settled, which can be used to compare algorithms.
+   *
+   * @param startShortName The short name of the building at the beginning of this route.
+   * @param endShortName   The short name of the building at the end of this route.
+   * @param algorithm      The algorithm to search with.
+   * @return A route between the two buildings, or {@literal null} if none exists.
+   * @throws IllegalArgumentException if either short name is not a building in this
+   *                                  campus map.
+   */
+  public Route findRoute(String startShortName, String endShortName, RoutingAlgorithm algorithm) {
+    CampusMapModel model = this.model.get();
+    int start = nodeOf(model, startShortName);
+    int end = nodeOf(model, endShortName);
+    return model.getRoutingEngine(algorithm).route(start, end);
+  }
+
+  /**
+   * Computes the shortest distance from every building in {@code sources} to every
+   * building in {@code targets}. Only distances are computed, no paths are built: pairs of
+   * buildings are read from the precomputed building route table, anything else takes
+   * one search per source.
+   *
+   * @param sources The short names of the buildings to measure from.
+   * @param targets The short names of the buildings to measure to.
+   * @return A matrix {@code m} where {@code m[i][j]} is the distance from {@code sources.get(i)}
+   * to {@code targets.get(j)}, or {@link Double#POSITIVE_INFINITY} if there is no path.
+   * @throws IllegalArgumentException if any short name is not a building in this campus map.
+   */
+  public double[][] distanceMatrix(List<String> sources, List<String> targets) {
+    CampusMapModel model = this.model.get();
+    int[] sourceNodes = nodesOf(model, sources);
+    int[] targetNodes = nodesOf(model, targets);
+    BuildingRouteTable table = model.getBuildingRouteTable();
+    boolean tabulated = true;
+    for (int node : sourceNodes) {
+      tabulated &= table.contains(node);
+    }
+    for (int node : targetNodes) {
+      tabulated &= table.contains(node);
+    }
+    if (!tabulated) {
+      return model.getManyToManyEngine().distances(sourceNodes, targetNodes);
+    }
+    double[][] matrix = new double[sourceNodes.length][targetNodes.length];
+    for (int i = 0; i < sourceNodes.length; i++) {
+      for (int j = 0; j < targetNodes.length; j++) {
+        matrix[i][j] = table.distance(sourceNodes[i], targetNodes[j]);
+      }
+    }
+    return matrix;
+  }
+
+  // node ids of the buildings with the given short names
+  private static int[] nodesOf(CampusMapModel model, List<String> shortNames) {
+    int[] nodes = new int[shortNames.size()];
+    for (int i = 0; i < nodes.length; i++) {
+      nodes[i] = nodeOf(model, shortNames.get(i));
+    }
+    return nodes;
+  }
+
+  /**
+   * @return The approximate heap memory, in bytes, of the precomputed table of routes
+   * between all pairs of buildings.
+   */
+  public long buildingRouteTableBytes() {
+    return model.get().getBuildingRouteTable().memoryBytes();
+  }
 
-    Path<Point> shortestPathOfPoints = new Path<>(shortestPathOfEdges.getStart().getDest());
-    for (Path<Edge<Double, Point>>.Segment seg : shortestPathOfEdges) {
-      shortestPathOfPoints = shortestPathOfPoints.extend(seg.getEnd().getDest(), seg.getCost());
+  // node id of the building with the given short name, snapped to the paths if it is off them
+  private static int nodeOf(CampusMapModel model, String shortName) {
+    int node = model.buildingNode(shortName);
+    if (node < 0) {
+      throw new IllegalArgumentException("Unknown building: " + shortName);
     }
-    return shortestPathOfPoints;
+    return node;
   }
 }
@@ -65,12 +65,39 @@ public class Path<E> implements Iterable<Path<E>.Segment> {
     checkRep();
   }
 
+  /**
+   * Creates the path from {@code start} through {@code ends.get(0)}, ..., {@code
+   * ends.get(ends.size() - 1)}, where the segment ending at {@code ends.get(i)} costs
+   * {@code costs[i]}. The result is equal to the one built by calling
+   * {@link Path#extend(Object, double)} once per segment, but takes time linear in the
+   * number of segments instead of quadratic.
+   *
+   * @param start The starting object of the path.
+   * @param ends  The end object of each segment, in order.
+   * @param costs The cost of each segment, in order.
+   */
+  Path(E start, List<E> ends, double[] costs) {
+    this.start = start;
+    this.cost = 0;
+    this.path = new ArrayList<>(ends.size());
+    E previous = start;
+    for(int i = 0; i < ends.size(); i++) {
+      path.add(new Segment(previous, ends.get(i), costs[i]));
+      cost += costs[i];
+      previous = ends.get(i);
+    }
+    checkRep();
+  }
+
   /**
    * Appends a new single segment to the end of this path, originating at the current last object
    * in this path and terminating at {@code newEnd}. The cost of adding this additional segment
    * to the existing path is {@code segmentCost}. Thus, the returned Path represents a path
    * from {@code this.getStart()} to {@code newEnd}, with a cost of {@code this.getCost() +
    * segmentCost}.
+   * <p>
+   * This copies every segment of this path. Code that grows many paths one segment at a
+   * time, such as a search frontier, should use {@link PersistentPath} instead.
    *
    * @param newEnd      The object being added at the end of the segment being appended to this path
    * @param segmentCost The cost of the segment being added to the end of this path.
@@ -0,0 +1,199 @@
+package pathfinder.datastructures;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * This represents an immutable path between two objects that shares structure with the
+ * paths it was extended from: a PersistentPath only stores its last segment and a pointer
+ * to the path before it, so {@link PersistentPath#extend(Object, double)} takes constant
+ * time and space no matter how long the path is. This makes it suitable for the partial
+ * paths of a search frontier, where {@link Path#extend(Object, double)} would copy every
+ * segment of every path. The total cost, end and length are cached.
+ * <p>
+ * A flat {@link Path} is built on demand by {@link PersistentPath#toPath()}. Iteration and
+ * equality follow the same rules as {@link Path}: a PersistentPath iterates and compares
+ * like the Path it represents.
+ */
+public final class PersistentPath<E> implements Iterable<Path<E>.Segment> {
+
+  // AF(this) =
+  //      first object in the path => start
+  //      the path without its last segment => parent, or no segments if parent == null
+  //      the last segment of the path => (parent.end, end, segmentCost) if parent != null
+  //      total cost along the path => cost
+  //      number of segments of the path => length
+
+  // Rep Invariant:
+  //      start != null && end != null &&
+  //      parent == null => (end == start && length == 0 && cost == 0) &&
+  //      parent != null => (parent.start == start && length == parent.length + 1 &&
+  //                         cost == parent.cost + segmentCost) &&
+  //      Double.isFinite(cost) && cost >= 0
+
+  private final E start;
+  private final PersistentPath<E> parent;
+  private final E end;
+  private final double segmentCost;
+  private final double cost;
+  private final int length;
+  // hash of the segment sequence, consistent with equals
+  private final int hash;
+
+  /**
+   * Creates a new, empty path containing a start object, the path from the start object to
+   * itself with a total cost of 0.
+   *
+   * @param start The starting object of the path.
+   * @throws NullPointerException if start is null
+   */
+  public PersistentPath(E start) {
+    if(start == null) {
+      throw new NullPointerException("Paths cannot start at null.");
+    }
+    this.start = start;
+    this.parent = null;
+    this.end = start;
+    this.segmentCost = 0;
+    this.cost = 0;
+    this.length = 0;
+    this.hash = start.hashCode();
+  }
+
+  private PersistentPath(PersistentPath<E> parent, E end, double segmentCost) {
+    if(end == null) {
+      throw new NullPointerException("Segments cannot have null points.");
+    }
+    if(!Double.isFinite(segmentCost)) {
+      throw new IllegalArgumentException("Segment cost may not be NaN or infinite.");
+    }
+    this.start = parent.start;
+    this.parent = parent;
+    this.end = end;
+    this.segmentCost = segmentCost;
+    this.cost = parent.cost + segmentCost;
+    this.length = parent.length + 1;
+    this.hash = 31 * (31 * parent.hash + end.hashCode()) + Double.hashCode(segmentCost);
+  }
+
+  /**
+   * Appends a segment from the end of this path to {@code newEnd} with cost
+   * {@code segmentCost}. This path is shared, not copied, so this takes constant time.
+   *
+   * @param newEnd      The object at the end of the new segment.
+   * @param segmentCost The cost of the new segment.
+   * @return A new path representing this path with the given segment appended to the end.
+   * @throws NullPointerException     if newEnd is null
+   * @throws IllegalArgumentException if segmentCost is infinite or NaN
+   */
+  public PersistentPath<E> extend(E newEnd, double segmentCost) {
+    return new PersistentPath<>(this, newEnd, segmentCost);
+  }
+
+  /**
+   * @return The total cost along this path.
+   */
+  public double getCost() {
+    return cost;
+  }
+
+  /**
+   * @return The object at the beginning of this path.
+   */
+  public E getStart() {
+    return start;
+  }
+
+  /**
+   * @return The object at the end of this path, which is the start object if this path
+   * contains no segments.
+   */
+  public E getEnd() {
+    return end;
+  }
+
+  /**
+   * @return The number of segments in this path.
+   */
+  public int length() {
+    return length;
+  }
+
+  /**
+   * @return This path without its last segment, or null if this path has no segments.
+   */
+  public PersistentPath<E> getParent() {
+    return parent;
+  }
+
+  /**
+   * Builds the flat {@link Path} this path represents, in time linear in its length.
+   *
+   * @return A Path with the same start and sequence of segments as this path.
+   */
+  public Path<E> toPath() {
+    List<E> ends = new ArrayList<>(length);
+    double[] costs = new double[length];
+    for(PersistentPath<E> p = this; p.parent != null; p = p.parent) {
+      ends.add(p.end);
+      costs[p.length - 1] = p.segmentCost;
+    }
+    Collections.reverse(ends);
+    return new Path<>(start, ends, costs);
+  }
+
+  /**
+   * @return An iterator of the segments in this path, in order, with the same behavior as
+   * {@link Path#iterator()}. The segments are those of {@link PersistentPath#toPath()}.
+   */
+  @Override
+  public Iterator<Path<E>.Segment> iterator() {
+    return toPath().iterator();
+  }
+
+  /**
+   * Checks this path for equality with another object. Two persistent paths are equal if and
+   * only if they contain exactly the same sequence of segments in the same order, or are both
+   * empty and have equal starting objects; that is, if their {@link PersistentPath#toPath()}
+   * are equal. Shared tails are compared by reference only.
+   *
+   * @param obj The object to compare with {@code this}.
+   * @return {@literal true} if and only if {@code obj} is equal to {@code this}.
+   */
+  @Override
+  public boolean equals(Object obj) {
+    if(!(obj instanceof PersistentPath)) {
+      return false;
+    }
+    PersistentPath<?> other = (PersistentPath<?>) obj;
+    if(this.length != other.length || this.hash != other.hash) {
+      return false;
+    }
+    PersistentPath<?> p = this;
+    PersistentPath<?> q = other;
+    while(p != q) {
+      if(!p.end.equals(q.end) || Double.compare(p.segmentCost, q.segmentCost) != 0) {
+        return false;
+      }
+      if(p.parent == null) {
+        // both empty; their ends are their starts
+        return true;
+      }
+      p = p.parent;
+      q = q.parent;
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    return toPath().toString();
+  }
+}
@@ -0,0 +1,210 @@
+package pathfinder.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * This represents a growing table of distinct points, each with a canonical {@link Point}
+ * object and a dense int id: the first point added gets id 0, the next new one id 1, and
+ * so on. Adding a point that is already in the table returns its existing id, so a stream
+ * of coordinates with many repeats (every path row names two) ends up as one object and
+ * one id per distinct location. The table hashes the raw coordinate bits with open
+ * addressing into primitive arrays; no Point is allocated or hashed to look one up.
+ * <p>
+ * Two coordinates are the same point exactly when {@link Point#equals(Object)} says so.
+ */
+public final class PointInterner {
+
+  // AF(this) =
+  //      the distinct points in the table, in the order they were added => points[0 .. size)
+  //      the id of points[i] => i
+
+  // Rep Invariant:
+  //      points, xs, ys, slots != null &&
+  //      0 <= size <= points.length == xs.length == ys.length &&
+  //      xs[i] == points[i].getX() && ys[i] == points[i].getY() for i < size &&
+  //      no two of points[0 .. size) are equal &&
+  //      slots.length is a power of two and at least 2 * size &&
+  //      every i < size is stored as i + 1 in exactly one slot, found by probing linearly
+  //      from the hash of (xs[i], ys[i]); every other slot is 0
+
+  /**
+   * The canonical point and the coordinates of each id.
+   */
+  private Point[] points;
+  private double[] xs;
+  private double[] ys;
+  private int size;
+
+  /**
+   * Open addressing hash table: id + 1 of a point, or 0 for an empty slot.
+   */
+  private int[] slots;
+
+  /**
+   * Creates an empty table.
+   */
+  public PointInterner() {
+    this(16);
+  }
+
+  /**
+   * Creates an empty table with room for {@code expectedSize} points before it grows.
+   *
+   * @param expectedSize The number of distinct points expected.
+   */
+  public PointInterner(int expectedSize) {
+    int capacity = Math.max(16, expectedSize);
+    points = new Point[capacity];
+    xs = new double[capacity];
+    ys = new double[capacity];
+    slots = new int[Integer.highestOneBit(2 * capacity - 1) << 1];
+  }
+
+  /**
+   * Returns the id of the point (x, y), adding it with the next free id if it is new.
+   *
+   * @param x The x coordinate of the point.
+   * @param y The y coordinate of the point.
+   * @return The id of (x, y).
+   * @throws IllegalArgumentException if x or y is NaN or infinite
+   */
+  public int intern(double x, double y) {
+    int slot = find(x, y);
+    if(slots[slot] != 0) {
+      return slots[slot] - 1;
+    }
+    return add(slot, new Point(x, y));
+  }
+
+  /**
+   * Returns the id of {@code point}, adding it with the next free id, and {@code point}
+   * itself as the canonical object, if it is new.
+   *
+   * @param point The point to look up.
+   * @return The id of point.
+   */
+  public int intern(Point point) {
+    int slot = find(point.getX(), point.getY());
+    if(slots[slot] != 0) {
+      return slots[slot] - 1;
+    }
+    return add(slot, point);
+  }
+
+  /**
+   * @param x The x coordinate of a point.
+   * @param y The y coordinate of a point.
+   * @return The id of (x, y), or -1 if it is not in this table.
+   */
+  public int idOf(double x, double y) {
+    return slots[find(x, y)] - 1;
+  }
+
+  /**
+   * @param point A point.
+   * @return The id of point, or -1 if it is not in this table.
+   */
+  public int idOf(Point point) {
+    return idOf(point.getX(), point.getY());
+  }
+
+  /**
+   * @param id The id of a point in this table.
+   * @return The canonical object of the point with that id.
+   * @throws IndexOutOfBoundsException if id is not between 0 and size() - 1
+   */
+  public Point point(int id) {
+    checkId(id);
+    return points[id];
+  }
+
+  /**
+   * @param id The id of a point in this table.
+   * @return The x coordinate of the point with that id.
+   * @throws IndexOutOfBoundsException if id is not between 0 and size() - 1
+   */
+  public double x(int id) {
+    checkId(id);
+    return xs[id];
+  }
+
+  /**
+   * @param id The id of a point in this table.
+   * @return The y coordinate of the point with that id.
+   * @throws IndexOutOfBoundsException if id is not between 0 and size() - 1
+   */
+  public double y(int id) {
+    checkId(id);
+    return ys[id];
+  }
+
+  /**
+   * @return The number of distinct points in this table, which is also the next free id.
+   */
+  public int size() {
+    return size;
+  }
+
+  private void checkId(int id) {
+    if(id < 0 || id >= size) {
+      throw new IndexOutOfBoundsException("No point with id " + id);
+    }
+  }
+
+  // the slot holding (x, y), or the empty slot where it would be added
+  private int find(double x, double y) {
+    long xBits = Double.doubleToLongBits(x);
+    long yBits = Double.doubleToLongBits(y);
+    int mask = slots.length - 1;
+    int slot = hash(xBits, yBits) & mask;
+    while(slots[slot] != 0) {
+      int id = slots[slot] - 1;
+      if(Double.doubleToLongBits(xs[id]) == xBits && Double.doubleToLongBits(ys[id]) == yBits) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  // spreads the bits of both coordinates over the whole int
+  private static int hash(long xBits, long yBits) {
+    long h = xBits * 0x9E3779B97F4A7C15L + yBits;
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    return (int) h;
+  }
+
+  private int add(int slot, Point point) {
+    if(size == points.length) {
+      int capacity = 2 * size;
+      points = Arrays.copyOf(points, capacity);
+      xs = Arrays.copyOf(xs, capacity);
+      ys = Arrays.copyOf(ys, capacity);
+    }
+    int id = size++;
+    points[id] = point;
+    xs[id] = point.getX();
+    ys[id] = point.getY();
+    if(2 * size > slots.length) {
+      rehash();
+    } else {
+      slots[slot] = id + 1;
+    }
+    return id;
+  }
+
+  // doubles the hash table and puts every id back in it
+  private void rehash() {
+    slots = new int[2 * slots.length];
+    int mask = slots.length - 1;
+    for(int id = 0; id < size; id++) {
+      int slot = hash(Double.doubleToLongBits(xs[id]), Double.doubleToLongBits(ys[id])) & mask;
+      while(slots[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = id + 1;
+    }
+  }
+}
@@ -11,19 +11,11 @@
 
 package pathfinder.parser;
 
-import com.opencsv.CSVParser;
-import com.opencsv.CSVParserBuilder;
-import com.opencsv.CSVReader;
-import com.opencsv.CSVReaderBuilder;
-
-import java.io.IOException;
-import java.io.Reader;
-import java.net.URISyntaxException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * A utility class capable of parsing data in campus_buildings.tsv and
@@ -32,19 +24,49 @@ import java.util.List;
 public class CampusPathsParser {
 
   /**
-   * The base directory for all tsv files for this project.
+   * The system property naming the directory the tsv files are read from.
+   */
+  public static final String DATA_DIR_PROPERTY = "pathfinder.dataDir";
+
+  /**
+   * The base directory for all tsv files for this project, unless
+   * {@value #DATA_DIR_PROPERTY} names another one.
    */
   private static final String DATA_DIR = "src/main/resources/pathfinder/data/";
 
   /**
-   * The complete filename of the campus_buildings.tsv file.
+   * The filename of the campus_buildings.tsv file within the data directory.
+   */
+  private static final String CAMPUS_BUILDINGS_FILE = "campus_buildings.tsv";
+
+  /**
+   * The filename of the campus_paths.tsv file within the data directory.
+   */
+  private static final String CAMPUS_PATHS_FILE = "campus_paths.tsv";
+
+  /**
+   * The directory is looked up on every call, so a changed {@value #DATA_DIR_PROPERTY}
+   * applies to the next parse.
+   *
+   * @return The directory the tsv files of this parser are read from.
    */
-  private static final String CAMPUS_BUILDINGS_FILE = DATA_DIR + "campus_buildings.tsv";
+  public static Path dataDirectory() {
+    return Paths.get(System.getProperty(DATA_DIR_PROPERTY, DATA_DIR));
+  }
 
   /**
-   * The complete filename of the campus_paths.tsv file.
+   * @return The location of the campus_buildings.tsv file this parser reads.
    */
-  private static final String CAMPUS_PATHS_FILE = DATA_DIR + "campus_paths.tsv";
+  public static Path campusBuildingsFile() {
+    return dataDirectory().resolve(CAMPUS_BUILDINGS_FILE);
+  }
+
+  /**
+   * @return The location of the campus_paths.tsv file this parser reads.
+   */
+  public static Path campusPathsFile() {
+    return dataDirectory().resolve(CAMPUS_PATHS_FILE);
+  }
 
   /**
    * Parses the campus_buildings.tsv file and returns a list of objects
@@ -56,28 +78,18 @@ public class CampusPathsParser {
    */
   public static List<CampusBuilding> parseCampusBuildings() {
     List<CampusBuilding> buildings = new ArrayList<>();
-    CSVReader reader = initializeReader(CAMPUS_BUILDINGS_FILE);
-    //
-    for(String[] line : reader) {
-      if(line.length != 4) {
-        throw new ParserException("Wrong number of fields in line.");
-      }
-      String shortName = line[0];
-      String longName = line[1];
-      double x, y;
-      try {
-        x = Double.parseDouble(line[2]);
-        y = Double.parseDouble(line[3]);
-      } catch(NumberFormatException e) {
-        throw new ParserException("Cannot parse x/y coordinates as numbers.", e);
+    try(TsvReader reader = initializeReader(campusBuildingsFile())) {
+      while(reader.next()) {
+        if(reader.fieldCount() != 4) {
+          throw new ParserException("Wrong number of fields in line " + reader.lineNumber() + ".");
+        }
+        String shortName = reader.getString(0);
+        String longName = reader.getString(1);
+        double x = reader.getDouble(2);
+        double y = reader.getDouble(3);
+        //
+        buildings.add(new CampusBuilding(shortName, longName, x, y));
       }
-      //
-      buildings.add(new CampusBuilding(shortName, longName, x, y));
-    }
-    try {
-      reader.close();
-    } catch(IOException e) {
-      throw new ParserException("Exception when closing parser.", e);
     }
     //
     return buildings;
@@ -93,57 +105,122 @@ public class CampusPathsParser {
    */
   public static List<CampusPath> parseCampusPaths() {
     List<CampusPath> paths = new ArrayList<>();
-    CSVReader reader = initializeReader(CAMPUS_PATHS_FILE);
-    //
-    for(String[] line : reader) {
-      if(line.length != 5) {
-        throw new ParserException("Wrong number of fields in line.");
-      }
-      double x1, x2, y1, y2, distance;
-      try {
-        x1 = Double.parseDouble(line[0]);
-        y1 = Double.parseDouble(line[1]);
-        x2 = Double.parseDouble(line[2]);
-        y2 = Double.parseDouble(line[3]);
-        distance = Double.parseDouble(line[4]);
-      } catch(NumberFormatException e) {
-        throw new ParserException("Cannot parse x/y coordinates as numbers.", e);
-      }
-      //
-      paths.add(new CampusPath(x1, y1, x2, y2, distance));
+    parseCampusPaths((x1, y1, x2, y2, distance) ->
+                         paths.add(new CampusPath(x1, y1, x2, y2, distance)));
+    return paths;
+  }
+
+  /**
+   * Parses the campus_paths.tsv file and passes the data of each line to
+   * {@code visitor}, in file order, without creating an object per line.
+   *
+   * @param visitor Receives the data of every line.
+   * @throws ParserException if the file cannot be found or parsed as expected
+   */
+  public static void parseCampusPaths(CampusPathVisitor visitor) {
+    parseCampusPaths(campusPathsFile(), visitor);
+  }
+
+  /**
+   * Parses a file in the format of campus_paths.tsv and passes the data of
+   * each line to {@code visitor}, in file order, without creating an object
+   * per line.
+   *
+   * @param file    The file to parse.
+   * @param visitor Receives the data of every line.
+   * @throws ParserException if the file cannot be found or parsed as expected
+   */
+  public static void parseCampusPaths(Path file, CampusPathVisitor visitor) {
+    try(TsvReader reader = initializeReader(file)) {
+      visitCampusPaths(reader, visitor);
     }
-    try {
-      reader.close();
-    } catch(IOException e) {
-      throw new ParserException("Exception when closing parser.", e);
+  }
+
+  /**
+   * Parses a file in the format of campus_paths.tsv on the common fork-join
+   * pool. See {@link #parseCampusPathsParallel(Path, ForkJoinPool, CampusPathVisitor)}.
+   *
+   * @param file    The file to parse.
+   * @param visitor Receives the data of every line, in file order.
+   * @throws ParserException if the file cannot be found or parsed as expected
+   */
+  public static void parseCampusPathsParallel(Path file, CampusPathVisitor visitor) {
+    parseCampusPathsParallel(file, ForkJoinPool.commonPool(), visitor);
+  }
+
+  /**
+   * Parses a file in the format of campus_paths.tsv in parallel. The file is
+   * split into chunks on line boundaries, the chunks are parsed on
+   * {@code pool}, and {@code visitor} receives the data of every line in file
+   * order on the calling thread while later chunks are still being parsed.
+   * Errors are reported with the same line numbers as a sequential parse,
+   * and if several lines are malformed the first one is reported. Quoted
+   * fields must not contain line breaks.
+   *
+   * @param file    The file to parse.
+   * @param pool    The pool to parse chunks on.
+   * @param visitor Receives the data of every line, in file order.
+   * @throws ParserException if the file cannot be found or parsed as expected
+   */
+  public static void parseCampusPathsParallel(Path file, ForkJoinPool pool,
+                                              CampusPathVisitor visitor) {
+    ParallelPathsReader.read(file, pool, visitor);
+  }
+
+  /**
+   * Passes the data of every remaining record of {@code reader} to {@code visitor}.
+   *
+   * @param reader  The records to read, in the format of campus_paths.tsv.
+   * @param visitor Receives the data of every record.
+   * @throws ParserException if a record cannot be parsed as expected
+   */
+  static void visitCampusPaths(TsvReader reader, CampusPathVisitor visitor) {
+    while(reader.next()) {
+      if(reader.fieldCount() != 5) {
+        throw new ParserException("Wrong number of fields in line " + reader.lineNumber() + ".");
+      }
+      visitor.visit(reader.getDouble(0), reader.getDouble(1),
+                    reader.getDouble(2), reader.getDouble(3),
+                    reader.getDouble(4));
     }
-    //
-    return paths;
   }
 
   /**
-   * Initializes a CSV reader with the provided filename, relative to the
-   * classpath of this parser class. The returned reader is configured
-   * to parse tab-character separated fields per line, and skips the first
-   * line in the file.
+   * Initializes a TSV reader of the provided file. The returned reader has
+   * already skipped the first (header) line in the file.
    *
-   * @param filename The file to initialize a parser for.
-   * @return A new {@link CSVReader} prepared to begin reading from that file.
+   * @param file The file to initialize a parser for.
+   * @return A new {@link TsvReader} prepared to begin reading from that file;
+   * the caller must close it.
+   * @throws ParserException if the file cannot be read
    */
-  private static CSVReader initializeReader(String filename) {
-    Reader fileReader;
+  private static TsvReader initializeReader(Path file) {
+    TsvReader reader = TsvReader.open(file);
     try {
-      Path uri = Paths.get(filename);
-      fileReader = Files.newBufferedReader(uri);
-    } catch(IOException e) {
-      throw new ParserException("Cannot create parser.", e);
+      reader.next();
+    } catch(ParserException e) {
+      reader.close();
+      throw e;
     }
-    //
-    CSVParser parser = new CSVParserBuilder().withSeparator('\t').build();
-    return new CSVReaderBuilder(fileReader)
-            .withCSVParser(parser)
-            .withSkipLines(1)
-            .build();
+    return reader;
+  }
+
+  /**
+   * Receives the data of one line of campus_paths.tsv.
+   */
+  @FunctionalInterface
+  public interface CampusPathVisitor {
+
+    /**
+     * Called once for every line of the parsed file.
+     *
+     * @param x1       The pixel-x coordinate of the first point
+     * @param y1       The pixel-y coordinate of the first point
+     * @param x2       The pixel-x coordinate of the second point
+     * @param y2       The pixel-y coordinate of the second point
+     * @param distance The distance between the points as described in the dataset
+     */
+    void visit(double x1, double y1, double x2, double y2, double distance);
   }
 
   /**
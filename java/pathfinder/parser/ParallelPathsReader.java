@@ -0,0 +1,245 @@
+package pathfinder.parser;
+
+import pathfinder.parser.CampusPathsParser.CampusPathVisitor;
+import pathfinder.parser.CampusPathsParser.ParserException;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parses a file in the format of campus_paths.tsv in chunks on a fork-join pool. The file
+ * is cut into chunks that end at a line break, each chunk is mapped into memory and parsed
+ * into primitive columns by its own task, and the columns are handed to the visitor chunk
+ * by chunk in file order.
+ * <p>
+ * The tasks do not know on which line their chunk starts, so each one numbers its lines
+ * from 1 and counts them. Once every chunk before a failing one has been parsed, the start
+ * line of the failing chunk is known and it is parsed again with the right numbers, so the
+ * error reports the same line as a sequential parse would.
+ */
+final class ParallelPathsReader {
+
+  // This class does not represent an ADT.
+
+  /**
+   * Bounds on the size of a chunk, in bytes.
+   */
+  private static final long MIN_CHUNK_BYTES = 1L << 20;
+  private static final long MAX_CHUNK_BYTES = 1L << 26;
+
+  /**
+   * The most bytes a chunk can have at all, since it is read into one byte array; only a
+   * line longer than this makes a chunk that large.
+   */
+  private static final long MAX_ARRAY_BYTES = Integer.MAX_VALUE - 8;
+
+  /**
+   * The number of bytes mapped at a time while looking for the end of a chunk.
+   */
+  private static final int BOUNDARY_WINDOW = 1 << 16;
+
+  /**
+   * Chunks per worker thread, so that threads that finish early can take more.
+   */
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  /**
+   * Chunks per worker thread that may be parsed and waiting at a time, which bounds the
+   * memory held by parsed columns however large the file is.
+   */
+  private static final int IN_FLIGHT_PER_THREAD = 2;
+
+  private ParallelPathsReader() {
+  }
+
+  /**
+   * Parses file on pool and passes every line to visitor in file order. A chunk is only
+   * submitted once the visitor is close enough to it, so a slow visitor holds back the
+   * parsing instead of letting parsed chunks pile up.
+   *
+   * @param file    The file to parse.
+   * @param pool    The pool to parse chunks on.
+   * @param visitor Receives the data of every line, in file order.
+   * @throws ParserException if the file cannot be found or parsed as expected
+   */
+  static void read(Path file, ForkJoinPool pool, CampusPathVisitor visitor) {
+    try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long[] bounds = chunkBounds(channel, pool.getParallelism());
+      int chunks = bounds.length - 1;
+      int inFlight = Math.max(2, IN_FLIGHT_PER_THREAD * pool.getParallelism());
+      List<ForkJoinTask<Chunk>> tasks = new ArrayList<>(chunks);
+      while(tasks.size() < Math.min(inFlight, chunks)) {
+        tasks.add(submit(pool, channel, bounds, tasks.size()));
+      }
+      int firstLine = 1;
+      for(int i = 0; i < chunks; i++) {
+        Chunk chunk;
+        try {
+          chunk = join(tasks.get(i));
+        } catch(ParserException e) {
+          for(int j = i + 1; j < tasks.size(); j++) {
+            tasks.get(j).cancel(false);
+          }
+          // parse again knowing the start line, to throw with the absolute line number
+          Chunk.parse(channel, bounds[i], bounds[i + 1], i == 0, firstLine);
+          throw e;
+        }
+        tasks.set(i, null);
+        if(tasks.size() < chunks) {
+          tasks.add(submit(pool, channel, bounds, tasks.size()));
+        }
+        chunk.visit(visitor);
+        firstLine += chunk.lines;
+      }
+    } catch(IOException e) {
+      throw new ParserException("Cannot create parser.", e);
+    }
+  }
+
+  // submits the parse of chunk i, numbering its lines from 1
+  private static ForkJoinTask<Chunk> submit(ForkJoinPool pool, FileChannel channel,
+                                            long[] bounds, int i) {
+    return pool.submit(() -> Chunk.parse(channel, bounds[i], bounds[i + 1], i == 0, 1));
+  }
+
+  private static Chunk join(ForkJoinTask<Chunk> task) {
+    try {
+      return task.get();
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ParserException("Interrupted while parsing.", e);
+    } catch(ExecutionException e) {
+      if(e.getCause() instanceof ParserException) {
+        throw (ParserException) e.getCause();
+      }
+      throw new ParserException("Exception when parsing.", e.getCause());
+    }
+  }
+
+  /**
+   * Cuts the file into chunks that each end just after a line break, or at the end of the
+   * file.
+   *
+   * @return Offsets b such that chunk i is [b[i], b[i + 1]).
+   * @throws ParserException if a chunk would be too long for an array, which only a
+   *                         line of about 2 GB can make it
+   */
+  private static long[] chunkBounds(FileChannel channel, int parallelism) throws IOException {
+    long size = channel.size();
+    long target = size / Math.max(1, parallelism * CHUNKS_PER_THREAD);
+    target = Math.max(MIN_CHUNK_BYTES, Math.min(MAX_CHUNK_BYTES, target));
+    long[] bounds = new long[16];
+    int count = 1;
+    long start = 0;
+    while(start < size) {
+      long end = start + target >= size ? size : lineEnd(channel, start + target, size);
+      if(end - start > MAX_ARRAY_BYTES) {
+        throw new ParserException("No line break within " + MAX_ARRAY_BYTES + " bytes after byte "
+                                  + start + ".");
+      }
+      if(count == bounds.length) {
+        bounds = Arrays.copyOf(bounds, 2 * count);
+      }
+      bounds[count++] = end;
+      start = end;
+    }
+    return Arrays.copyOf(bounds, count);
+  }
+
+  // the offset just after the first line break at or after from, or size if there is none;
+  // line breaks are \n, \r\n and \r, as TsvReader reads them
+  private static long lineEnd(FileChannel channel, long from, long size) throws IOException {
+    for(long window = from; window < size; window += BOUNDARY_WINDOW) {
+      int length = (int) Math.min(BOUNDARY_WINDOW, size - window);
+      // one byte more, when there is one, to see the \n of a \r\n that the window splits
+      int mapped = (int) Math.min(BOUNDARY_WINDOW + 1L, size - window);
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, window, mapped);
+      for(int i = 0; i < length; i++) {
+        byte b = buffer.get(i);
+        if(b == '\n') {
+          return window + i + 1;
+        }
+        if(b == '\r') {
+          return window + i + (i + 1 < mapped && buffer.get(i + 1) == '\n' ? 2 : 1);
+        }
+      }
+    }
+    return size;
+  }
+
+  /**
+   * The parsed lines of one chunk, in primitive columns.
+   */
+  private static final class Chunk {
+
+    // This class does not represent an ADT.
+
+    private double[] x1;
+    private double[] y1;
+    private double[] x2;
+    private double[] y2;
+    private double[] distance;
+    private int size;
+    // number of lines in the chunk
+    private int lines;
+
+    private Chunk(int capacity) {
+      x1 = new double[capacity];
+      y1 = new double[capacity];
+      x2 = new double[capacity];
+      y2 = new double[capacity];
+      distance = new double[capacity];
+    }
+
+    /**
+     * Maps [start, end) of channel and parses it, numbering its first line firstLine.
+     */
+    static Chunk parse(FileChannel channel, long start, long end, boolean header,
+                       int firstLine) throws IOException {
+      int length = (int) (end - start);
+      byte[] bytes = new byte[length];
+      channel.map(FileChannel.MapMode.READ_ONLY, start, length).get(bytes);
+      // lines of campus_paths.tsv are about 60 bytes long; guess a little high
+      Chunk chunk = new Chunk(Math.max(16, length / 48));
+      TsvReader reader = new TsvReader(bytes, 0, length, firstLine);
+      if(header) {
+        reader.next();
+      }
+      CampusPathsParser.visitCampusPaths(reader, chunk::add);
+      chunk.lines = reader.nextLineNumber() - firstLine;
+      return chunk;
+    }
+
+    private void add(double x1, double y1, double x2, double y2, double distance) {
+      if(size == this.x1.length) {
+        int capacity = 2 * size;
+        this.x1 = Arrays.copyOf(this.x1, capacity);
+        this.y1 = Arrays.copyOf(this.y1, capacity);
+        this.x2 = Arrays.copyOf(this.x2, capacity);
+        this.y2 = Arrays.copyOf(this.y2, capacity);
+        this.distance = Arrays.copyOf(this.distance, capacity);
+      }
+      this.x1[size] = x1;
+      this.y1[size] = y1;
+      this.x2[size] = x2;
+      this.y2[size] = y2;
+      this.distance[size] = distance;
+      size++;
+    }
+
+    void visit(CampusPathVisitor visitor) {
+      for(int i = 0; i < size; i++) {
+        visitor.visit(x1[i], y1[i], x2[i], y2[i], distance[i]);
+      }
+    }
+  }
+}
@@ -0,0 +1,398 @@
+package pathfinder.parser;
+
+import pathfinder.parser.CampusPathsParser.ParserException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A streaming reader of tab-separated records of UTF-8 text. The reader is a cursor:
+ * {@link TsvReader#next()} moves to the next record and only records where each of its
+ * fields begins and ends in a reused byte buffer, and the fields are then read in place,
+ * numbers straight from the bytes. Reading a record allocates nothing unless a field is
+ * asked for as a {@link String}, so numeric files of any size are read without per-line
+ * garbage and in constant memory.
+ * <p>
+ * Records end at {@code \n}, {@code \r\n} or {@code \r}. A field that starts with a
+ * double quote is quoted: it ends at the next lone double quote, may contain tabs and
+ * line breaks, and {@code ""} inside it stands for one double quote. An empty line is a
+ * record with one empty field.
+ */
+public final class TsvReader implements AutoCloseable {
+
+  // This class does not represent an ADT.
+
+  /**
+   * The number of bytes read from a channel at a time.
+   */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /**
+   * The largest integer n such that every long up to n is exactly a double.
+   */
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+  /**
+   * Powers of ten that are exactly doubles.
+   */
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+      1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  private static final byte TAB = '\t';
+  private static final byte QUOTE = '"';
+  private static final byte LF = '\n';
+  private static final byte CR = '\r';
+
+  /**
+   * Where more bytes come from, or null if all input is already in bytes.
+   */
+  private final ReadableByteChannel source;
+  private boolean sourceDone;
+
+  /**
+   * The input read so far: the next record starts at bytes[position], and
+   * bytes[position .. limit) have not been read yet.
+   */
+  private byte[] bytes;
+  private int position;
+  private int limit;
+
+  /**
+   * Where the content of each field of the current record starts and ends in bytes, and
+   * whether it is quoted with escaped quotes inside.
+   */
+  private int[] starts = new int[8];
+  private int[] ends = new int[8];
+  private boolean[] escaped = new boolean[8];
+  private int fieldCount;
+
+  /**
+   * The line the current record starts on, and the line the next record starts on.
+   */
+  private int lineNumber;
+  private int nextLineNumber;
+
+  /**
+   * Creates a reader of {@code bytes[offset .. offset + length)}, whose first line is line
+   * {@code firstLine} of the file the bytes came from. The bytes are not copied.
+   *
+   * @param bytes     The input.
+   * @param offset    Where the input starts in bytes.
+   * @param length    The number of bytes of input.
+   * @param firstLine The line number of the first line of the input.
+   */
+  public TsvReader(byte[] bytes, int offset, int length, int firstLine) {
+    this.source = null;
+    this.sourceDone = true;
+    this.bytes = bytes;
+    this.position = offset;
+    this.limit = offset + length;
+    this.nextLineNumber = firstLine;
+  }
+
+  /**
+   * Creates a reader of everything that can be read from {@code source}, which is read a
+   * block at a time as the records are read.
+   *
+   * @param source The input.
+   */
+  public TsvReader(ReadableByteChannel source) {
+    this.source = source;
+    this.bytes = new byte[BUFFER_SIZE];
+    this.nextLineNumber = 1;
+  }
+
+  /**
+   * Opens {@code file} and creates a reader of it. The reader must be closed.
+   *
+   * @param file The file to read.
+   * @return A reader positioned before the first record of file.
+   * @throws ParserException if the file cannot be opened
+   */
+  public static TsvReader open(Path file) {
+    try {
+      return new TsvReader(FileChannel.open(file, StandardOpenOption.READ));
+    } catch(IOException e) {
+      throw new ParserException("Cannot create parser.", e);
+    }
+  }
+
+  /**
+   * Moves to the next record.
+   *
+   * @return {@literal true} if there is a next record, {@literal false} at the end of input.
+   * @throws ParserException if a quoted field is not terminated properly or the input
+   *                         cannot be read
+   */
+  public boolean next() {
+    fieldCount = 0;
+    if(position >= limit && !fill()) {
+      return false;
+    }
+    lineNumber = nextLineNumber;
+    // a record is scanned again from its start whenever it runs past the buffered input
+    while(!scanRecord()) {
+      fieldCount = 0;
+      nextLineNumber = lineNumber;
+      fill();
+    }
+    return true;
+  }
+
+  /**
+   * Scans the record at position, recording its fields.
+   *
+   * @return {@literal false} if the record may continue past limit, {@literal true} once it
+   * was scanned completely and position moved past it.
+   */
+  private boolean scanRecord() {
+    byte[] b = bytes;
+    int pos = position;
+    int end = limit;
+    while(true) {
+      int fieldStart = pos;
+      int fieldEnd;
+      boolean hasEscapes = false;
+      if(pos < end && b[pos] == QUOTE) {
+        fieldStart = ++pos;
+        while(true) {
+          if(pos >= end) {
+            if(!sourceDone) {
+              return false;
+            }
+            throw new ParserException("Unterminated quoted field in line " + lineNumber + ".");
+          }
+          if(b[pos] == QUOTE) {
+            if(pos + 1 >= end && !sourceDone) {
+              return false;
+            }
+            if(pos + 1 < end && b[pos + 1] == QUOTE) {
+              hasEscapes = true;
+              pos += 2;
+              continue;
+            }
+            break;
+          }
+          if(b[pos] == LF || (b[pos] == CR && pos + 1 < end && b[pos + 1] != LF)) {
+            nextLineNumber++;
+          } else if(b[pos] == CR && pos + 1 >= end) {
+            if(!sourceDone) {
+              return false;
+            }
+            nextLineNumber++;
+          }
+          pos++;
+        }
+        fieldEnd = pos++;
+        if(pos < end && !isDelimiter(b[pos])) {
+          throw new ParserException("Unexpected character after quoted field in line "
+                                    + lineNumber + ".");
+        }
+      } else {
+        while(pos < end && !isDelimiter(b[pos])) {
+          pos++;
+        }
+        fieldEnd = pos;
+      }
+      if(pos >= end && !sourceDone) {
+        return false;
+      }
+      addField(fieldStart, fieldEnd, hasEscapes);
+      if(pos >= end) {
+        break;
+      }
+      byte delimiter = b[pos++];
+      if(delimiter == TAB) {
+        continue;
+      }
+      if(delimiter == CR) {
+        if(pos >= end && !sourceDone) {
+          return false;
+        }
+        if(pos < end && b[pos] == LF) {
+          pos++;
+        }
+      }
+      break;
+    }
+    nextLineNumber++;
+    position = pos;
+    return true;
+  }
+
+  /**
+   * Moves the unread input to the front of bytes, growing it if the unread input fills it,
+   * and reads more input after it.
+   *
+   * @return {@literal true} if there is unread input afterwards.
+   */
+  private boolean fill() {
+    if(sourceDone) {
+      return position < limit;
+    }
+    int unread = limit - position;
+    if(unread == bytes.length) {
+      bytes = Arrays.copyOf(bytes, 2 * bytes.length);
+    } else {
+      System.arraycopy(bytes, position, bytes, 0, unread);
+    }
+    position = 0;
+    limit = unread;
+    try {
+      ByteBuffer target = ByteBuffer.wrap(bytes, limit, bytes.length - limit);
+      int read = source.read(target);
+      if(read < 0) {
+        sourceDone = true;
+      } else {
+        limit += read;
+      }
+    } catch(IOException e) {
+      throw new ParserException("Cannot read input in line " + nextLineNumber + ".", e);
+    }
+    return position < limit || !sourceDone;
+  }
+
+  private static boolean isDelimiter(byte b) {
+    return b == TAB || b == LF || b == CR;
+  }
+
+  private void addField(int start, int end, boolean hasEscapes) {
+    if(fieldCount == starts.length) {
+      starts = Arrays.copyOf(starts, 2 * fieldCount);
+      ends = Arrays.copyOf(ends, 2 * fieldCount);
+      escaped = Arrays.copyOf(escaped, 2 * fieldCount);
+    }
+    starts[fieldCount] = start;
+    ends[fieldCount] = end;
+    escaped[fieldCount] = hasEscapes;
+    fieldCount++;
+  }
+
+  /**
+   * @return The number of fields in the current record.
+   */
+  public int fieldCount() {
+    return fieldCount;
+  }
+
+  /**
+   * @return The line number the current record starts on, counting from 1.
+   */
+  public int lineNumber() {
+    return lineNumber;
+  }
+
+  /**
+   * @return The line number the record after the current one starts on; once all input
+   * is read, one more than the number of the last line.
+   */
+  int nextLineNumber() {
+    return nextLineNumber;
+  }
+
+  /**
+   * Returns a field of the current record as a string, with any quoting removed.
+   *
+   * @param field The index of the field.
+   * @return The contents of the field.
+   * @throws IndexOutOfBoundsException if field is not between 0 and fieldCount() - 1
+   */
+  public String getString(int field) {
+    checkField(field);
+    String value = new String(bytes, starts[field], ends[field] - starts[field],
+                              StandardCharsets.UTF_8);
+    return escaped[field] ? value.replace("\"\"", "\"") : value;
+  }
+
+  /**
+   * Parses a field of the current record as a decimal number. The result is exactly the
+   * one {@link Double#parseDouble(String)} gives for the same text. Plain decimals whose
+   * digits fit in 53 bits are converted straight from the bytes; anything else falls back
+   * to {@link Double#parseDouble(String)}.
+   *
+   * @param field The index of the field.
+   * @return The value of the field.
+   * @throws ParserException           if the field is not a number
+   * @throws IndexOutOfBoundsException if field is not between 0 and fieldCount() - 1
+   */
+  public double getDouble(int field) {
+    checkField(field);
+    byte[] b = bytes;
+    int pos = starts[field];
+    int end = ends[field];
+    boolean negative = false;
+    if(pos < end && (b[pos] == '-' || b[pos] == '+')) {
+      negative = b[pos] == '-';
+      pos++;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int scale = 0;
+    boolean seenPoint = false;
+    boolean exact = true;
+    for(; pos < end; pos++) {
+      int digit = b[pos] - '0';
+      if(digit >= 0 && digit <= 9) {
+        if(mantissa > (MAX_EXACT_MANTISSA - 9) / 10) {
+          exact = false;
+          break;
+        }
+        mantissa = 10 * mantissa + digit;
+        digits++;
+        if(seenPoint) {
+          scale++;
+        }
+      } else if(b[pos] == '.' && !seenPoint) {
+        seenPoint = true;
+      } else {
+        // exponents, special values and malformed text
+        exact = false;
+        break;
+      }
+    }
+    if(exact && digits > 0 && scale < POWERS_OF_TEN.length) {
+      // both operands are exact doubles, so the one rounding of the division is the
+      // correctly rounded result, the same one parseDouble finds
+      double value = mantissa / POWERS_OF_TEN[scale];
+      return negative ? -value : value;
+    }
+    String text = getString(field);
+    try {
+      return Double.parseDouble(text);
+    } catch(NumberFormatException e) {
+      throw new ParserException("Cannot parse \"" + text + "\" as a number in line "
+                                + lineNumber + ".", e);
+    }
+  }
+
+  private void checkField(int field) {
+    if(field < 0 || field >= fieldCount) {
+      throw new IndexOutOfBoundsException("No field " + field + " in line " + lineNumber + ".");
+    }
+  }
+
+  /**
+   * Closes the channel this reader reads from, if any.
+   *
+   * @throws ParserException if the channel cannot be closed
+   */
+  @Override
+  public void close() {
+    if(source == null) {
+      return;
+    }
+    try {
+      source.close();
+    } catch(IOException e) {
+      throw new ParserException("Exception when closing parser.", e);
+    }
+  }
+}
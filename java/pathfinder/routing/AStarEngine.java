@@ -0,0 +1,102 @@
+package pathfinder.routing;
+
+/**
+ * AStarEngine finds shortest routes with A* over a CsrGraph, using the straight-line
+ * distance to the end node as the heuristic. Edge weights of the campus data are in
+ * feet while coordinates are in map pixels, so the straight-line distance is first
+ * multiplied by a scale factor: the smallest ratio of edge weight to edge length in
+ * the graph. With that factor no edge is cheaper than the scaled straight line
+ * between its ends, so the heuristic never overestimates and is consistent, and
+ * every route found is a shortest one.
+ */
+public final class AStarEngine implements RoutingEngine {
+
+    // This class does not represent an ADT.
+
+    private final CsrGraph graph;
+    private final double scale;
+    private final ThreadLocal<SearchSpace> spaces;
+
+    /**
+     * Creates an engine over graph.
+     *
+     * @param graph the graph to search
+     * @spec.requires graph != null
+     */
+    public AStarEngine(CsrGraph graph) {
+        this.graph = graph;
+        this.scale = admissibleScale(graph);
+        this.spaces = ThreadLocal.withInitial(() -> new SearchSpace(graph.nodeCount()));
+    }
+
+    /**
+     * Computes the largest factor k such that, for every edge of graph, the weight of
+     * the edge is at least k times the straight-line distance between its ends. Then
+     * k times the straight-line distance to the target is an admissible heuristic.
+     * Returns 0 (plain Dijkstra) if some edge of non-zero length has weight 0.
+     *
+     * @param graph the graph to check
+     * @spec.requires graph != null
+     * @return the admissible scale factor between coordinate units and edge weights
+     */
+    public static double admissibleScale(CsrGraph graph) {
+        double scale = Double.POSITIVE_INFINITY;
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            double length = Math.hypot(graph.x(graph.target(e)) - graph.x(graph.source(e)),
+                    graph.y(graph.target(e)) - graph.y(graph.source(e)));
+            if (length > 0) {
+                scale = Math.min(scale, graph.weight(e) / length);
+            }
+        }
+        if (scale == Double.POSITIVE_INFINITY) {
+            // no edge has any length, so coordinates say nothing about weights
+            return 0.0;
+        }
+        // shave off a little so rounding in the heuristic can't overestimate
+        return scale * (1 - 1e-9);
+    }
+
+    /**
+     * @return the scale factor applied to straight-line distances
+     */
+    public double getScale() {
+        return scale;
+    }
+
+    @Override
+    public Route route(int start, int end) {
+        SearchSpace space = spaces.get();
+        space.reset();
+        double endX = graph.x(end);
+        double endY = graph.y(end);
+        space.reach(start, 0.0, -1);
+        space.heap.offer(start, heuristic(start, endX, endY));
+        while (!space.heap.isEmpty()) {
+            int node = space.heap.poll();
+            space.settle(node);
+            if (node == end) {
+                return Route.fromParents(graph, start, end, space);
+            }
+            double nodeDist = space.dist(node);
+            for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                int child = graph.target(e);
+                double newDist = nodeDist + graph.weight(e);
+                if (!space.isSettled(child) && newDist < space.dist(child)) {
+                    space.reach(child, newDist, e);
+                    space.heap.offer(child, newDist + heuristic(child, endX, endY));
+                }
+            }
+        }
+        return null;
+    }
+
+    // lower bound on the distance from node to the point (endX, endY)
+    private double heuristic(int node, double endX, double endY) {
+        return scale * Math.hypot(graph.x(node) - endX, graph.y(node) - endY);
+    }
+
+    @Override
+    public CsrGraph getGraph() {
+        return graph;
+    }
+}
@@ -0,0 +1,98 @@
+package pathfinder.routing;
+
+/**
+ * AltEngine finds shortest routes with A*, landmarks and the triangle inequality (ALT):
+ * the heuristic of a node is the largest lower bound on its distance to the end node
+ * given by any landmark's distance tables. The bound is consistent, so every route
+ * found is a shortest one, and unlike the straight-line bound it stays tight where
+ * paths detour around buildings. Preprocessing is a handful of full searches, much
+ * less than a contraction hierarchy needs.
+ */
+public final class AltEngine implements RoutingEngine {
+
+    // This class does not represent an ADT.
+
+    /**
+     * The number of landmarks used when none is configured.
+     */
+    public static final int DEFAULT_LANDMARK_COUNT = 8;
+
+    private final Landmarks landmarks;
+    private final ThreadLocal<SearchSpace> spaces;
+
+    /**
+     * Creates an engine over graph with the given number of landmarks.
+     *
+     * @param graph the graph to search
+     * @param landmarkCount the number of landmarks to select
+     * @spec.requires graph != null
+     * @throws IllegalArgumentException if landmarkCount < 1
+     */
+    public AltEngine(CsrGraph graph, int landmarkCount) {
+        this(landmarksFor(graph, landmarkCount));
+    }
+
+    /**
+     * Creates an engine over precomputed landmarks.
+     *
+     * @param landmarks the landmarks to bound distances with
+     * @spec.requires landmarks != null
+     */
+    public AltEngine(Landmarks landmarks) {
+        this.landmarks = landmarks;
+        this.spaces = ThreadLocal.withInitial(
+                () -> new SearchSpace(landmarks.getGraph().nodeCount()));
+    }
+
+    private static Landmarks landmarksFor(CsrGraph graph, int landmarkCount) {
+        if (landmarkCount < 1) {
+            throw new IllegalArgumentException("need at least one landmark: " + landmarkCount);
+        }
+        return Landmarks.select(graph, landmarkCount);
+    }
+
+    /**
+     * @return the landmarks this engine uses
+     */
+    public Landmarks getLandmarks() {
+        return landmarks;
+    }
+
+    @Override
+    public Route route(int start, int end) {
+        CsrGraph graph = landmarks.getGraph();
+        SearchSpace space = spaces.get();
+        space.reset();
+        double startBound = landmarks.lowerBound(start, end);
+        if (startBound == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+        space.reach(start, 0.0, -1);
+        space.heap.offer(start, startBound);
+        while (!space.heap.isEmpty()) {
+            int node = space.heap.poll();
+            space.settle(node);
+            if (node == end) {
+                return Route.fromParents(graph, start, end, space);
+            }
+            double nodeDist = space.dist(node);
+            for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                int child = graph.target(e);
+                double newDist = nodeDist + graph.weight(e);
+                if (!space.isSettled(child) && newDist < space.dist(child)) {
+                    double bound = landmarks.lowerBound(child, end);
+                    if (bound != Double.POSITIVE_INFINITY) {
+                        space.reach(child, newDist, e);
+                        space.heap.offer(child, newDist + bound);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public CsrGraph getGraph() {
+        return landmarks.getGraph();
+    }
+}
@@ -0,0 +1,101 @@
+package pathfinder.routing;
+
+/**
+ * BidirectionalDijkstraEngine finds shortest routes by growing a Dijkstra search
+ * forward from the start over outgoing edges and another backward from the end over
+ * the reverse adjacency of the CsrGraph, settling one node on each side in turn.
+ * It keeps mu, the cost of the best start-to-end route seen where the two searches
+ * touch, and stops once the smallest keys of the two heaps add up to at least mu:
+ * no route through an unsettled node can be shorter. On long routes each side only
+ * covers about half the radius, so far fewer nodes are settled than by one search.
+ */
+public final class BidirectionalDijkstraEngine implements RoutingEngine {
+
+    // This class does not represent an ADT.
+
+    private final CsrGraph graph;
+    private final ThreadLocal<SearchSpace[]> spaces;
+
+    /**
+     * Creates an engine over graph.
+     *
+     * @param graph the graph to search
+     * @spec.requires graph != null
+     */
+    public BidirectionalDijkstraEngine(CsrGraph graph) {
+        this.graph = graph;
+        this.spaces = ThreadLocal.withInitial(() -> new SearchSpace[] {
+                new SearchSpace(graph.nodeCount()), new SearchSpace(graph.nodeCount())});
+    }
+
+    @Override
+    public Route route(int start, int end) {
+        SearchSpace forward = spaces.get()[0];
+        SearchSpace backward = spaces.get()[1];
+        forward.reset();
+        backward.reset();
+        if (start == end) {
+            return new Route(graph, start, new int[0], 0);
+        }
+        forward.reach(start, 0.0, -1);
+        forward.heap.offer(start, 0.0);
+        backward.reach(end, 0.0, -1);
+        backward.heap.offer(end, 0.0);
+
+        double mu = Double.POSITIVE_INFINITY;
+        int meet = -1;
+        boolean forwardTurn = true;
+        while (!forward.heap.isEmpty() && !backward.heap.isEmpty()) {
+            if (forward.heap.peekKey() + backward.heap.peekKey() >= mu) {
+                break;
+            }
+            if (forwardTurn) {
+                int node = forward.heap.poll();
+                forward.settle(node);
+                double nodeDist = forward.dist(node);
+                for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                    int child = graph.target(e);
+                    double newDist = nodeDist + graph.weight(e);
+                    if (!forward.isSettled(child) && newDist < forward.dist(child)) {
+                        forward.reach(child, newDist, e);
+                        forward.heap.offer(child, newDist);
+                    }
+                    double through = forward.dist(child) + backward.dist(child);
+                    if (through < mu) {
+                        mu = through;
+                        meet = child;
+                    }
+                }
+            } else {
+                int node = backward.heap.poll();
+                backward.settle(node);
+                double nodeDist = backward.dist(node);
+                for (int i = graph.inEdgeStart(node); i < graph.inEdgeEnd(node); i++) {
+                    int e = graph.inEdge(i);
+                    int parent = graph.source(e);
+                    double newDist = nodeDist + graph.weight(e);
+                    if (!backward.isSettled(parent) && newDist < backward.dist(parent)) {
+                        backward.reach(parent, newDist, e);
+                        backward.heap.offer(parent, newDist);
+                    }
+                    double through = forward.dist(parent) + backward.dist(parent);
+                    if (through < mu) {
+                        mu = through;
+                        meet = parent;
+                    }
+                }
+            }
+            forwardTurn = !forwardTurn;
+        }
+        if (meet < 0) {
+            return null;
+        }
+        return Route.fromMeeting(graph, start, meet, end, forward, backward,
+                forward.settledCount() + backward.settledCount());
+    }
+
+    @Override
+    public CsrGraph getGraph() {
+        return graph;
+    }
+}
@@ -0,0 +1,324 @@
+package pathfinder.routing;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * BuildingRouteTable represents an immutable table of the shortest routes between every
+ * pair of a small set of nodes, the building entrances of a campus map. It is filled by
+ * one shortest path tree per building, grown in parallel on the fork-join pool, and
+ * keeps a dense distance matrix and, of each tree, only the edges that lie on its routes
+ * to the other buildings. A query between two buildings is then a table lookup and a
+ * walk up the tree, with no search at all.
+ *
+ * @spec.specfield graph : CsrGraph
+ * // the graph the routes run on
+ * @spec.specfield buildings : sequence of int
+ * // the node ids the table has routes between
+ */
+public final class BuildingRouteTable {
+
+    /*
+     Rep invariant:
+         graph, buildings, indexOf, distances, trees != null
+         indexOf[buildings[i]] == i, and indexOf[v] == -1 for every other node v
+         distances.length == buildings.length * buildings.length
+         distances[i * b + j] is the shortest distance from buildings[i] to buildings[j]
+         trees[i].edges are, in increasing order, the edges of a shortest path tree of
+             buildings[i] that lie on its paths to the buildings it reaches
+         trees[i].up[k] is the slot of the edge into graph.source(trees[i].edges[k]),
+             or -1 if that node is buildings[i]
+         trees[i].ends[j] is the slot of the edge into buildings[j], or -1 if
+             buildings[j] is buildings[i] or unreachable from it
+
+     Abstract function:
+         AF(this) = table t such that for buildings s and d,
+             t.route(s, d) = the shortest route from s to d in graph
+     */
+
+    private final CsrGraph graph;
+    private final int[] buildings;
+    private final int[] indexOf;
+    // row-major b x b distance matrix, positive infinity for unreachable pairs
+    private final double[] distances;
+    // trees[i] is the part of the shortest path tree of buildings[i] on its routes
+    private final Tree[] trees;
+
+    private BuildingRouteTable(CsrGraph graph, int[] buildings, int[] indexOf,
+                               double[] distances, Tree[] trees) {
+        this.graph = graph;
+        this.buildings = buildings;
+        this.indexOf = indexOf;
+        this.distances = distances;
+        this.trees = trees;
+    }
+
+    /**
+     * Builds the table of shortest routes between every pair of the given nodes.
+     *
+     * @param graph the graph to route on
+     * @param nodes the building node ids; duplicates are ignored
+     * @spec.requires graph != null, nodes != null, 0 <= nodes[i] < graph.nodeCount()
+     * @return the route table of nodes
+     */
+    public static BuildingRouteTable build(CsrGraph graph, int[] nodes) {
+        int[] buildings = Arrays.stream(nodes).distinct().toArray();
+        int b = buildings.length;
+        int[] indexOf = new int[graph.nodeCount()];
+        Arrays.fill(indexOf, -1);
+        for (int i = 0; i < b; i++) {
+            indexOf[buildings[i]] = i;
+        }
+        double[] distances = new double[b * b];
+        Tree[] trees = new Tree[b];
+        IntStream.range(0, b).parallel().forEach(i ->
+                trees[i] = growTree(graph, buildings, indexOf, i, distances));
+        return new BuildingRouteTable(graph, buildings, indexOf, distances, trees);
+    }
+
+    // runs Dijkstra from buildings[i] until every building is settled, fills row i of
+    // distances and returns the edges of the tree on its routes to the buildings
+    private static Tree growTree(CsrGraph graph, int[] buildings, int[] indexOf, int i,
+                                  double[] distances) {
+        int b = buildings.length;
+        int[] parentEdge = new int[graph.nodeCount()];
+        Arrays.fill(parentEdge, -1);
+        Arrays.fill(distances, i * b, (i + 1) * b, Double.POSITIVE_INFINITY);
+        SearchSpace space = new SearchSpace(graph.nodeCount());
+        space.reset();
+        space.reach(buildings[i], 0.0, -1);
+        space.heap.offer(buildings[i], 0.0);
+        int remaining = b;
+        while (!space.heap.isEmpty() && remaining > 0) {
+            int node = space.heap.poll();
+            space.settle(node);
+            double nodeDist = space.dist(node);
+            parentEdge[node] = space.parentEdge(node);
+            if (indexOf[node] >= 0) {
+                distances[i * b + indexOf[node]] = nodeDist;
+                remaining--;
+            }
+            for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                int child = graph.target(e);
+                double newDist = nodeDist + graph.weight(e);
+                if (!space.isSettled(child) && newDist < space.dist(child)) {
+                    space.reach(child, newDist, e);
+                    space.heap.offer(child, newDist);
+                }
+            }
+        }
+
+        // walk up from every reached building, flipping each parent edge e on the way
+        // to ~e so that the next walk stops where it meets this one
+        int root = buildings[i];
+        IntArrayList onRoutes = new IntArrayList();
+        for (int j = 0; j < b; j++) {
+            if (distances[i * b + j] == Double.POSITIVE_INFINITY) {
+                continue;
+            }
+            for (int node = buildings[j]; node != root && parentEdge[node] >= 0; ) {
+                int e = parentEdge[node];
+                onRoutes.add(e);
+                parentEdge[node] = ~e;
+                node = graph.source(e);
+            }
+        }
+        int[] edges = onRoutes.toArray();
+        Arrays.sort(edges);
+        int[] up = new int[edges.length];
+        for (int k = 0; k < edges.length; k++) {
+            up[k] = slot(edges, parentEdge, root, graph.source(edges[k]));
+        }
+        int[] ends = new int[b];
+        for (int j = 0; j < b; j++) {
+            ends[j] = distances[i * b + j] == Double.POSITIVE_INFINITY ? -1
+                    : slot(edges, parentEdge, root, buildings[j]);
+        }
+        return new Tree(edges, up, ends);
+    }
+
+    // the slot in edges of the flipped parent edge of node, or -1 for the root
+    private static int slot(int[] edges, int[] parentEdge, int root, int node) {
+        return node == root ? -1 : Arrays.binarySearch(edges, ~parentEdge[node]);
+    }
+
+    /**
+     * Returns the table of the same buildings on a graph with the same nodes as this
+     * one's, such as an edited version of it, without growing every tree again. A tree
+     * is grown again only if one of its routes uses an edge newGraph lacks, or if an
+     * edge newGraph adds would shorten one of its routes, which two searches per added
+     * edge tell; every other tree keeps its distances and is only renumbered to the edge
+     * ids of newGraph, or shared as it is if none of its edge ids change.
+     *
+     * @param newGraph the graph to route on
+     * @spec.requires newGraph != null
+     * @return the route table of the buildings of this table on newGraph
+     * @throws IllegalArgumentException if newGraph does not have the same nodes as
+     *                                  getGraph()
+     */
+    public BuildingRouteTable update(CsrGraph newGraph) {
+        IntArrayList removed = new IntArrayList();
+        IntArrayList added = new IntArrayList();
+        int[] renumbered = CsrGraph.diff(graph, newGraph, removed::add, added::add);
+        if (removed.size() == 0 && added.size() == 0) {
+            // the same edges in the same order, so the same edge ids
+            return new BuildingRouteTable(newGraph, buildings, indexOf, distances, trees);
+        }
+        int b = buildings.length;
+        Tree[] newTrees = new Tree[b];
+        boolean[] stale = new boolean[b];
+        for (int i = 0; i < b; i++) {
+            // every edge a tree keeps lies on one of its routes, so a tree that holds a
+            // removed edge is stale
+            newTrees[i] = renumber(trees[i], renumbered);
+            stale[i] = newTrees[i] == null;
+        }
+        if (2 * added.size() >= b) {
+            // the searches would cost more than growing every tree again
+            Arrays.fill(stale, true);
+        } else {
+            for (int a = 0; a < added.size(); a++) {
+                int e = added.get(a);
+                double[] toSource = Landmarks.distances(newGraph, newGraph.source(e), true);
+                double[] fromTarget = Landmarks.distances(newGraph, newGraph.target(e), false);
+                for (int i = 0; i < b; i++) {
+                    for (int j = 0; j < b && !stale[i]; j++) {
+                        stale[i] = toSource[buildings[i]] + newGraph.weight(e)
+                                + fromTarget[buildings[j]] < distances[i * b + j];
+                    }
+                }
+            }
+        }
+        double[] newDistances = distances.clone();
+        IntStream.range(0, b).parallel().filter(i -> stale[i]).forEach(i ->
+                newTrees[i] = growTree(newGraph, buildings, indexOf, i, newDistances));
+        return new BuildingRouteTable(newGraph, buildings, indexOf, newDistances, newTrees);
+    }
+
+    // tree with the edge ids renumbered maps edges to: tree itself if none change, null
+    // if one is removed; the edges keep their order, so the slots stay the same
+    private static Tree renumber(Tree tree, int[] renumbered) {
+        int[] edges = null;
+        for (int k = 0; k < tree.edges.length; k++) {
+            int e = renumbered[tree.edges[k]];
+            if (e < 0) {
+                return null;
+            }
+            if (edges == null && e != tree.edges[k]) {
+                edges = tree.edges.clone();
+            }
+            if (edges != null) {
+                edges[k] = e;
+            }
+        }
+        return edges == null ? tree : new Tree(edges, tree.up, tree.ends);
+    }
+
+    /**
+     * @return the graph the routes of this table run on
+     */
+    public CsrGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @param node a node id
+     * @return true if node is one of the buildings of this table
+     */
+    public boolean contains(int node) {
+        return node >= 0 && node < indexOf.length && indexOf[node] >= 0;
+    }
+
+    /**
+     * @return number of buildings in this table
+     */
+    public int size() {
+        return buildings.length;
+    }
+
+    /**
+     * Returns the shortest distance between two buildings.
+     *
+     * @param start a building node id
+     * @param end a building node id
+     * @return distance from start to end, positive infinity if unreachable
+     * @throws IllegalArgumentException if start or end is not in this table
+     */
+    public double distance(int start, int end) {
+        return distances[index(start) * buildings.length + index(end)];
+    }
+
+    /**
+     * Returns the shortest route between two buildings by walking the shortest path
+     * tree of start back from end.
+     *
+     * @param start a building node id
+     * @param end a building node id
+     * @return the shortest route from start to end, or null if end is unreachable
+     * @throws IllegalArgumentException if start or end is not in this table
+     */
+    public Route route(int start, int end) {
+        Tree tree = trees[index(start)];
+        if (distance(start, end) == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+        int length = 0;
+        for (int k = tree.ends[index(end)]; k >= 0; k = tree.up[k]) {
+            length++;
+        }
+        int[] edges = new int[length];
+        for (int k = tree.ends[index(end)]; k >= 0; k = tree.up[k]) {
+            edges[--length] = tree.edges[k];
+        }
+        return new Route(graph, start, edges, 0);
+    }
+
+    /**
+     * Estimates the heap memory held by this table.
+     *
+     * @return approximate size of this table in bytes
+     */
+    public long memoryBytes() {
+        // 16 bytes of header per array; the graph is shared and not counted
+        long bytes = 16L + 4L * buildings.length
+                + 16L + 4L * indexOf.length
+                + 16L + 8L * distances.length
+                + 16L + 4L * trees.length;
+        for (Tree tree : trees) {
+            // the tree object and its three arrays
+            bytes += 16L + 3 * 16L
+                    + 4L * (tree.edges.length + tree.up.length + tree.ends.length);
+        }
+        return bytes;
+    }
+
+    // position of node in buildings
+    private int index(int node) {
+        if (!contains(node)) {
+            throw new IllegalArgumentException("node " + node + " is not a building of this table");
+        }
+        return indexOf[node];
+    }
+
+    /**
+     * Tree is the part of a shortest path tree that lies on its routes to the buildings:
+     * its edges in increasing id order, and for each of them and for each building the
+     * slot of the edge above it, so a route is walked by slot without any node arrays.
+     */
+    private static final class Tree {
+
+        // This class does not represent an ADT.
+
+        final int[] edges;
+        // up[k] is the slot of the edge into the source of edges[k], or -1 at the root
+        final int[] up;
+        // ends[j] is the slot of the edge into building j, or -1 at the root or unreached
+        final int[] ends;
+
+        Tree(int[] edges, int[] up, int[] ends) {
+            this.edges = edges;
+            this.up = up;
+            this.ends = ends;
+        }
+    }
+}
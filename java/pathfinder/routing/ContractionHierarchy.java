@@ -0,0 +1,665 @@
+package pathfinder.routing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * ContractionHierarchy represents the immutable result of contracting every node of a
+ * CsrGraph. Nodes are contracted one at a time, cheapest first by edge difference
+ * (shortcuts added minus edges removed, plus the number of already contracted
+ * neighbours), and a shortcut u -> w is added around the contracted node v whenever
+ * no witness path from u to w avoiding v is as short as u -> v -> w. The rank of a
+ * node is the order it was contracted in.
+ * <p>
+ * Every edge of the hierarchy is either an original edge of the graph or a shortcut
+ * made of two hierarchy edges, so a shortcut can be unpacked back into original edges.
+ * A shortest route is then found by two searches that only ever go up in rank:
+ * forward from the start over upward edges, and backward from the end over downward
+ * edges.
+ *
+ * @spec.specfield graph : CsrGraph
+ * // the graph this hierarchy was built for
+ * @spec.specfield rank : int array
+ * // contraction order of each node
+ * @spec.specfield edges : (source, target, weight, unpacking)
+ * // original edges and shortcuts of the hierarchy
+ */
+public final class ContractionHierarchy {
+
+    /*
+     Rep invariant:
+         graph, rank and all edge arrays != null
+         rank is a permutation of [0, graph.nodeCount())
+         for every hierarchy edge e: either original[e] is an edge of graph from
+             source[e] to target[e] with the same weight and first[e] == second[e] == -1,
+             or original[e] == -1, source[first[e]] == source[e],
+             target[first[e]] == source[second[e]], target[second[e]] == target[e],
+             rank[target[first[e]]] < min(rank[source[e]], rank[target[e]])
+             and weight[e] == weight[first[e]] + weight[second[e]]
+         upEdges[upOffsets[u] .. upOffsets[u + 1]) are the edges leaving u to a higher rank
+         downEdges[downOffsets[u] .. downOffsets[u + 1]) are the edges entering u from a
+             higher rank
+
+     Abstract function:
+         AF(this) = hierarchy h of graph such that h.rank = rank and
+             h.edges = {(source[e], target[e], weight[e], unpacking of e)}
+     */
+
+    // identifies a saved hierarchy file and its layout: magic, version, graph
+    // fingerprint and node count, then the ranks, the edge count, the edges, and a
+    // CRC32 of everything before it
+    private static final int MAGIC = 0x43484731;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 20;
+    private static final int EDGE_BYTES = 28;
+
+    // witness searches stop after settling this many nodes, and do not follow paths of
+    // more than this many edges; missing a witness only adds a superfluous shortcut,
+    // it never makes a route wrong
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+    private static final int WITNESS_HOP_LIMIT = 5;
+
+    private final CsrGraph graph;
+    private final int[] rank;
+
+    // hierarchy edges, indexed by hierarchy edge id
+    private final int[] source;
+    private final int[] target;
+    private final double[] weight;
+    private final int[] original;
+    private final int[] first;
+    private final int[] second;
+
+    // upward and downward search graphs over hierarchy edge ids
+    private final int[] upOffsets;
+    private final int[] upEdges;
+    private final int[] downOffsets;
+    private final int[] downEdges;
+
+    // number of shortcuts among the hierarchy edges
+    private final int shortcutCount;
+
+    // to enable or disable checkRep()
+    private final boolean CHECK_REP_ENABLE = false;
+
+    private ContractionHierarchy(CsrGraph graph, int[] rank, int[] source, int[] target,
+                                 double[] weight, int[] original, int[] first, int[] second) {
+        this.graph = graph;
+        this.rank = rank;
+        this.source = source;
+        this.target = target;
+        this.weight = weight;
+        this.original = original;
+        this.first = first;
+        this.second = second;
+        int n = graph.nodeCount();
+        int shortcuts = 0;
+        this.upOffsets = new int[n + 1];
+        this.downOffsets = new int[n + 1];
+        for (int e = 0; e < source.length; e++) {
+            if (original[e] < 0) {
+                shortcuts++;
+            }
+            if (rank[target[e]] > rank[source[e]]) {
+                upOffsets[source[e] + 1]++;
+            } else {
+                downOffsets[target[e] + 1]++;
+            }
+        }
+        this.shortcutCount = shortcuts;
+        for (int v = 0; v < n; v++) {
+            upOffsets[v + 1] += upOffsets[v];
+            downOffsets[v + 1] += downOffsets[v];
+        }
+        this.upEdges = new int[upOffsets[n]];
+        this.downEdges = new int[downOffsets[n]];
+        int[] nextUp = Arrays.copyOf(upOffsets, n);
+        int[] nextDown = Arrays.copyOf(downOffsets, n);
+        for (int e = 0; e < source.length; e++) {
+            if (rank[target[e]] > rank[source[e]]) {
+                upEdges[nextUp[source[e]]++] = e;
+            } else {
+                downEdges[nextDown[target[e]]++] = e;
+            }
+        }
+        checkRep();
+    }
+
+    /**
+     * Contracts every node of graph and returns the resulting hierarchy.
+     *
+     * @param graph the graph to preprocess
+     * @spec.requires graph != null
+     * @return the contraction hierarchy of graph
+     */
+    public static ContractionHierarchy build(CsrGraph graph) {
+        return new Contractor(graph).contractAll();
+    }
+
+    /**
+     * Returns the hierarchy saved in artifact if it was built for a graph with the same
+     * fingerprint as graph. Otherwise builds the hierarchy and tries to save it to
+     * artifact for next time. A null artifact always builds and saves nothing.
+     *
+     * @param graph the graph to preprocess
+     * @param artifact file a hierarchy is saved to, or null
+     * @spec.requires graph != null
+     * @return the contraction hierarchy of graph
+     */
+    public static ContractionHierarchy loadOrBuild(CsrGraph graph, Path artifact) {
+        if (artifact == null) {
+            return build(graph);
+        }
+        if (Files.isRegularFile(artifact)) {
+            try {
+                return load(artifact, graph);
+            } catch (IOException e) {
+                // stale or damaged artifact, build a fresh one below
+            }
+        }
+        ContractionHierarchy hierarchy = build(graph);
+        try {
+            hierarchy.save(artifact);
+        } catch (IOException e) {
+            // the artifact is only a cache, routing still works without it
+        }
+        return hierarchy;
+    }
+
+    /**
+     * Reads a hierarchy written by {@link #save(Path)}. Every count, node and edge id
+     * in the file is checked, as is the CRC it ends with, so a damaged file is rejected
+     * rather than read into a hierarchy that routes wrong or fails.
+     *
+     * @param file the file to read
+     * @param graph the graph the hierarchy was built for
+     * @spec.requires file, graph != null
+     * @return the hierarchy saved in file
+     * @throws IOException if file cannot be read, is not a hierarchy, is damaged, or was
+     *                     built for a graph with a different fingerprint
+     */
+    public static ContractionHierarchy load(Path file, CsrGraph graph) throws IOException {
+        long fileSize = Files.size(file);
+        CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file)), new CRC32());
+        try (DataInputStream in = new DataInputStream(checked)) {
+            if (fileSize < HEADER_BYTES || in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(file + " is not a contraction hierarchy");
+            }
+            if (in.readLong() != graph.fingerprint() || in.readInt() != graph.nodeCount()) {
+                throw new IOException(file + " was built for a different graph");
+            }
+            int n = graph.nodeCount();
+            long edgeBytes = fileSize - HEADER_BYTES - 4L * n - 4 - 8;
+            if (edgeBytes < 0 || edgeBytes % EDGE_BYTES != 0) {
+                throw new IOException(file + " is damaged");
+            }
+            int[] rank = new int[n];
+            boolean[] ranked = new boolean[n];
+            for (int v = 0; v < n; v++) {
+                rank[v] = in.readInt();
+                if (rank[v] < 0 || rank[v] >= n || ranked[rank[v]]) {
+                    throw new IOException(file + " is damaged: bad rank of node " + v);
+                }
+                ranked[rank[v]] = true;
+            }
+            int m = in.readInt();
+            if (m != edgeBytes / EDGE_BYTES) {
+                throw new IOException(file + " is damaged: edge count " + m
+                        + " does not match its size");
+            }
+            int[] source = new int[m];
+            int[] target = new int[m];
+            double[] weight = new double[m];
+            int[] original = new int[m];
+            int[] first = new int[m];
+            int[] second = new int[m];
+            for (int e = 0; e < m; e++) {
+                source[e] = in.readInt();
+                target[e] = in.readInt();
+                weight[e] = in.readDouble();
+                original[e] = in.readInt();
+                first[e] = in.readInt();
+                second[e] = in.readInt();
+                if (!isValidEdge(graph, e, source, target, original, first, second)) {
+                    throw new IOException(file + " is damaged: bad edge " + e);
+                }
+            }
+            long crc = checked.getChecksum().getValue();
+            if (in.readLong() != crc) {
+                throw new IOException(file + " is damaged: checksum does not match");
+            }
+            return new ContractionHierarchy(graph, rank, source, target, weight,
+                    original, first, second);
+        }
+    }
+
+    // true if edge e read from a file has its ends in graph and is either an edge of
+    // graph or a shortcut over two edges read before it that meet in the middle
+    private static boolean isValidEdge(CsrGraph graph, int e, int[] source, int[] target,
+                                       int[] original, int[] first, int[] second) {
+        int n = graph.nodeCount();
+        if (source[e] < 0 || source[e] >= n || target[e] < 0 || target[e] >= n) {
+            return false;
+        }
+        if (original[e] >= 0) {
+            return original[e] < graph.edgeCount() && first[e] == -1 && second[e] == -1
+                    && graph.source(original[e]) == source[e]
+                    && graph.target(original[e]) == target[e];
+        }
+        return original[e] == -1 && first[e] >= 0 && first[e] < e
+                && second[e] >= 0 && second[e] < e
+                && source[first[e]] == source[e] && target[second[e]] == target[e]
+                && target[first[e]] == source[second[e]];
+    }
+
+    /**
+     * Writes this hierarchy to file, tagged with the fingerprint of its graph and ending
+     * with a CRC of its contents. The hierarchy is written to a temporary file next to
+     * file first and then moved over it, so a concurrent reader never sees half a file.
+     *
+     * @param file the file to write
+     * @spec.requires file != null
+     * @throws IOException if file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)), new CRC32());
+            try (DataOutputStream out = new DataOutputStream(checked)) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(graph.fingerprint());
+                out.writeInt(rank.length);
+                for (int r : rank) {
+                    out.writeInt(r);
+                }
+                out.writeInt(source.length);
+                for (int e = 0; e < source.length; e++) {
+                    out.writeInt(source[e]);
+                    out.writeInt(target[e]);
+                    out.writeDouble(weight[e]);
+                    out.writeInt(original[e]);
+                    out.writeInt(first[e]);
+                    out.writeInt(second[e]);
+                }
+                out.writeLong(checked.getChecksum().getValue());
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @return the graph this hierarchy was built for
+     */
+    public CsrGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return number of shortcut edges added by contraction
+     */
+    public int shortcutCount() {
+        return shortcutCount;
+    }
+
+    /**
+     * @param node a node id
+     * @return the contraction rank of node
+     */
+    int rank(int node) {
+        return rank[node];
+    }
+
+    /**
+     * @param edge a hierarchy edge id
+     * @return the node edge starts from
+     */
+    int source(int edge) {
+        return source[edge];
+    }
+
+    /**
+     * @param edge a hierarchy edge id
+     * @return the node edge points to
+     */
+    int target(int edge) {
+        return target[edge];
+    }
+
+    /**
+     * @param edge a hierarchy edge id
+     * @return the weight of edge
+     */
+    double weight(int edge) {
+        return weight[edge];
+    }
+
+    /**
+     * @param node a node id
+     * @return first position of the upward edges of node
+     */
+    int upStart(int node) {
+        return upOffsets[node];
+    }
+
+    /**
+     * @param node a node id
+     * @return end (exclusive) position of the upward edges of node
+     */
+    int upEnd(int node) {
+        return upOffsets[node + 1];
+    }
+
+    /**
+     * @param index a position in the upward search graph
+     * @return the hierarchy edge at index
+     */
+    int upEdge(int index) {
+        return upEdges[index];
+    }
+
+    /**
+     * @param node a node id
+     * @return first position of the downward edges entering node
+     */
+    int downStart(int node) {
+        return downOffsets[node];
+    }
+
+    /**
+     * @param node a node id
+     * @return end (exclusive) position of the downward edges entering node
+     */
+    int downEnd(int node) {
+        return downOffsets[node + 1];
+    }
+
+    /**
+     * @param index a position in the downward search graph
+     * @return the hierarchy edge at index
+     */
+    int downEdge(int index) {
+        return downEdges[index];
+    }
+
+    /**
+     * Appends the original edges that edge stands for, in order, to out.
+     *
+     * @param edge a hierarchy edge id
+     * @param out list the original edge ids are appended to
+     * @param stack scratch list, cleared before use
+     * @spec.modifies out, stack
+     */
+    void unpack(int edge, IntArrayList out, IntArrayList stack) {
+        stack.clear();
+        stack.add(edge);
+        while (stack.size() > 0) {
+            int e = stack.removeLast();
+            if (original[e] >= 0) {
+                out.add(original[e]);
+            } else {
+                stack.add(second[e]);
+                stack.add(first[e]);
+            }
+        }
+    }
+
+    /**
+     * Checks if rep inv holds.
+     */
+    private void checkRep() throws RuntimeException {
+        if (CHECK_REP_ENABLE) {
+            for (int e = 0; e < source.length; e++) {
+                if (original[e] >= 0) {
+                    if (graph.source(original[e]) != source[e]
+                            || graph.target(original[e]) != target[e]) {
+                        throw new RuntimeException("edge " + e + " does not match its original");
+                    }
+                } else if (source[first[e]] != source[e] || target[second[e]] != target[e]
+                        || target[first[e]] != source[second[e]]) {
+                    throw new RuntimeException("shortcut " + e + " does not unpack");
+                }
+            }
+        }
+    }
+
+    /**
+     * Contractor holds the mutable state of contracting a graph: the remaining
+     * (uncontracted) graph with the shortcuts added so far.
+     */
+    private static final class Contractor {
+
+        // This class does not represent an ADT.
+
+        private final CsrGraph graph;
+        private final int n;
+
+        // growable hierarchy edge arrays
+        private int[] source;
+        private int[] target;
+        private double[] weight;
+        private int[] original;
+        private int[] first;
+        private int[] second;
+        private int edgeCount;
+
+        // hierarchy edge ids leaving and entering each node; once a node is contracted
+        // its edges are dropped from the lists of its neighbours, so the lists of an
+        // uncontracted node only hold edges between uncontracted nodes
+        private final IntArrayList[] out;
+        private final IntArrayList[] in;
+
+        private final int[] contractedNeighbors;
+        // touched[u] is the stamp of the last contraction that updated u
+        private final int[] touched;
+        private final int[] rank;
+
+        // witness search state; hops[v] is the number of edges on the path v was
+        // reached by in the current search
+        private final SearchSpace witness;
+        private final int[] hops;
+
+        Contractor(CsrGraph graph) {
+            this.graph = graph;
+            this.n = graph.nodeCount();
+            int capacity = Math.max(16, graph.edgeCount() * 2);
+            this.source = new int[capacity];
+            this.target = new int[capacity];
+            this.weight = new double[capacity];
+            this.original = new int[capacity];
+            this.first = new int[capacity];
+            this.second = new int[capacity];
+            this.out = new IntArrayList[n];
+            this.in = new IntArrayList[n];
+            for (int v = 0; v < n; v++) {
+                out[v] = new IntArrayList();
+                in[v] = new IntArrayList();
+            }
+            this.contractedNeighbors = new int[n];
+            this.touched = new int[n];
+            this.rank = new int[n];
+            this.witness = new SearchSpace(n);
+            this.hops = new int[n];
+            for (int e = 0; e < graph.edgeCount(); e++) {
+                if (graph.source(e) != graph.target(e)) {
+                    addEdge(graph.source(e), graph.target(e), graph.weight(e), e, -1, -1);
+                }
+            }
+        }
+
+        // contracts all nodes, cheapest first, and returns the hierarchy
+        ContractionHierarchy contractAll() {
+            IndexedMinHeap queue = new IndexedMinHeap(n);
+            for (int v = 0; v < n; v++) {
+                queue.offer(v, priority(v));
+            }
+            int nextRank = 0;
+            while (!queue.isEmpty()) {
+                int v = queue.poll();
+                double current = priority(v);
+                if (!queue.isEmpty() && current > queue.peekKey()) {
+                    // priority went up since v was queued, queue it again (lazy update)
+                    queue.offer(v, current);
+                    continue;
+                }
+                contract(v);
+                rank[v] = nextRank++;
+                // nextRank stamps the neighbours of v so each is updated once
+                for (int i = 0; i < out[v].size(); i++) {
+                    touchNeighbor(target[out[v].get(i)], queue, nextRank);
+                }
+                for (int i = 0; i < in[v].size(); i++) {
+                    touchNeighbor(source[in[v].get(i)], queue, nextRank);
+                }
+            }
+            return new ContractionHierarchy(graph, rank,
+                    Arrays.copyOf(source, edgeCount), Arrays.copyOf(target, edgeCount),
+                    Arrays.copyOf(weight, edgeCount), Arrays.copyOf(original, edgeCount),
+                    Arrays.copyOf(first, edgeCount), Arrays.copyOf(second, edgeCount));
+        }
+
+        // a neighbour of a contracted node may become cheaper to contract; it is updated
+        // once per contracted node however many edges it shares with it
+        private void touchNeighbor(int u, IndexedMinHeap queue, int stamp) {
+            if (touched[u] == stamp) {
+                return;
+            }
+            touched[u] = stamp;
+            contractedNeighbors[u]++;
+            if (queue.contains(u)) {
+                queue.offer(u, priority(u));
+            }
+        }
+
+        // edge difference plus contracted neighbours; smaller is contracted first
+        private double priority(int v) {
+            int removed = out[v].size() + in[v].size();
+            return shortcuts(v, false) - removed + contractedNeighbors[v];
+        }
+
+        // adds the shortcuts needed to contract v, then drops the edges of v from the
+        // lists of its neighbours
+        private void contract(int v) {
+            shortcuts(v, true);
+            for (int i = 0; i < in[v].size(); i++) {
+                out[source[in[v].get(i)]].removeIf(e -> target[e] == v);
+            }
+            for (int i = 0; i < out[v].size(); i++) {
+                in[target[out[v].get(i)]].removeIf(e -> source[e] == v);
+            }
+        }
+
+        // counts, and if add is true adds, the shortcuts needed around v
+        private int shortcuts(int v, boolean add) {
+            int count = 0;
+            // adding shortcuts grows out/in of other nodes, never of v itself
+            IntArrayList incoming = in[v];
+            IntArrayList outgoing = out[v];
+            for (int i = 0; i < incoming.size(); i++) {
+                int a = incoming.get(i);
+                int u = source[a];
+                // the longest u -> v -> w to check; stays negative if v leads nowhere
+                // else, while paths of weight 0 still need their shortcuts
+                double limit = -1.0;
+                for (int j = 0; j < outgoing.size(); j++) {
+                    int w = target[outgoing.get(j)];
+                    if (w != u) {
+                        limit = Math.max(limit, weight[a] + weight[outgoing.get(j)]);
+                    }
+                }
+                if (limit < 0.0) {
+                    continue;
+                }
+                witnessSearch(u, v, limit);
+                for (int j = 0; j < outgoing.size(); j++) {
+                    int b = outgoing.get(j);
+                    int w = target[b];
+                    if (w == u) {
+                        continue;
+                    }
+                    double cost = weight[a] + weight[b];
+                    if (witness.dist(w) > cost) {
+                        count++;
+                        if (add) {
+                            addEdge(u, w, cost, -1, a, b);
+                            // later pairs from u may use the shortcut as a witness
+                            witness.reach(w, cost, -1);
+                        }
+                    }
+                }
+            }
+            return count;
+        }
+
+        // Dijkstra from u over uncontracted nodes other than skip, up to distance limit
+        // and WITNESS_HOP_LIMIT edges
+        private void witnessSearch(int u, int skip, double limit) {
+            witness.reset();
+            witness.reach(u, 0.0, -1);
+            witness.heap.offer(u, 0.0);
+            hops[u] = 0;
+            while (!witness.heap.isEmpty() && witness.settledCount() < WITNESS_SETTLE_LIMIT) {
+                if (witness.heap.peekKey() > limit) {
+                    break;
+                }
+                int node = witness.heap.poll();
+                witness.settle(node);
+                if (hops[node] == WITNESS_HOP_LIMIT) {
+                    continue;
+                }
+                double nodeDist = witness.dist(node);
+                for (int i = 0; i < out[node].size(); i++) {
+                    int e = out[node].get(i);
+                    int child = target[e];
+                    if (child == skip) {
+                        continue;
+                    }
+                    double newDist = nodeDist + weight[e];
+                    if (!witness.isSettled(child) && newDist < witness.dist(child)) {
+                        witness.reach(child, newDist, e);
+                        witness.heap.offer(child, newDist);
+                        hops[child] = hops[node] + 1;
+                    }
+                }
+            }
+        }
+
+        // appends a hierarchy edge and indexes it
+        private void addEdge(int u, int w, double cost, int originalEdge, int a, int b) {
+            if (edgeCount == source.length) {
+                int capacity = source.length * 2;
+                source = Arrays.copyOf(source, capacity);
+                target = Arrays.copyOf(target, capacity);
+                weight = Arrays.copyOf(weight, capacity);
+                original = Arrays.copyOf(original, capacity);
+                first = Arrays.copyOf(first, capacity);
+                second = Arrays.copyOf(second, capacity);
+            }
+            source[edgeCount] = u;
+            target[edgeCount] = w;
+            weight[edgeCount] = cost;
+            original[edgeCount] = originalEdge;
+            first[edgeCount] = a;
+            second[edgeCount] = b;
+            out[u].add(edgeCount);
+            in[w].add(edgeCount);
+            edgeCount++;
+        }
+    }
+}
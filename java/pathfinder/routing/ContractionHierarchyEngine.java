@@ -0,0 +1,140 @@
+package pathfinder.routing;
+
+/**
+ * ContractionHierarchyEngine answers shortest route queries over a precomputed
+ * ContractionHierarchy. A forward search from the start follows only edges to higher
+ * ranked nodes, a backward search from the end follows only edges coming down from
+ * higher ranked nodes, and the cheapest node reached by both is the top of a shortest
+ * route. Each side stops once its smallest key is no less than the best route seen.
+ * The shortcuts along the route are then unpacked back into edges of the CsrGraph.
+ */
+public final class ContractionHierarchyEngine implements RoutingEngine {
+
+    // This class does not represent an ADT.
+
+    private final ContractionHierarchy hierarchy;
+    private final ThreadLocal<Workspace> workspaces;
+
+    /**
+     * Creates an engine over a hierarchy.
+     *
+     * @param hierarchy the preprocessed hierarchy to search
+     * @spec.requires hierarchy != null
+     */
+    public ContractionHierarchyEngine(ContractionHierarchy hierarchy) {
+        this.hierarchy = hierarchy;
+        this.workspaces = ThreadLocal.withInitial(
+                () -> new Workspace(hierarchy.getGraph().nodeCount()));
+    }
+
+    /**
+     * @return the hierarchy this engine searches
+     */
+    public ContractionHierarchy getHierarchy() {
+        return hierarchy;
+    }
+
+    @Override
+    public Route route(int start, int end) {
+        Workspace work = workspaces.get();
+        SearchSpace forward = work.forward;
+        SearchSpace backward = work.backward;
+        forward.reset();
+        backward.reset();
+        forward.reach(start, 0.0, -1);
+        forward.heap.offer(start, 0.0);
+        backward.reach(end, 0.0, -1);
+        backward.heap.offer(end, 0.0);
+
+        double mu = start == end ? 0.0 : Double.POSITIVE_INFINITY;
+        int meet = start == end ? start : -1;
+        boolean forwardTurn = true;
+        while (true) {
+            boolean forwardOpen = !forward.heap.isEmpty() && forward.heap.peekKey() < mu;
+            boolean backwardOpen = !backward.heap.isEmpty() && backward.heap.peekKey() < mu;
+            if (!forwardOpen && !backwardOpen) {
+                break;
+            }
+            if (forwardTurn ? !forwardOpen : !backwardOpen) {
+                forwardTurn = !forwardTurn;
+            }
+            SearchSpace side = forwardTurn ? forward : backward;
+            SearchSpace other = forwardTurn ? backward : forward;
+            int node = side.heap.poll();
+            side.settle(node);
+            double nodeDist = side.dist(node);
+            double through = nodeDist + other.dist(node);
+            if (through < mu) {
+                mu = through;
+                meet = node;
+            }
+            if (forwardTurn) {
+                for (int i = hierarchy.upStart(node); i < hierarchy.upEnd(node); i++) {
+                    int e = hierarchy.upEdge(i);
+                    relax(side, hierarchy.target(e), nodeDist + hierarchy.weight(e), e);
+                }
+            } else {
+                for (int i = hierarchy.downStart(node); i < hierarchy.downEnd(node); i++) {
+                    int e = hierarchy.downEdge(i);
+                    relax(side, hierarchy.source(e), nodeDist + hierarchy.weight(e), e);
+                }
+            }
+            forwardTurn = !forwardTurn;
+        }
+        if (meet < 0) {
+            return null;
+        }
+        return unpackRoute(start, meet, end, work);
+    }
+
+    // lowers the distance of node in side if newDist is shorter
+    private static void relax(SearchSpace side, int node, double newDist, int edge) {
+        if (!side.isSettled(node) && newDist < side.dist(node)) {
+            side.reach(node, newDist, edge);
+            side.heap.offer(node, newDist);
+        }
+    }
+
+    // unpacks the hierarchy edges from start up to meet and down to end
+    private Route unpackRoute(int start, int meet, int end, Workspace work) {
+        IntArrayList up = work.up;
+        up.clear();
+        for (int node = meet; node != start; node = hierarchy.source(work.forward.parentEdge(node))) {
+            up.add(work.forward.parentEdge(node));
+        }
+        IntArrayList edges = work.edges;
+        edges.clear();
+        for (int i = up.size() - 1; i >= 0; i--) {
+            hierarchy.unpack(up.get(i), edges, work.stack);
+        }
+        for (int node = meet; node != end; node = hierarchy.target(work.backward.parentEdge(node))) {
+            hierarchy.unpack(work.backward.parentEdge(node), edges, work.stack);
+        }
+        return new Route(hierarchy.getGraph(), start, edges.toArray(),
+                work.forward.settledCount() + work.backward.settledCount());
+    }
+
+    @Override
+    public CsrGraph getGraph() {
+        return hierarchy.getGraph();
+    }
+
+    /**
+     * Workspace is the per-thread state of a hierarchy query.
+     */
+    private static final class Workspace {
+
+        // This class does not represent an ADT.
+
+        private final SearchSpace forward;
+        private final SearchSpace backward;
+        private final IntArrayList up = new IntArrayList();
+        private final IntArrayList edges = new IntArrayList();
+        private final IntArrayList stack = new IntArrayList();
+
+        Workspace(int nodeCount) {
+            this.forward = new SearchSpace(nodeCount);
+            this.backward = new SearchSpace(nodeCount);
+        }
+    }
+}
@@ -0,0 +1,695 @@
+package pathfinder.routing;
+
+import graph.Edge;
+import graph.Graph;
+import graph.IntGraph;
+import graph.IntGraphAdapter;
+import pathfinder.datastructures.Path;
+import pathfinder.datastructures.PersistentPath;
+import pathfinder.datastructures.Point;
+import pathfinder.datastructures.PointInterner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * CsrGraph represents an immutable, compressed-sparse-row snapshot of a campus
+ * graph. Every node is given a dense int id in [0, nodeCount()), and the outgoing
+ * edges of node u are the edge ids in [edgeStart(u), edgeEnd(u)). Weights, targets
+ * and coordinates are stored in primitive arrays so a search never hashes a Point
+ * or unboxes a Double while it relaxes edges. A reverse adjacency is kept alongside:
+ * the incoming edges of node v are inEdge(i) for i in [inEdgeStart(v), inEdgeEnd(v)),
+ * so backward searches can run on the same snapshot.
+ *
+ * @spec.specfield nodes : Point
+ * // the nodes of the snapshot, indexed by id
+ * @spec.specfield edges : (source, target, weight)
+ * // the weighted directed edges of the snapshot, indexed by edge id
+ */
+public final class CsrGraph {
+
+    /*
+     Rep invariant:
+         points, xs, ys, offsets, targets, sources, weights, ids != null
+         points.length == xs.length == ys.length == offsets.length - 1
+         offsets[0] == 0, offsets is non-decreasing,
+         offsets[points.length] == targets.length == sources.length == weights.length
+         for every edge e: 0 <= targets[e] < points.length,
+             offsets[sources[e]] <= e < offsets[sources[e] + 1]
+             and weights[e] is finite and >= 0
+         points are sorted by x and then y
+         every row [offsets[u], offsets[u + 1]) is sorted by target and then weight,
+             as ordered by Double.compare
+         ids maps points[i] to i for every i
+         inOffsets.length == offsets.length, inEdges is a permutation of edge ids
+             such that targets[inEdges[i]] == v for inOffsets[v] <= i < inOffsets[v + 1]
+
+     Abstract function:
+         AF(this) = directed weighted graph g such that
+             g.nodes = {points[0], ..., points[n - 1]}
+             for every node u, g has an edge from points[u] to points[targets[e]]
+             with weight weights[e] for every e in [offsets[u], offsets[u + 1])
+     */
+
+    // coordinates of each node, indexed by node id
+    private final Point[] points;
+    private final double[] xs;
+    private final double[] ys;
+
+    // CSR adjacency: outgoing edges of u are [offsets[u], offsets[u + 1])
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] sources;
+    private final double[] weights;
+
+    // reverse adjacency: incoming edge ids of v are inEdges[inOffsets[v] .. inOffsets[v + 1])
+    private final int[] inOffsets;
+    private final int[] inEdges;
+
+    // maps the coordinates of a point back to its node id
+    private final PointInterner ids;
+
+    // hash of the coordinates and edges, to tell snapshots of different maps apart
+    private final long fingerprint;
+
+    // to enable or disable checkRep()
+    private final boolean CHECK_REP_ENABLE = false;
+
+    // orders nodes by x and then y so that ids are the same for the same map
+    private static final Comparator<Point> POINT_ORDER =
+            Comparator.comparingDouble(Point::getX).thenComparingDouble(Point::getY);
+
+    private CsrGraph(Point[] points, PointInterner ids, int[] offsets, int[] targets,
+                     int[] sources, double[] weights) {
+        this.points = points;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.sources = sources;
+        this.weights = weights;
+        this.xs = new double[points.length];
+        this.ys = new double[points.length];
+        for (int i = 0; i < points.length; i++) {
+            xs[i] = points[i].getX();
+            ys[i] = points[i].getY();
+        }
+        // counting sort of edge ids by target gives the reverse adjacency
+        this.inOffsets = new int[points.length + 1];
+        for (int target : targets) {
+            inOffsets[target + 1]++;
+        }
+        for (int v = 0; v < points.length; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+        this.inEdges = new int[targets.length];
+        int[] next = Arrays.copyOf(inOffsets, points.length);
+        for (int e = 0; e < targets.length; e++) {
+            inEdges[next[targets[e]]++] = e;
+        }
+        this.fingerprint = computeFingerprint();
+        checkRep();
+    }
+
+    /**
+     * Creates a frozen snapshot of the given graph. Later changes to graph are not
+     * reflected in the returned snapshot.
+     *
+     * @param graph the graph to copy
+     * @spec.requires graph != null, every edge label of graph is finite and >= 0
+     * @return a CSR snapshot containing the same nodes and edges as graph
+     */
+    public static CsrGraph fromGraph(Graph<Point, Double> graph) {
+        Point[] points = graph.getNodes().toArray(new Point[0]);
+        Arrays.sort(points, POINT_ORDER);
+        // the points are distinct and sorted, so point i gets id i
+        PointInterner ids = new PointInterner(points.length);
+        for (Point point : points) {
+            ids.intern(point);
+        }
+
+        int[] offsets = new int[points.length + 1];
+        for (int i = 0; i < points.length; i++) {
+            offsets[i + 1] = offsets[i] + graph.listChildren(points[i]).size();
+        }
+        int edgeCount = offsets[points.length];
+        int[] targets = new int[edgeCount];
+        int[] sources = new int[edgeCount];
+        double[] weights = new double[edgeCount];
+
+        for (int u = 0; u < points.length; u++) {
+            int first = offsets[u];
+            int degree = offsets[u + 1] - first;
+            // sort each row by target id, and then weight, so edge ids are deterministic
+            Edge<Double, Point>[] row = graph.listChildren(points[u]).toArray(newEdgeArray(degree));
+            Arrays.sort(row, (e1, e2) -> {
+                int cmp = Integer.compare(ids.idOf(e1.getDest()), ids.idOf(e2.getDest()));
+                return cmp != 0 ? cmp : Double.compare(e1.getLabel(), e2.getLabel());
+            });
+            for (int i = 0; i < degree; i++) {
+                targets[first + i] = ids.idOf(row[i].getDest());
+                sources[first + i] = u;
+                weights[first + i] = row[i].getLabel();
+            }
+        }
+        return new CsrGraph(points, ids, offsets, targets, sources, weights);
+    }
+
+    /**
+     * Creates a snapshot directly from its arrays, as read back from a saved model.
+     * The arrays must describe a snapshot in the order {@link #fromGraph(Graph)} would
+     * produce it: nodes sorted by x and then y, and each row sorted by target and weight.
+     * The arrays are not copied and must not be changed afterwards.
+     *
+     * @param xs x coordinate of each node
+     * @param ys y coordinate of each node
+     * @param offsets outgoing edges of u are [offsets[u], offsets[u + 1])
+     * @param targets target node of each edge
+     * @param weights weight of each edge
+     * @spec.requires no argument is null
+     * @return the snapshot described by the arrays
+     * @throws IllegalArgumentException if the arrays do not describe a valid snapshot
+     */
+    public static CsrGraph fromArrays(double[] xs, double[] ys, int[] offsets, int[] targets,
+                                      double[] weights) {
+        int n = xs.length;
+        int m = targets.length;
+        if (ys.length != n || offsets.length != n + 1 || weights.length != m
+                || offsets[0] != 0 || offsets[n] != m) {
+            throw new IllegalArgumentException("array lengths do not match");
+        }
+        Point[] points = new Point[n];
+        PointInterner ids = new PointInterner(n);
+        for (int i = 0; i < n; i++) {
+            points[i] = ids.point(ids.intern(xs[i], ys[i]));
+            if (i > 0 && POINT_ORDER.compare(points[i - 1], points[i]) >= 0) {
+                throw new IllegalArgumentException("nodes are not sorted at " + i);
+            }
+        }
+        int[] sources = new int[m];
+        for (int u = 0; u < n; u++) {
+            if (offsets[u] > offsets[u + 1]) {
+                throw new IllegalArgumentException("offsets decrease at " + u);
+            }
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                if (targets[e] < 0 || targets[e] >= n || !(weights[e] >= 0)
+                        || Double.isInfinite(weights[e])) {
+                    throw new IllegalArgumentException("invalid edge " + e);
+                }
+                if (e > offsets[u] && !inRowOrder(targets, weights, e - 1, e)) {
+                    throw new IllegalArgumentException("row " + u + " is not sorted at edge " + e);
+                }
+                sources[e] = u;
+            }
+        }
+        return new CsrGraph(points, ids, offsets, targets, sources, weights);
+    }
+
+    /**
+     * Creates a frozen snapshot of the given primitive graph, the same snapshot
+     * {@link #fromGraph(Graph)} makes of a Graph with the same nodes and edges.
+     *
+     * @param graph the graph to copy
+     * @spec.requires graph != null, every edge weight of graph is finite and >= 0
+     * @return a CSR snapshot containing the same nodes and edges as graph
+     */
+    public static CsrGraph fromGraph(IntGraphAdapter<Point> graph) {
+        IntGraph primitive = graph.getIntGraph();
+        Point[] points = new Point[primitive.size()];
+        int count = 0;
+        for (int id = 0; id < primitive.idBound(); id++) {
+            if (primitive.containsNode(id)) {
+                points[count++] = graph.node(id);
+            }
+        }
+        Arrays.sort(points, POINT_ORDER);
+        PointInterner ids = new PointInterner(points.length);
+        // the snapshot id of each node of primitive
+        int[] snapshotIds = new int[primitive.idBound()];
+        for (Point point : points) {
+            snapshotIds[graph.idOf(point)] = ids.intern(point);
+        }
+
+        int[] offsets = new int[points.length + 1];
+        for (int i = 0; i < points.length; i++) {
+            offsets[i + 1] = offsets[i] + primitive.outDegree(graph.idOf(points[i]));
+        }
+        int edgeCount = offsets[points.length];
+        int[] targets = new int[edgeCount];
+        int[] sources = new int[edgeCount];
+        double[] weights = new double[edgeCount];
+        for (int u = 0; u < points.length; u++) {
+            int node = graph.idOf(points[u]);
+            int first = offsets[u];
+            int degree = offsets[u + 1] - first;
+            for (int i = 0; i < degree; i++) {
+                targets[first + i] = snapshotIds[primitive.target(node, i)];
+                weights[first + i] = primitive.weight(node, i);
+                sources[first + i] = u;
+            }
+            sortRow(targets, weights, first, first + degree);
+        }
+        return new CsrGraph(points, ids, offsets, targets, sources, weights);
+    }
+
+    // sorts the edges [from, to) by target and then weight, as fromGraph(Graph) orders a
+    // row; insertion sort, since rows are a handful of edges long
+    private static void sortRow(int[] targets, double[] weights, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            int target = targets[i];
+            double weight = weights[i];
+            int j = i - 1;
+            while (j >= from && (targets[j] > target
+                    || (targets[j] == target && Double.compare(weights[j], weight) > 0))) {
+                targets[j + 1] = targets[j];
+                weights[j + 1] = weights[j];
+                j--;
+            }
+            targets[j + 1] = target;
+            weights[j + 1] = weight;
+        }
+    }
+
+    // whether edge a may come before edge b of the same row
+    private static boolean inRowOrder(int[] targets, double[] weights, int a, int b) {
+        return targets[a] < targets[b]
+                || (targets[a] == targets[b] && Double.compare(weights[a], weights[b]) <= 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Edge<Double, Point>[] newEdgeArray(int length) {
+        return (Edge<Double, Point>[]) new Edge<?, ?>[length];
+    }
+
+    /**
+     * Creates the snapshot of this graph with edits applied: the edges of every closed
+     * connection are left out and every detour is added as an edge. The result has the
+     * same nodes with the same ids as this graph, even those left without edges, and
+     * each row is in the order {@link #fromGraph(Graph)} would give it, so edge ids are
+     * the same for the same edits. Only the edge arrays are built anew, the nodes are
+     * shared with this graph; this takes time linear in the size of the graph and no
+     * hashing but for the edits themselves. Edits naming a point that is not a node of
+     * this graph are ignored.
+     *
+     * @param edits the edits to apply, to this graph as the unedited base
+     * @spec.requires edits != null
+     * @return this graph with edits applied, or this graph if edits is empty
+     */
+    public CsrGraph withEdits(GraphEdits edits) {
+        if (edits.isEmpty()) {
+            return this;
+        }
+        int n = points.length;
+        Set<Long> closed = new HashSet<>();
+        boolean[] hasClosed = new boolean[n];
+        edits.forEachClosed((source, target, weight) -> {
+            int u = ids.idOf(source);
+            int v = ids.idOf(target);
+            if (u >= 0 && v >= 0) {
+                closed.add(connection(u, v));
+                hasClosed[u] = true;
+            }
+        });
+        // detours sorted by source, target and weight, as rows are
+        List<Detour> detours = new ArrayList<>();
+        edits.forEachDetour((source, target, weight) -> {
+            int u = ids.idOf(source);
+            int v = ids.idOf(target);
+            if (u >= 0 && v >= 0) {
+                detours.add(new Detour(u, v, weight));
+            }
+        });
+        detours.sort(null);
+
+        int[] newOffsets = new int[n + 1];
+        int[] newTargets = new int[targets.length + detours.size()];
+        double[] newWeights = new double[newTargets.length];
+        int m = 0;
+        int next = 0;
+        for (int u = 0; u < n; u++) {
+            newOffsets[u] = m;
+            int e = offsets[u];
+            // merge the open edges of row u with its detours, dropping repeated edges
+            while (true) {
+                while (e < offsets[u + 1] && hasClosed[u]
+                        && closed.contains(connection(u, targets[e]))) {
+                    e++;
+                }
+                boolean haveEdge = e < offsets[u + 1];
+                Detour detour = next < detours.size() && detours.get(next).source == u
+                        ? detours.get(next) : null;
+                if (!haveEdge && detour == null) {
+                    break;
+                }
+                int target;
+                double weight;
+                if (detour != null && (!haveEdge || detour.target < targets[e]
+                        || detour.target == targets[e]
+                        && Double.compare(detour.weight, weights[e]) < 0)) {
+                    target = detour.target;
+                    weight = detour.weight;
+                    next++;
+                } else {
+                    target = targets[e];
+                    weight = weights[e];
+                    e++;
+                }
+                if (m == newOffsets[u] || newTargets[m - 1] != target
+                        || newWeights[m - 1] != weight) {
+                    newTargets[m] = target;
+                    newWeights[m] = weight;
+                    m++;
+                }
+            }
+        }
+        newOffsets[n] = m;
+        int[] newSources = new int[m];
+        for (int u = 0; u < n; u++) {
+            Arrays.fill(newSources, newOffsets[u], newOffsets[u + 1], u);
+        }
+        return new CsrGraph(points, ids, newOffsets, Arrays.copyOf(newTargets, m), newSources,
+                Arrays.copyOf(newWeights, m));
+    }
+
+    // a key for the connection from u to v
+    private static long connection(int u, int v) {
+        return ((long) u << 32) | (v & 0xffffffffL);
+    }
+
+    /**
+     * @param other a graph
+     * @return true if other has the same nodes with the same ids as this graph, as
+     *         graphs made by {@link #withEdits(GraphEdits)} from the same base do
+     */
+    boolean hasSameNodes(CsrGraph other) {
+        return other.ids == ids;
+    }
+
+    /**
+     * Compares the edges of two graphs with the same nodes, row by row. Since both
+     * graphs keep their rows in the same order, the edges they share keep their order
+     * too, so the returned ids of the edges of before in after increase with the edge
+     * ids of before.
+     *
+     * @param before a graph
+     * @param after a graph with the same nodes as before
+     * @param removed called with every edge of before that after does not have
+     * @param added called with every edge of after that before does not have
+     * @return for every edge id of before, the id of the same edge in after, or -1 if
+     *         it is removed
+     * @throws IllegalArgumentException if the graphs do not have the same nodes
+     */
+    static int[] diff(CsrGraph before, CsrGraph after, IntConsumer removed, IntConsumer added) {
+        if (!before.hasSameNodes(after)) {
+            throw new IllegalArgumentException("graphs do not have the same nodes");
+        }
+        int[] renumbered = new int[before.edgeCount()];
+        for (int u = 0; u < before.nodeCount(); u++) {
+            int e = before.offsets[u];
+            int f = after.offsets[u];
+            // both rows are sorted by target and weight
+            while (e < before.offsets[u + 1] || f < after.offsets[u + 1]) {
+                int cmp;
+                if (e == before.offsets[u + 1]) {
+                    cmp = 1;
+                } else if (f == after.offsets[u + 1]) {
+                    cmp = -1;
+                } else {
+                    cmp = Integer.compare(before.targets[e], after.targets[f]);
+                    if (cmp == 0) {
+                        cmp = Double.compare(before.weights[e], after.weights[f]);
+                    }
+                }
+                if (cmp < 0) {
+                    renumbered[e] = -1;
+                    removed.accept(e++);
+                } else if (cmp > 0) {
+                    added.accept(f++);
+                } else {
+                    renumbered[e++] = f++;
+                }
+            }
+        }
+        return renumbered;
+    }
+
+    /**
+     * Returns the number of nodes in this graph.
+     *
+     * @return number of nodes
+     */
+    public int nodeCount() {
+        return points.length;
+    }
+
+    /**
+     * Returns the number of edges in this graph.
+     *
+     * @return number of edges
+     */
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * Returns the id of the node at point, or -1 if point is not a node of this graph.
+     *
+     * @param point a point
+     * @return id of point, or -1 if absent
+     */
+    public int idOf(Point point) {
+        return ids.idOf(point);
+    }
+
+    /**
+     * Returns the id of the node at (x, y), or -1 if there is no node there.
+     *
+     * @param x an x coordinate
+     * @param y a y coordinate
+     * @return id of the node at (x, y), or -1 if absent
+     */
+    public int idOf(double x, double y) {
+        return ids.idOf(x, y);
+    }
+
+    /**
+     * Returns a hash of the nodes and edges of this graph. Two snapshots of the
+     * same map have the same fingerprint, so artifacts precomputed for one snapshot
+     * can be checked against another before they are reused.
+     *
+     * @return fingerprint of this graph
+     */
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    // 64-bit FNV-1a over node coordinates and edges in id order
+    private long computeFingerprint() {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < points.length; i++) {
+            hash = (hash ^ Double.doubleToLongBits(xs[i])) * 0x100000001b3L;
+            hash = (hash ^ Double.doubleToLongBits(ys[i])) * 0x100000001b3L;
+            hash = (hash ^ offsets[i + 1]) * 0x100000001b3L;
+        }
+        for (int e = 0; e < targets.length; e++) {
+            hash = (hash ^ targets[e]) * 0x100000001b3L;
+            hash = (hash ^ Double.doubleToLongBits(weights[e])) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the point of a node.
+     *
+     * @param node a node id
+     * @spec.requires 0 <= node < nodeCount()
+     * @return the point of node
+     */
+    public Point point(int node) {
+        return points[node];
+    }
+
+    /**
+     * @param node a node id
+     * @spec.requires 0 <= node < nodeCount()
+     * @return the x coordinate of node
+     */
+    public double x(int node) {
+        return xs[node];
+    }
+
+    /**
+     * @param node a node id
+     * @spec.requires 0 <= node < nodeCount()
+     * @return the y coordinate of node
+     */
+    public double y(int node) {
+        return ys[node];
+    }
+
+    /**
+     * Returns the id of the first outgoing edge of node.
+     *
+     * @param node a node id
+     * @spec.requires 0 <= node < nodeCount()
+     * @return first edge id of node
+     */
+    public int edgeStart(int node) {
+        return offsets[node];
+    }
+
+    /**
+     * Returns one past the id of the last outgoing edge of node.
+     *
+     * @param node a node id
+     * @spec.requires 0 <= node < nodeCount()
+     * @return end (exclusive) edge id of node
+     */
+    public int edgeEnd(int node) {
+        return offsets[node + 1];
+    }
+
+    /**
+     * @param edge an edge id
+     * @spec.requires 0 <= edge < edgeCount()
+     * @return the node edge points to
+     */
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    /**
+     * @param edge an edge id
+     * @spec.requires 0 <= edge < edgeCount()
+     * @return the node edge starts from
+     */
+    public int source(int edge) {
+        return sources[edge];
+    }
+
+    /**
+     * @param edge an edge id
+     * @spec.requires 0 <= edge < edgeCount()
+     * @return the weight of edge
+     */
+    public double weight(int edge) {
+        return weights[edge];
+    }
+
+    /**
+     * Returns the position of the first incoming edge of node in the reverse adjacency.
+     *
+     * @param node a node id
+     * @spec.requires 0 <= node < nodeCount()
+     * @return first reverse adjacency position of node
+     */
+    public int inEdgeStart(int node) {
+        return inOffsets[node];
+    }
+
+    /**
+     * Returns one past the position of the last incoming edge of node in the
+     * reverse adjacency.
+     *
+     * @param node a node id
+     * @spec.requires 0 <= node < nodeCount()
+     * @return end (exclusive) reverse adjacency position of node
+     */
+    public int inEdgeEnd(int node) {
+        return inOffsets[node + 1];
+    }
+
+    /**
+     * @param index a position in the reverse adjacency
+     * @spec.requires 0 <= index < edgeCount()
+     * @return the id of the edge at index of the reverse adjacency
+     */
+    public int inEdge(int index) {
+        return inEdges[index];
+    }
+
+    /**
+     * Builds a path of points from start along a sequence of edges.
+     *
+     * @param start the node the path begins at
+     * @param edges edge ids, in order, the first one leaving start
+     * @param length number of edges of edges to use
+     * @spec.requires each edge begins where the previous one ends
+     * @return the path from start along the given edges
+     */
+    public Path<Point> toPath(int start, int[] edges, int length) {
+        PersistentPath<Point> path = new PersistentPath<>(points[start]);
+        for (int i = 0; i < length; i++) {
+            path = path.extend(points[targets[edges[i]]], weights[edges[i]]);
+        }
+        return path.toPath();
+    }
+
+    /**
+     * Detour is a detour of some GraphEdits between two nodes of a CsrGraph, ordered by
+     * source, target and then weight, as the edges of the graph are.
+     */
+    private static final class Detour implements Comparable<Detour> {
+
+        // This class does not represent an ADT.
+
+        final int source;
+        final int target;
+        final double weight;
+
+        Detour(int source, int target, double weight) {
+            this.source = source;
+            this.target = target;
+            this.weight = weight;
+        }
+
+        @Override
+        public int compareTo(Detour other) {
+            if (source != other.source) {
+                return Integer.compare(source, other.source);
+            }
+            if (target != other.target) {
+                return Integer.compare(target, other.target);
+            }
+            return Double.compare(weight, other.weight);
+        }
+    }
+
+    /**
+     * Checks if rep inv holds.
+     */
+    private void checkRep() throws RuntimeException {
+        if (CHECK_REP_ENABLE) {
+            if (offsets.length != points.length + 1 || offsets[0] != 0
+                    || offsets[points.length] != targets.length
+                    || targets.length != weights.length || targets.length != sources.length) {
+                throw new RuntimeException("CSR arrays have inconsistent lengths");
+            }
+            for (int u = 0; u < points.length; u++) {
+                if (offsets[u] > offsets[u + 1]) {
+                    throw new RuntimeException("offsets must be non-decreasing");
+                }
+                for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                    if (sources[e] != u || targets[e] < 0 || targets[e] >= points.length) {
+                        throw new RuntimeException("edge " + e + " is out of range");
+                    }
+                    if (e > offsets[u] && !inRowOrder(targets, weights, e - 1, e)) {
+                        throw new RuntimeException("row " + u + " is not sorted");
+                    }
+                    if (!(weights[e] >= 0) || !Double.isFinite(weights[e])) {
+                        throw new RuntimeException("edge weight must be finite and >= 0");
+                    }
+                }
+                for (int i = inOffsets[u]; i < inOffsets[u + 1]; i++) {
+                    if (targets[inEdges[i]] != u) {
+                        throw new RuntimeException("reverse edge " + inEdges[i] + " is misplaced");
+                    }
+                }
+            }
+        }
+    }
+}
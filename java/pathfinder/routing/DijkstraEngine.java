@@ -0,0 +1,57 @@
+package pathfinder.routing;
+
+/**
+ * DijkstraEngine finds shortest routes with Dijkstra's algorithm over a CsrGraph.
+ * Each node is queued at most once in an indexed heap and its key is decreased in
+ * place when a shorter distance is found; the route is walked back from parent
+ * edges once the end node is settled. Search state is reused per thread, so a
+ * query allocates nothing but its result.
+ */
+public final class DijkstraEngine implements RoutingEngine {
+
+    // This class does not represent an ADT.
+
+    private final CsrGraph graph;
+    private final ThreadLocal<SearchSpace> spaces;
+
+    /**
+     * Creates an engine over graph.
+     *
+     * @param graph the graph to search
+     * @spec.requires graph != null
+     */
+    public DijkstraEngine(CsrGraph graph) {
+        this.graph = graph;
+        this.spaces = ThreadLocal.withInitial(() -> new SearchSpace(graph.nodeCount()));
+    }
+
+    @Override
+    public Route route(int start, int end) {
+        SearchSpace space = spaces.get();
+        space.reset();
+        space.reach(start, 0.0, -1);
+        space.heap.offer(start, 0.0);
+        while (!space.heap.isEmpty()) {
+            int node = space.heap.poll();
+            space.settle(node);
+            if (node == end) {
+                return Route.fromParents(graph, start, end, space);
+            }
+            double nodeDist = space.dist(node);
+            for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                int child = graph.target(e);
+                double newDist = nodeDist + graph.weight(e);
+                if (!space.isSettled(child) && newDist < space.dist(child)) {
+                    space.reach(child, newDist, e);
+                    space.heap.offer(child, newDist);
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public CsrGraph getGraph() {
+        return graph;
+    }
+}
@@ -0,0 +1,231 @@
+package pathfinder.routing;
+
+import pathfinder.datastructures.Point;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * GraphEdits represents an immutable, versioned set of edits to a base map: directed
+ * connections whose paths are closed, and temporary detour edges with their weights.
+ * Edits name nodes by their points, not by node ids, so the same edits can be applied
+ * to the base graph again after it has been reloaded; see
+ * {@link CsrGraph#withEdits(GraphEdits)}. Every change returns a new GraphEdits with a
+ * version one higher; a change that changes nothing returns this.
+ *
+ * @spec.specfield version : long
+ * // the number of changes that led to these edits
+ * @spec.specfield closed : set of (Point, Point)
+ * // the connections of the base map with all their edges closed
+ * @spec.specfield detours : map from (Point, Point) to double
+ * // the detour edges, with their weights
+ */
+public final class GraphEdits {
+
+    /*
+     Rep invariant:
+         closed, detours != null, with no null keys
+         version >= 0
+         every weight of detours is finite and >= 0
+         version == 0 implies closed and detours are empty
+
+     Abstract function:
+         AF(this) = edits with version = version, closed = closed and
+                    detours = detours
+     */
+
+    /**
+     * No edits, at version 0.
+     */
+    public static final GraphEdits NONE =
+            new GraphEdits(0, Collections.emptySet(), Collections.emptyMap());
+
+    private final long version;
+    private final Set<Connection> closed;
+    private final Map<Connection, Double> detours;
+
+    private GraphEdits(long version, Set<Connection> closed, Map<Connection, Double> detours) {
+        this.version = version;
+        this.closed = closed;
+        this.detours = detours;
+    }
+
+    /**
+     * Closes every edge of the base map from source to target.
+     *
+     * @param source the point the closed edges leave
+     * @param target the point the closed edges enter
+     * @spec.requires source, target != null
+     * @return these edits with the connection from source to target closed
+     */
+    public GraphEdits close(Point source, Point target) {
+        Connection connection = new Connection(source, target);
+        if (closed.contains(connection)) {
+            return this;
+        }
+        Set<Connection> newClosed = new HashSet<>(closed);
+        newClosed.add(connection);
+        return new GraphEdits(version + 1, Collections.unmodifiableSet(newClosed), detours);
+    }
+
+    /**
+     * Reopens the edges of the base map from source to target.
+     *
+     * @param source the point the edges leave
+     * @param target the point the edges enter
+     * @spec.requires source, target != null
+     * @return these edits without the closure from source to target
+     */
+    public GraphEdits reopen(Point source, Point target) {
+        Connection connection = new Connection(source, target);
+        if (!closed.contains(connection)) {
+            return this;
+        }
+        Set<Connection> newClosed = new HashSet<>(closed);
+        newClosed.remove(connection);
+        return new GraphEdits(version + 1, Collections.unmodifiableSet(newClosed), detours);
+    }
+
+    /**
+     * Adds a detour edge from source to target, or changes the weight of the one there is.
+     * Detours are not affected by closing the connection they run along.
+     *
+     * @param source the point the detour leaves
+     * @param target the point the detour enters
+     * @param weight the weight of the detour
+     * @spec.requires source, target != null
+     * @return these edits with the detour
+     * @throws IllegalArgumentException if weight is negative, infinite or NaN
+     */
+    public GraphEdits addDetour(Point source, Point target, double weight) {
+        if (!(weight >= 0) || Double.isInfinite(weight)) {
+            throw new IllegalArgumentException("invalid detour weight " + weight);
+        }
+        Connection connection = new Connection(source, target);
+        Double old = detours.get(connection);
+        if (old != null && old == weight) {
+            return this;
+        }
+        Map<Connection, Double> newDetours = new HashMap<>(detours);
+        newDetours.put(connection, weight);
+        return new GraphEdits(version + 1, closed, Collections.unmodifiableMap(newDetours));
+    }
+
+    /**
+     * Removes the detour edge from source to target.
+     *
+     * @param source the point the detour leaves
+     * @param target the point the detour enters
+     * @spec.requires source, target != null
+     * @return these edits without a detour from source to target
+     */
+    public GraphEdits removeDetour(Point source, Point target) {
+        Connection connection = new Connection(source, target);
+        if (!detours.containsKey(connection)) {
+            return this;
+        }
+        Map<Connection, Double> newDetours = new HashMap<>(detours);
+        newDetours.remove(connection);
+        return new GraphEdits(version + 1, closed, Collections.unmodifiableMap(newDetours));
+    }
+
+    /**
+     * @return the number of changes that led to these edits
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * @return true if nothing is closed and there are no detours
+     */
+    public boolean isEmpty() {
+        return closed.isEmpty() && detours.isEmpty();
+    }
+
+    /**
+     * @param source a point
+     * @param target a point
+     * @spec.requires source, target != null
+     * @return true if the connection from source to target is closed
+     */
+    public boolean isClosed(Point source, Point target) {
+        return closed.contains(new Connection(source, target));
+    }
+
+    /**
+     * @param source a point
+     * @param target a point
+     * @spec.requires source, target != null
+     * @return the weight of the detour from source to target, or null if there is none
+     */
+    public Double detour(Point source, Point target) {
+        return detours.get(new Connection(source, target));
+    }
+
+    /**
+     * Calls visitor with the source and target of every closed connection.
+     *
+     * @param visitor the visitor to call
+     */
+    void forEachClosed(ConnectionVisitor visitor) {
+        for (Connection connection : closed) {
+            visitor.visit(connection.source, connection.target, 0.0);
+        }
+    }
+
+    /**
+     * Calls visitor with the source, target and weight of every detour.
+     *
+     * @param visitor the visitor to call
+     */
+    void forEachDetour(ConnectionVisitor visitor) {
+        for (Map.Entry<Connection, Double> detour : detours.entrySet()) {
+            visitor.visit(detour.getKey().source, detour.getKey().target, detour.getValue());
+        }
+    }
+
+    /**
+     * Receives the connections of a GraphEdits.
+     */
+    interface ConnectionVisitor {
+        void visit(Point source, Point target, double weight);
+    }
+
+    @Override
+    public String toString() {
+        return "GraphEdits(version " + version + ", " + closed.size() + " closed, "
+                + detours.size() + " detours)";
+    }
+
+    // the directed connection from one point to another
+    private static final class Connection {
+
+        // This class does not represent an ADT.
+
+        private final Point source;
+        private final Point target;
+
+        Connection(Point source, Point target) {
+            if (source == null || target == null) {
+                throw new IllegalArgumentException("connection endpoints cannot be null");
+            }
+            this.source = source;
+            this.target = target;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Connection && ((Connection) o).source.equals(source)
+                    && ((Connection) o).target.equals(target);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * source.hashCode() + target.hashCode();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package pathfinder.routing;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * IndexedMinHeap represents a mutable binary min-heap of int items in [0, capacity),
+ * each with a double key. Unlike a PriorityQueue it knows where every item sits, so the
+ * key of a queued item can be decreased in place instead of queueing a stale duplicate.
+ *
+ * @spec.specfield items : set of (item, key)
+ * // items currently in the heap with their keys
+ */
+public final class IndexedMinHeap {
+
+    /*
+     Rep invariant:
+         heap, keys, position != null
+         0 <= size <= heap.length == keys.length == position.length
+         position[heap[i]] == i for 0 <= i < size
+         position[v] == -1 for every v not in heap[0 .. size)
+         keys[heap[(i - 1) / 2]] <= keys[heap[i]] for 0 < i < size
+
+     Abstract function:
+         AF(this) = items such that items = {(heap[i], keys[heap[i]]) | 0 <= i < size}
+     */
+
+    // heap[0 .. size) holds the items in heap order
+    private final int[] heap;
+    // keys[v] is the key of item v while v is in the heap
+    private final double[] keys;
+    // position[v] is the index of v in heap, or -1 if v is not in the heap
+    private final int[] position;
+    private int size;
+
+    // to enable or disable checkRep()
+    private final boolean CHECK_REP_ENABLE = false;
+
+    /**
+     * Creates an empty heap for items in [0, capacity).
+     *
+     * @param capacity number of distinct items the heap can hold
+     * @spec.requires capacity >= 0
+     */
+    public IndexedMinHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.keys = new double[capacity];
+        this.position = new int[capacity];
+        Arrays.fill(position, -1);
+        this.size = 0;
+        checkRep();
+    }
+
+    /**
+     * @return true if the heap has no items
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return number of items in the heap
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param item an item
+     * @spec.requires 0 <= item < capacity
+     * @return true if item is in the heap
+     */
+    public boolean contains(int item) {
+        return position[item] >= 0;
+    }
+
+    /**
+     * Adds item with the given key, or lowers the key of item if it is already
+     * in the heap with a larger key.
+     *
+     * @param item an item
+     * @param key the key of item
+     * @spec.requires 0 <= item < capacity
+     * @spec.modifies this
+     * @spec.effects item is in the heap with key min(key, old key of item)
+     * @return true if the heap changed
+     */
+    public boolean offer(int item, double key) {
+        int index = position[item];
+        if (index < 0) {
+            index = size++;
+            heap[index] = item;
+            position[item] = index;
+        } else if (key >= keys[item]) {
+            return false;
+        }
+        keys[item] = key;
+        siftUp(index);
+        checkRep();
+        return true;
+    }
+
+    /**
+     * @return the smallest key in the heap
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public double peekKey() {
+        if (size == 0) {
+            throw new NoSuchElementException("heap is empty");
+        }
+        return keys[heap[0]];
+    }
+
+    /**
+     * Removes and returns the item with the smallest key.
+     *
+     * @spec.modifies this
+     * @return the item with the smallest key
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int poll() {
+        if (size == 0) {
+            throw new NoSuchElementException("heap is empty");
+        }
+        int min = heap[0];
+        position[min] = -1;
+        size--;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            position[last] = 0;
+            siftDown(0);
+        }
+        checkRep();
+        return min;
+    }
+
+    /**
+     * Removes all items. Runs in time proportional to the number of items in the heap,
+     * not to its capacity.
+     *
+     * @spec.modifies this
+     * @spec.effects this is empty
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+        checkRep();
+    }
+
+    // moves the item at index up until its parent is not larger
+    private void siftUp(int index) {
+        int item = heap[index];
+        double key = keys[item];
+        while (index > 0) {
+            int parentIndex = (index - 1) >>> 1;
+            int parent = heap[parentIndex];
+            if (keys[parent] <= key) {
+                break;
+            }
+            heap[index] = parent;
+            position[parent] = index;
+            index = parentIndex;
+        }
+        heap[index] = item;
+        position[item] = index;
+    }
+
+    // moves the item at index down until no child is smaller
+    private void siftDown(int index) {
+        int item = heap[index];
+        double key = keys[item];
+        int half = size >>> 1;
+        while (index < half) {
+            int childIndex = 2 * index + 1;
+            int child = heap[childIndex];
+            int right = childIndex + 1;
+            if (right < size && keys[heap[right]] < keys[child]) {
+                childIndex = right;
+                child = heap[right];
+            }
+            if (key <= keys[child]) {
+                break;
+            }
+            heap[index] = child;
+            position[child] = index;
+            index = childIndex;
+        }
+        heap[index] = item;
+        position[item] = index;
+    }
+
+    /**
+     * Checks if rep inv holds.
+     */
+    private void checkRep() throws RuntimeException {
+        if (CHECK_REP_ENABLE) {
+            for (int i = 0; i < size; i++) {
+                if (position[heap[i]] != i) {
+                    throw new RuntimeException("position does not match heap");
+                }
+                if (i > 0 && keys[heap[(i - 1) / 2]] > keys[heap[i]]) {
+                    throw new RuntimeException("heap order violated at " + i);
+                }
+            }
+        }
+    }
+}
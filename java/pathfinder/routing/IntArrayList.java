@@ -0,0 +1,89 @@
+package pathfinder.routing;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * IntArrayList is a minimal growable list of primitive ints, used where a
+ * List of Integer would box every element.
+ */
+final class IntArrayList {
+
+    // This class does not represent an ADT.
+
+    private int[] items;
+    private int size;
+
+    /**
+     * Creates an empty list.
+     */
+    IntArrayList() {
+        this.items = new int[4];
+    }
+
+    /**
+     * @param item the int to append
+     */
+    void add(int item) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+        }
+        items[size++] = item;
+    }
+
+    /**
+     * @param index position of an item
+     * @spec.requires 0 <= index < size()
+     * @return the item at index
+     */
+    int get(int index) {
+        return items[index];
+    }
+
+    /**
+     * Removes and returns the last item.
+     *
+     * @spec.requires size() > 0
+     * @return the last item
+     */
+    int removeLast() {
+        return items[--size];
+    }
+
+    /**
+     * Removes every item filter accepts, keeping the order of the others.
+     *
+     * @param filter accepts the items to remove
+     * @spec.requires filter != null
+     */
+    void removeIf(IntPredicate filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!filter.test(items[i])) {
+                items[kept++] = items[i];
+            }
+        }
+        size = kept;
+    }
+
+    /**
+     * @return number of items
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Removes all items, keeping the capacity.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return a new array holding the items in order
+     */
+    int[] toArray() {
+        return Arrays.copyOf(items, size);
+    }
+}
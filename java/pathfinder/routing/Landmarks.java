@@ -0,0 +1,275 @@
+package pathfinder.routing;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Landmarks represents an immutable set of landmark nodes of a CsrGraph together with
+ * the shortest distance from every landmark to every node and from every node to every
+ * landmark. By the triangle inequality, for any landmark L and nodes v, t:
+ * d(v, t) >= d(L, t) - d(L, v) and d(v, t) >= d(v, L) - d(t, L), so the largest of these
+ * differences over all landmarks is a lower bound on d(v, t) that follows the detours
+ * of the real paths, not the straight line.
+ * <p>
+ * Landmarks are picked by farthest-point selection: each new landmark is the node whose
+ * distance to the closest landmark picked so far is largest.
+ *
+ * @spec.specfield graph : CsrGraph
+ * // the graph the landmarks belong to
+ * @spec.specfield landmarks : sequence of int
+ * // the landmark node ids
+ */
+public final class Landmarks {
+
+    /*
+     Rep invariant:
+         graph, landmarks, from, to != null
+         from.length == to.length == landmarks.length * graph.nodeCount()
+         from[v * k + l] is the distance from landmarks[l] to v, positive infinity if
+             v is unreachable from it
+         to[v * k + l] is the distance from v to landmarks[l], positive infinity if
+             landmarks[l] is unreachable from v
+
+     Abstract function:
+         AF(this) = the landmarks landmarks of graph with their distance tables
+     */
+
+    private final CsrGraph graph;
+    private final int[] landmarks;
+    // node-major tables: the k distances of a node are next to each other
+    private final double[] from;
+    private final double[] to;
+
+    private Landmarks(CsrGraph graph, int[] landmarks, double[] from, double[] to) {
+        this.graph = graph;
+        this.landmarks = landmarks;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Picks up to count landmarks of graph and precomputes their distance tables.
+     * The forward tables come out of the selection itself; the backward tables are
+     * computed for all landmarks in parallel.
+     *
+     * @param graph the graph to pick landmarks in
+     * @param count the number of landmarks wanted
+     * @spec.requires graph != null, count >= 1
+     * @return landmarks of graph, all distinct; fewer than count if fewer nodes are
+     *         reachable from node 0 and the landmarks picked before
+     */
+    public static Landmarks select(CsrGraph graph, int count) {
+        int n = graph.nodeCount();
+        int k = Math.min(count, n);
+        int[] chosen = new int[k];
+        double[][] fromLandmark = new double[k][];
+        // distance to the closest landmark picked so far
+        double[] closest = new double[n];
+        Arrays.fill(closest, Double.POSITIVE_INFINITY);
+        // start from the node farthest from node 0, which is near the edge of the map
+        int next = k == 0 ? -1 : farthest(distances(graph, 0, false), chosen, 0);
+        for (int l = 0; l < k; l++) {
+            if (next < 0) {
+                // every node the landmarks reach is a landmark already
+                k = l;
+                chosen = Arrays.copyOf(chosen, k);
+                break;
+            }
+            chosen[l] = next;
+            fromLandmark[l] = distances(graph, next, false);
+            for (int v = 0; v < n; v++) {
+                closest[v] = Math.min(closest[v], fromLandmark[l][v]);
+            }
+            next = farthest(closest, chosen, l + 1);
+        }
+        int[] landmarks = chosen;
+        double[][] toLandmark = new double[k][];
+        IntStream.range(0, k).parallel()
+                .forEach(l -> toLandmark[l] = distances(graph, landmarks[l], true));
+
+        double[] from = new double[k * n];
+        double[] to = new double[k * n];
+        for (int v = 0; v < n; v++) {
+            for (int l = 0; l < k; l++) {
+                from[v * k + l] = fromLandmark[l][v];
+                to[v * k + l] = toLandmark[l][v];
+            }
+        }
+        return new Landmarks(graph, landmarks, from, to);
+    }
+
+    // node with the largest finite distance, skipping the first chosenCount of chosen;
+    // -1 if every node at a finite distance is chosen
+    private static int farthest(double[] dist, int[] chosen, int chosenCount) {
+        int best = -1;
+        double bestDist = -1.0;
+        for (int v = 0; v < dist.length; v++) {
+            if (dist[v] > bestDist && Double.isFinite(dist[v])
+                    && !contains(chosen, chosenCount, v)) {
+                best = v;
+                bestDist = dist[v];
+            }
+        }
+        return best;
+    }
+
+    private static boolean contains(int[] array, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (array[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Computes the shortest distance from source to every node, or if backward is true
+     * from every node to source.
+     *
+     * @param graph the graph to search
+     * @param source the node to search from
+     * @param backward whether to follow edges in reverse
+     * @return distance of every node, positive infinity for unreachable nodes
+     */
+    static double[] distances(CsrGraph graph, int source, boolean backward) {
+        SearchSpace space = new SearchSpace(graph.nodeCount());
+        space.reset();
+        space.reach(source, 0.0, -1);
+        space.heap.offer(source, 0.0);
+        double[] dist = new double[graph.nodeCount()];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        while (!space.heap.isEmpty()) {
+            int node = space.heap.poll();
+            space.settle(node);
+            double nodeDist = space.dist(node);
+            dist[node] = nodeDist;
+            int first = backward ? graph.inEdgeStart(node) : graph.edgeStart(node);
+            int last = backward ? graph.inEdgeEnd(node) : graph.edgeEnd(node);
+            for (int i = first; i < last; i++) {
+                int e = backward ? graph.inEdge(i) : i;
+                int next = backward ? graph.source(e) : graph.target(e);
+                double newDist = nodeDist + graph.weight(e);
+                if (!space.isSettled(next) && newDist < space.dist(next)) {
+                    space.reach(next, newDist, e);
+                    space.heap.offer(next, newDist);
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Returns the same landmarks for a graph with the same nodes as this one's, such as
+     * an edited version of it. Distance tables of a graph stay valid for a graph that
+     * only lacks some of its edges: the bounds get looser but still never overestimate,
+     * and they stay consistent. So the tables are only changed for the edges newGraph
+     * has and the graph of these landmarks does not, and only where such an edge makes
+     * an entry too large: each landmark's tables are lowered by a search that starts at
+     * the new edges and visits only the nodes whose entries drop.
+     *
+     * @param newGraph the graph to bound distances in
+     * @spec.requires newGraph != null
+     * @return landmarks of newGraph with tables that are valid for it
+     * @throws IllegalArgumentException if newGraph does not have the same nodes as
+     *                                  getGraph()
+     */
+    public Landmarks update(CsrGraph newGraph) {
+        IntArrayList added = new IntArrayList();
+        CsrGraph.diff(graph, newGraph, e -> { }, added::add);
+        if (added.size() == 0) {
+            return new Landmarks(newGraph, landmarks, from, to);
+        }
+        double[] newFrom = from.clone();
+        double[] newTo = to.clone();
+        IntStream.range(0, landmarks.length).parallel().forEach(l -> {
+            IndexedMinHeap heap = new IndexedMinHeap(newGraph.nodeCount());
+            lower(newGraph, added, newFrom, l, false, heap);
+            lower(newGraph, added, newTo, l, true, heap);
+        });
+        return new Landmarks(newGraph, landmarks, newFrom, newTo);
+    }
+
+    // lowers the entries of landmark l in table until no edge of graph, and in particular
+    // none of the added edges, leads to a smaller entry; table is from, or to if backward
+    private void lower(CsrGraph graph, IntArrayList added, double[] table, int l,
+                       boolean backward, IndexedMinHeap heap) {
+        int k = landmarks.length;
+        for (int i = 0; i < added.size(); i++) {
+            int e = added.get(i);
+            int tail = backward ? graph.target(e) : graph.source(e);
+            int head = backward ? graph.source(e) : graph.target(e);
+            double entry = table[tail * k + l] + graph.weight(e);
+            if (entry < table[head * k + l]) {
+                table[head * k + l] = entry;
+                heap.offer(head, entry);
+            }
+        }
+        while (!heap.isEmpty()) {
+            int node = heap.poll();
+            double nodeEntry = table[node * k + l];
+            int first = backward ? graph.inEdgeStart(node) : graph.edgeStart(node);
+            int last = backward ? graph.inEdgeEnd(node) : graph.edgeEnd(node);
+            for (int i = first; i < last; i++) {
+                int e = backward ? graph.inEdge(i) : i;
+                int next = backward ? graph.source(e) : graph.target(e);
+                double entry = nodeEntry + graph.weight(e);
+                if (entry < table[next * k + l]) {
+                    table[next * k + l] = entry;
+                    heap.offer(next, entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the graph these landmarks belong to
+     */
+    public CsrGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return number of landmarks
+     */
+    public int count() {
+        return landmarks.length;
+    }
+
+    /**
+     * @param index position of a landmark
+     * @spec.requires 0 <= index < count()
+     * @return the node id of the index-th landmark
+     */
+    public int landmark(int index) {
+        return landmarks[index];
+    }
+
+    /**
+     * Returns a lower bound on the distance from node to target.
+     *
+     * @param node a node id
+     * @param target a node id
+     * @return a lower bound on d(node, target); positive infinity if target is
+     *         provably unreachable from node
+     */
+    public double lowerBound(int node, int target) {
+        int k = landmarks.length;
+        int v = node * k;
+        int t = target * k;
+        double bound = 0.0;
+        for (int l = 0; l < k; l++) {
+            // d(L, t) - d(L, v); infinite only if L reaches node but not target
+            double forward = from[t + l] - from[v + l];
+            // d(v, L) - d(t, L); infinite only if target reaches L but node does not
+            double backward = to[v + l] - to[t + l];
+            // NaN (both infinite) compares false and is ignored
+            if (forward > bound) {
+                bound = forward;
+            }
+            if (backward > bound) {
+                bound = backward;
+            }
+        }
+        return bound;
+    }
+}
@@ -0,0 +1,112 @@
+package pathfinder.routing;
+
+import java.util.Arrays;
+
+/**
+ * ManyToManyEngine computes the matrix of shortest distances from a set of source
+ * nodes to a set of target nodes of a CsrGraph. It runs one Dijkstra search per
+ * source that stops as soon as every target is settled, and only records distances:
+ * no parent walk, Route or Path is ever built. Search state is reused per thread.
+ */
+public final class ManyToManyEngine {
+
+    // This class does not represent an ADT.
+
+    private final CsrGraph graph;
+    private final ThreadLocal<Workspace> workspaces;
+
+    /**
+     * Creates an engine over graph.
+     *
+     * @param graph the graph to search
+     * @spec.requires graph != null
+     */
+    public ManyToManyEngine(CsrGraph graph) {
+        this.graph = graph;
+        this.workspaces = ThreadLocal.withInitial(() -> new Workspace(graph.nodeCount()));
+    }
+
+    /**
+     * @return the graph this engine searches
+     */
+    public CsrGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Computes the shortest distance from every source to every target.
+     *
+     * @param sources source node ids
+     * @param targets target node ids
+     * @spec.requires sources, targets != null, all ids are nodes of getGraph()
+     * @return matrix m where m[i][j] is the distance from sources[i] to targets[j],
+     *         positive infinity if unreachable
+     */
+    public double[][] distances(int[] sources, int[] targets) {
+        Workspace work = workspaces.get();
+        double[][] matrix = new double[sources.length][];
+        for (int i = 0; i < sources.length; i++) {
+            matrix[i] = distancesFrom(sources[i], targets, work);
+        }
+        return matrix;
+    }
+
+    // one search from source, stopped once all targets are settled
+    private double[] distancesFrom(int source, int[] targets, Workspace work) {
+        SearchSpace space = work.space;
+        space.reset();
+        if (++work.round == Integer.MAX_VALUE) {
+            Arrays.fill(work.targetRound, -1);
+            work.round = 0;
+        }
+        int remaining = 0;
+        for (int target : targets) {
+            if (work.targetRound[target] != work.round) {
+                work.targetRound[target] = work.round;
+                remaining++;
+            }
+        }
+        space.reach(source, 0.0, -1);
+        space.heap.offer(source, 0.0);
+        while (!space.heap.isEmpty() && remaining > 0) {
+            int node = space.heap.poll();
+            space.settle(node);
+            if (work.targetRound[node] == work.round) {
+                remaining--;
+            }
+            double nodeDist = space.dist(node);
+            for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                int child = graph.target(e);
+                double newDist = nodeDist + graph.weight(e);
+                if (!space.isSettled(child) && newDist < space.dist(child)) {
+                    space.reach(child, newDist, e);
+                    space.heap.offer(child, newDist);
+                }
+            }
+        }
+        double[] row = new double[targets.length];
+        for (int j = 0; j < targets.length; j++) {
+            row[j] = space.isSettled(targets[j]) ? space.dist(targets[j]) : Double.POSITIVE_INFINITY;
+        }
+        return row;
+    }
+
+    /**
+     * Workspace is the per-thread state of a matrix computation.
+     */
+    private static final class Workspace {
+
+        // This class does not represent an ADT.
+
+        private final SearchSpace space;
+        // targetRound[v] == round iff v is a target of the current search
+        private final int[] targetRound;
+        private int round;
+
+        Workspace(int nodeCount) {
+            this.space = new SearchSpace(nodeCount);
+            this.targetRound = new int[nodeCount];
+            Arrays.fill(targetRound, -1);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package pathfinder.routing;
+
+import pathfinder.datastructures.Path;
+import pathfinder.datastructures.Point;
+
+/**
+ * Route represents an immutable result of a shortest path query over a CsrGraph:
+ * the sequence of edge ids from the start node to the end node, the total cost,
+ * and how many nodes the engine settled to find it.
+ *
+ * @spec.specfield start : int
+ * // the node the route begins at
+ * @spec.specfield edges : sequence of int
+ * // ids of the edges of the route, in order
+ * @spec.specfield cost : double
+ * // sum of the weights of edges
+ * @spec.specfield settled : int
+ * // number of nodes the search settled to find the route
+ */
+public final class Route {
+
+    /*
+     Rep invariant:
+         graph, edges != null
+         edges is empty or graph.source(edges[0]) == start
+         graph.source(edges[i + 1]) == graph.target(edges[i])
+         cost == sum of graph.weight(e) over edges, in order
+         settled >= 0
+
+     Abstract function:
+         AF(this) = route r such that r.start = start, r.edges = edges,
+                    r.cost = cost and r.settled = settled
+     */
+
+    private final CsrGraph graph;
+    private final int start;
+    private final int[] edges;
+    private final double cost;
+    private final int settled;
+
+    /**
+     * Creates a route from start along edges.
+     *
+     * @param graph the graph edges belong to
+     * @param start the node the route begins at
+     * @param edges ids of the edges of the route, in order; not copied
+     * @param settled number of nodes settled to find the route
+     * @spec.requires edges form a walk beginning at start
+     */
+    Route(CsrGraph graph, int start, int[] edges, int settled) {
+        this.graph = graph;
+        this.start = start;
+        this.edges = edges;
+        this.settled = settled;
+        double total = 0.0;
+        for (int e : edges) {
+            total += graph.weight(e);
+        }
+        this.cost = total;
+    }
+
+    /**
+     * Creates the route to end recorded by the parent edges of a finished search.
+     *
+     * @param graph the graph that was searched
+     * @param start the source of the search
+     * @param end the node the route ends at
+     * @param space the search space holding the parent edges
+     * @spec.requires end was reached by the search
+     * @return the route from start to end
+     */
+    static Route fromParents(CsrGraph graph, int start, int end, SearchSpace space) {
+        int length = 0;
+        for (int node = end; node != start; node = graph.source(space.parentEdge(node))) {
+            length++;
+        }
+        int[] edges = new int[length];
+        for (int node = end; node != start; node = graph.source(space.parentEdge(node))) {
+            edges[--length] = space.parentEdge(node);
+        }
+        return new Route(graph, start, edges, space.settledCount());
+    }
+
+    /**
+     * Creates the route through meet recorded by a forward search from start and a
+     * backward search from end. The backward parent edge of a node is the edge
+     * leaving it towards end.
+     *
+     * @param graph the graph that was searched
+     * @param start the source of the forward search
+     * @param meet a node reached by both searches
+     * @param end the source of the backward search
+     * @param forward the forward search space
+     * @param backward the backward search space
+     * @param settled number of nodes settled by both searches together
+     * @spec.requires meet was reached by both searches
+     * @return the route from start to end through meet
+     */
+    static Route fromMeeting(CsrGraph graph, int start, int meet, int end,
+                             SearchSpace forward, SearchSpace backward, int settled) {
+        int head = 0;
+        for (int node = meet; node != start; node = graph.source(forward.parentEdge(node))) {
+            head++;
+        }
+        int tail = 0;
+        for (int node = meet; node != end; node = graph.target(backward.parentEdge(node))) {
+            tail++;
+        }
+        int[] edges = new int[head + tail];
+        int i = head;
+        for (int node = meet; node != start; node = graph.source(forward.parentEdge(node))) {
+            edges[--i] = forward.parentEdge(node);
+        }
+        i = head;
+        for (int node = meet; node != end; node = graph.target(backward.parentEdge(node))) {
+            edges[i++] = backward.parentEdge(node);
+        }
+        return new Route(graph, start, edges, settled);
+    }
+
+    /**
+     * @return the node this route begins at
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * @return the node this route ends at
+     */
+    public int getEnd() {
+        return edges.length == 0 ? start : graph.target(edges[edges.length - 1]);
+    }
+
+    /**
+     * @return number of edges in this route
+     */
+    public int length() {
+        return edges.length;
+    }
+
+    /**
+     * @param index position of an edge in this route
+     * @spec.requires 0 <= index < length()
+     * @return id of the index-th edge of this route
+     */
+    public int edge(int index) {
+        return edges[index];
+    }
+
+    /**
+     * @return the total cost of this route
+     */
+    public double getCost() {
+        return cost;
+    }
+
+    /**
+     * @return number of nodes settled by the search that found this route
+     */
+    public int getSettledCount() {
+        return settled;
+    }
+
+    /**
+     * Builds the path of points this route follows.
+     *
+     * @return a path from the start point to the end point of this route
+     */
+    public Path<Point> toPath() {
+        return graph.toPath(start, edges, edges.length);
+    }
+
+    @Override
+    public String toString() {
+        return graph.point(start) + " -> " + graph.point(getEnd())
+                + " (" + edges.length + " edges, cost " + cost + ", settled " + settled + ")";
+    }
+}
@@ -0,0 +1,38 @@
+package pathfinder.routing;
+
+/**
+ * The shortest path algorithms a campus map can be routed with. Every algorithm
+ * returns routes of the same (least) cost; they differ in how much of the graph
+ * they search and how much preprocessing they need.
+ */
+public enum RoutingAlgorithm {
+
+    /**
+     * Dijkstra's algorithm with an indexed heap. Needs no preprocessing.
+     */
+    DIJKSTRA,
+
+    /**
+     * A* guided by the scaled straight-line distance to the destination.
+     */
+    ASTAR,
+
+    /**
+     * Dijkstra's algorithm run from both ends at once over the reverse adjacency,
+     * stopping when the two frontiers can no longer improve the best meeting.
+     */
+    BIDIRECTIONAL,
+
+    /**
+     * Upward bidirectional search over a contraction hierarchy. Needs the most
+     * preprocessing, which is done once per map, and answers queries fastest.
+     */
+    CONTRACTION_HIERARCHY,
+
+    /**
+     * A* guided by lower bounds from precomputed landmark distances (ALT). Needs a
+     * few full searches of preprocessing, far less than a contraction hierarchy.
+     */
+    ALT
+
+}
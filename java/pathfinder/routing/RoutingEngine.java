@@ -0,0 +1,23 @@
+package pathfinder.routing;
+
+/**
+ * A RoutingEngine answers single-pair shortest path queries over a CsrGraph.
+ * Implementations must be safe to call from several threads at once.
+ */
+public interface RoutingEngine {
+
+    /**
+     * Finds a least cost route from start to end.
+     *
+     * @param start id of the node the route begins at
+     * @param end id of the node the route ends at
+     * @spec.requires 0 <= start, end < getGraph().nodeCount()
+     * @return a least cost route from start to end, or null if end is unreachable
+     */
+    Route route(int start, int end);
+
+    /**
+     * @return the graph this engine searches
+     */
+    CsrGraph getGraph();
+}
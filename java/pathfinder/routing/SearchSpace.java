@@ -0,0 +1,122 @@
+package pathfinder.routing;
+
+import java.util.Arrays;
+
+/**
+ * SearchSpace is the reusable per-query state of a single search over a graph with a
+ * fixed number of nodes: tentative distances, the edge each node was reached by, the
+ * settled set and the heap. Rather than clearing its arrays before every query, it
+ * tags entries with the number of the query that wrote them, so starting a new query
+ * costs O(1) and a query allocates nothing.
+ * <p>
+ * A SearchSpace is not thread-safe; engines keep one per thread.
+ */
+final class SearchSpace {
+
+    // This class does not represent an ADT.
+
+    // tentative distance and incoming edge of each node, valid only if reached[v] == query
+    private final double[] dist;
+    private final int[] parentEdge;
+    private final int[] reached;
+    // settled[v] == query iff v was settled during the current query
+    private final int[] settled;
+
+    /**
+     * The heap of reached but not yet settled nodes, keyed by the engine's priority.
+     */
+    final IndexedMinHeap heap;
+
+    private int query;
+    private int settledCount;
+
+    /**
+     * Creates a search space for a graph with nodeCount nodes.
+     *
+     * @param nodeCount number of nodes of the graph that will be searched
+     */
+    SearchSpace(int nodeCount) {
+        this.dist = new double[nodeCount];
+        this.parentEdge = new int[nodeCount];
+        this.reached = new int[nodeCount];
+        this.settled = new int[nodeCount];
+        this.heap = new IndexedMinHeap(nodeCount);
+        this.query = 0;
+    }
+
+    /**
+     * @return number of nodes this search space was made for
+     */
+    int capacity() {
+        return dist.length;
+    }
+
+    /**
+     * Forgets the previous query.
+     */
+    void reset() {
+        heap.clear();
+        settledCount = 0;
+        query++;
+        if (query == Integer.MAX_VALUE) {
+            // stamps wrapped around, clear them for real once every 2^31 queries
+            Arrays.fill(reached, 0);
+            Arrays.fill(settled, 0);
+            query = 1;
+        }
+    }
+
+    /**
+     * @param node a node id
+     * @return tentative distance of node, or positive infinity if it was not reached
+     */
+    double dist(int node) {
+        return reached[node] == query ? dist[node] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @param node a node id
+     * @return the edge node was reached by, or -1 if it is a source or was not reached
+     */
+    int parentEdge(int node) {
+        return reached[node] == query ? parentEdge[node] : -1;
+    }
+
+    /**
+     * Records that node can be reached with distance d through edge.
+     *
+     * @param node a node id
+     * @param d distance of node
+     * @param edge edge node was reached by, or -1 for a source
+     */
+    void reach(int node, double d, int edge) {
+        dist[node] = d;
+        parentEdge[node] = edge;
+        reached[node] = query;
+    }
+
+    /**
+     * @param node a node id
+     * @return true if node was settled during the current query
+     */
+    boolean isSettled(int node) {
+        return settled[node] == query;
+    }
+
+    /**
+     * Marks node as settled.
+     *
+     * @param node a node id
+     */
+    void settle(int node) {
+        settled[node] = query;
+        settledCount++;
+    }
+
+    /**
+     * @return number of nodes settled during the current query
+     */
+    int settledCount() {
+        return settledCount;
+    }
+}
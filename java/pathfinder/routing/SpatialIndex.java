@@ -0,0 +1,296 @@
+package pathfinder.routing;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * SpatialIndex represents an immutable k-d tree over the nodes of a CsrGraph, answering
+ * which nodes lie closest to an arbitrary location, such as a spot clicked on the map.
+ * The tree is stored implicitly in arrays: the subtree over the slots [lo, hi) has its
+ * root at slot (lo + hi) / 2, splits by x at even depths and by y at odd depths, and has
+ * the slots before its root on the low side and the slots after on the high side. A
+ * query descends to the side of the location first and visits the other side only if
+ * the splitting line is closer than the nodes found so far, so a nearest node query
+ * looks at O(log n) nodes on average instead of all of them.
+ * <p>
+ * Distances are straight-line distances between coordinates. Among nodes at the same
+ * distance the one with the lowest id comes first, so answers do not depend on how
+ * the tree happened to split.
+ *
+ * @spec.specfield graph : CsrGraph
+ * // the graph whose nodes are indexed
+ */
+public final class SpatialIndex {
+
+    /*
+     Rep invariant:
+         ids, xs, ys != null, ids.length == xs.length == ys.length == graph.nodeCount()
+         ids is a permutation of the node ids of graph
+         xs[i] == graph.x(ids[i]) and ys[i] == graph.y(ids[i]) for every slot i
+         for every subtree [lo, hi) at depth d with root mid = (lo + hi) >>> 1, every slot
+             in [lo, mid) has key <= key[mid] and every slot in (mid, hi) has key >= key[mid],
+             where key is xs if d is even and ys otherwise
+
+     Abstract function:
+         AF(this) = an index of the nodes of the graph the ids were taken from, by the
+                    coordinates xs and ys
+     */
+
+    // node ids and their coordinates, in tree order
+    private final int[] ids;
+    private final double[] xs;
+    private final double[] ys;
+
+    /**
+     * Builds the tree over every node of graph, in O(n log n) expected time.
+     *
+     * @param graph the graph whose nodes to index
+     * @spec.requires graph != null
+     */
+    public SpatialIndex(CsrGraph graph) {
+        int n = graph.nodeCount();
+        ids = new int[n];
+        xs = new double[n];
+        ys = new double[n];
+        for (int node = 0; node < n; node++) {
+            ids[node] = node;
+            xs[node] = graph.x(node);
+            ys[node] = graph.y(node);
+        }
+        build(0, n, true);
+    }
+
+    // splits the slots [lo, hi) around their middle slot, and then both halves
+    private void build(int lo, int hi, boolean byX) {
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            select(lo, hi - 1, mid, byX ? xs : ys);
+            build(lo, mid, !byX);
+            lo = mid + 1;
+            byX = !byX;
+        }
+    }
+
+    // rearranges the slots [lo, hi] so that slot k holds the element that sorting them by
+    // key would put there, with no greater key before it and no smaller key after it
+    private void select(int lo, int hi, int k, double[] key) {
+        while (hi > lo) {
+            double pivot = key[(lo + hi) >>> 1];
+            // three-way partition: [lo, lt) < pivot, [lt, i) == pivot, (gt, hi] > pivot
+            int lt = lo;
+            int i = lo;
+            int gt = hi;
+            while (i <= gt) {
+                if (key[i] < pivot) {
+                    swap(lt++, i++);
+                } else if (key[i] > pivot) {
+                    swap(i, gt--);
+                } else {
+                    i++;
+                }
+            }
+            if (k < lt) {
+                hi = lt - 1;
+            } else if (k > gt) {
+                lo = gt + 1;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        double x = xs[i];
+        xs[i] = xs[j];
+        xs[j] = x;
+        double y = ys[i];
+        ys[i] = ys[j];
+        ys[j] = y;
+    }
+
+    /**
+     * @return the number of nodes in this index
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Finds the node closest to a location.
+     *
+     * @param x the x coordinate of the location
+     * @param y the y coordinate of the location
+     * @return the id of the node closest to (x, y), or -1 if the graph has no nodes
+     */
+    public int nearest(double x, double y) {
+        return nearest(x, y, node -> true);
+    }
+
+    /**
+     * Finds the node closest to a location among those accepted by a filter, for
+     * example the nodes that still have paths leaving them. Nodes the filter rejects
+     * are skipped but do not stop the search, so a filter that rejects most nodes makes
+     * the query look at more of them.
+     *
+     * @param x      the x coordinate of the location
+     * @param y      the y coordinate of the location
+     * @param accept the filter, called with node ids
+     * @spec.requires accept != null
+     * @return the id of the accepted node closest to (x, y), or -1 if none is accepted
+     */
+    public int nearest(double x, double y, IntPredicate accept) {
+        int[] found = nearest(x, y, 1, accept);
+        return found.length == 0 ? -1 : found[0];
+    }
+
+    /**
+     * Finds the k nodes closest to a location.
+     *
+     * @param x the x coordinate of the location
+     * @param y the y coordinate of the location
+     * @param k the number of nodes wanted
+     * @return the ids of the min(k, size()) nodes closest to (x, y), closest first
+     * @throws IllegalArgumentException if k is negative
+     */
+    public int[] nearest(double x, double y, int k) {
+        return nearest(x, y, k, node -> true);
+    }
+
+    /**
+     * Finds the k nodes closest to a location among those accepted by a filter.
+     *
+     * @param x      the x coordinate of the location
+     * @param y      the y coordinate of the location
+     * @param k      the number of nodes wanted
+     * @param accept the filter, called with node ids
+     * @spec.requires accept != null
+     * @return the ids of up to k accepted nodes closest to (x, y), closest first; fewer
+     * than k only if fewer are accepted
+     * @throws IllegalArgumentException if k is negative
+     */
+    public int[] nearest(double x, double y, int k, IntPredicate accept) {
+        if (k < 0) {
+            throw new IllegalArgumentException("negative number of nodes " + k);
+        }
+        Neighbors neighbors = new Neighbors(Math.min(k, ids.length));
+        if (neighbors.capacity > 0) {
+            search(0, ids.length, true, x, y, accept, neighbors);
+        }
+        return neighbors.sorted();
+    }
+
+    // offers the accepted nodes of the subtree [lo, hi) to neighbors, skipping the far
+    // side of every split that is farther away than the worst neighbor kept
+    private void search(int lo, int hi, boolean byX, double x, double y, IntPredicate accept,
+                        Neighbors neighbors) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            double dx = xs[mid] - x;
+            double dy = ys[mid] - y;
+            double distance = dx * dx + dy * dy;
+            if (neighbors.admits(distance, ids[mid]) && accept.test(ids[mid])) {
+                neighbors.add(distance, ids[mid]);
+            }
+            double split = byX ? -dx : -dy;
+            // the near side first, so the bound is tight before the far side is checked
+            if (split < 0) {
+                search(lo, mid, !byX, x, y, accept, neighbors);
+                if (!neighbors.prunes(split * split)) {
+                    lo = mid + 1;
+                } else {
+                    return;
+                }
+            } else {
+                search(mid + 1, hi, !byX, x, y, accept, neighbors);
+                if (!neighbors.prunes(split * split)) {
+                    hi = mid;
+                } else {
+                    return;
+                }
+            }
+            byX = !byX;
+        }
+    }
+
+    // the best nodes found so far, in a max-heap by (squared distance, id) with the worst
+    // kept node on top
+    private static final class Neighbors {
+
+        // This class does not represent an ADT.
+
+        private final int capacity;
+        private final double[] distances;
+        private final int[] nodes;
+        private int size;
+
+        Neighbors(int capacity) {
+            this.capacity = capacity;
+            distances = new double[capacity];
+            nodes = new int[capacity];
+        }
+
+        // true if a node at distance would be kept
+        boolean admits(double distance, int node) {
+            return size < capacity || worse(distances[0], nodes[0], distance, node);
+        }
+
+        // true if no node at distance or farther could be kept
+        boolean prunes(double distance) {
+            return size == capacity && distance > distances[0];
+        }
+
+        void add(double distance, int node) {
+            int i;
+            if (size < capacity) {
+                // sift up from the new last slot
+                i = size++;
+                while (i > 0 && worse(distance, node, distances[(i - 1) / 2], nodes[(i - 1) / 2])) {
+                    distances[i] = distances[(i - 1) / 2];
+                    nodes[i] = nodes[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+            } else {
+                // replace the worst and sift down
+                i = 0;
+                while (2 * i + 1 < size) {
+                    int child = 2 * i + 1;
+                    if (child + 1 < size && worse(distances[child + 1], nodes[child + 1],
+                            distances[child], nodes[child])) {
+                        child++;
+                    }
+                    if (!worse(distances[child], nodes[child], distance, node)) {
+                        break;
+                    }
+                    distances[i] = distances[child];
+                    nodes[i] = nodes[child];
+                    i = child;
+                }
+            }
+            distances[i] = distance;
+            nodes[i] = node;
+        }
+
+        // the kept nodes, closest first
+        int[] sorted() {
+            Integer[] slots = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                slots[i] = i;
+            }
+            Arrays.sort(slots, (a, b) -> worse(distances[a], nodes[a], distances[b], nodes[b])
+                    ? 1 : worse(distances[b], nodes[b], distances[a], nodes[a]) ? -1 : 0);
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = nodes[slots[i]];
+            }
+            return result;
+        }
+
+        private static boolean worse(double distance, int node, double otherDistance,
+                                     int otherNode) {
+            return distance > otherDistance || (distance == otherDistance && node > otherNode);
+        }
+    }
+}
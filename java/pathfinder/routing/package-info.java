@@ -0,0 +1,2 @@
+/** Routing indexes and shortest path engines used by Pathfinder */
+package pathfinder.routing;